@@ -1,15 +1,20 @@
 package il.ac.hit.project.main;
 
 import il.ac.hit.project.main.model.dao.ITasksDAO;
+import il.ac.hit.project.main.model.dao.InMemoryTasksDAO;
+import il.ac.hit.project.main.model.dao.ShardedTasksDAO;
 import il.ac.hit.project.main.model.dao.TasksDAODerby;
 import il.ac.hit.project.main.model.dao.TasksDAOException;
 import il.ac.hit.project.main.model.dao.TasksDAOProxy;
+import il.ac.hit.project.main.model.dao.TasksDAOProxyMonitor;
 import il.ac.hit.project.main.view.IView;
 import il.ac.hit.project.main.view.TaskManagerView;
 import il.ac.hit.project.main.viewmodel.IViewModel;
 import il.ac.hit.project.main.viewmodel.TasksViewModel;
 
+import javax.management.JMException;
 import javax.swing.*;
+import java.nio.file.Path;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 
@@ -23,8 +28,18 @@ import java.sql.SQLException;
  *
  * <h3>Startup flow</h3>
  * <ol>
- *   <li>Obtain a singleton {@link ITasksDAO} implementation (Derby-backed).</li>
- *   <li>Wrap it with {@link TasksDAOProxy} for caching.</li>
+ *   <li>Obtain a singleton {@link ITasksDAO} implementation (Derby-backed), or a non-persistent
+ *       {@link InMemoryTasksDAO} when the {@value #STORE_PROPERTY} system property is {@code memory}.
+ *       When it is {@code sharded}, tasks are spread over {@value #SHARDS_PROPERTY} (default
+ *       {@value ShardedTasksDAO#DEFAULT_SHARD_COUNT}) Derby databases by a {@link ShardedTasksDAO}.</li>
+ *   <li>Wrap it with {@link TasksDAOProxy} for caching, writing behind when the
+ *       {@value TasksDAOProxy#WRITE_BEHIND_PROPERTY} system property is {@code true}, and publish
+ *       its statistics over JMX as {@value TasksDAOProxyMonitor#DEFAULT_OBJECT_NAME}. When the
+ *       {@value TasksDAOProxy#CHANGE_POLL_PROPERTY} system property is {@code true}, the proxy also
+ *       polls the database for tasks changed by other instances of the application.</li>
+ *   <li>Warm the proxy up from the snapshot file saved by the previous run, if any (see
+ *       {@value TasksDAOProxy#SNAPSHOT_FILE_PROPERTY}; by default {@value TasksDAOProxy#DEFAULT_SNAPSHOT_FILE},
+ *       or {@value #SHARDS_SNAPSHOT_FILE} for the sharded store), so the first task list needs no full table read.</li>
  *   <li>Create the {@link il.ac.hit.project.main.view.TaskManagerView} and {@link il.ac.hit.project.main.viewmodel.TasksViewModel}.</li>
  *   <li>Wire ViewModel ↔ View and start the UI on the EDT.</li>
  * </ol>
@@ -33,7 +48,10 @@ import java.sql.SQLException;
  * A JVM shutdown hook attempts to:
  * <ul>
  *   <li>Invoke {@link TasksViewModel#shutdown()} if the ViewModel is present.</li>
- *   <li>Shut down the Derby database (a successful shutdown raises an SQLException with SQLState 08006).</li>
+ *   <li>Flush the proxy's pending writes with {@link TasksDAOProxy#shutdown()} and save its
+ *       snapshot for the next start.</li>
+ *   <li>Shut down the Derby database (a successful shutdown raises an SQLException with SQLState 08006).
+ *       Nothing is saved when the tasks are kept in memory.</li>
  * </ul>
  *
  * <h3>Threading</h3>
@@ -41,6 +59,15 @@ import java.sql.SQLException;
  */
 public class Main {
 
+    // System property choosing where tasks are kept: "derby" (the default), "sharded" or "memory"
+    public static final String STORE_PROPERTY = "tasks.store";
+    // System property with the number of Derby databases of the "sharded" store
+    public static final String SHARDS_PROPERTY = "tasks.shards";
+    // Directory holding the databases of the "sharded" store
+    public static final String SHARDS_DIRECTORY = "taskDB-shards";
+    // Snapshot file of the "sharded" store; the "derby" store uses TasksDAOProxy.DEFAULT_SNAPSHOT_FILE
+    public static final String SHARDS_SNAPSHOT_FILE = "taskDB-shards.snapshot";
+
     /**
      * Program entry point.
      *
@@ -49,11 +76,41 @@ public class Main {
     public static void main(String[] args) {
 
         try {
-            // Create a single instance of the real DAO (Singleton)
-            ITasksDAO tasksDAO = TasksDAODerby.getInstance();
+            // Create a single instance of the real DAO (Singleton), unless told to keep tasks in memory
+            String store = System.getProperty(STORE_PROPERTY, "derby");
+            boolean inMemory = "memory".equalsIgnoreCase(store);
+            boolean sharded = "sharded".equalsIgnoreCase(store);
+            ITasksDAO tasksDAO;
+            if (inMemory) {
+                tasksDAO = new InMemoryTasksDAO();
+            } else if (sharded) {
+                tasksDAO = ShardedTasksDAO.openDerby(Path.of(SHARDS_DIRECTORY),
+                        Integer.getInteger(SHARDS_PROPERTY, ShardedTasksDAO.DEFAULT_SHARD_COUNT));
+            } else {
+                tasksDAO = TasksDAODerby.getInstance();
+            }
 
             // Wrap the real DAO with a Proxy for caching
-            ITasksDAO proxyDAO = new TasksDAOProxy(tasksDAO);
+            TasksDAOProxy proxyDAO = new TasksDAOProxy(tasksDAO);
+            if (Boolean.getBoolean(TasksDAOProxy.WRITE_BEHIND_PROPERTY)) {
+                proxyDAO.enableWriteBehind(TasksDAOProxy.DEFAULT_WRITE_BEHIND_INTERVAL,
+                        TasksDAOProxy.DEFAULT_WRITE_BEHIND_THRESHOLD);
+            }
+            if (Boolean.getBoolean(TasksDAOProxy.CHANGE_POLL_PROPERTY)) {
+                proxyDAO.enableChangePolling(TasksDAOProxy.DEFAULT_CHANGE_POLL_INTERVAL);
+            }
+            try {
+                TasksDAOProxyMonitor.register(proxyDAO, TasksDAOProxyMonitor.DEFAULT_OBJECT_NAME);
+            } catch (JMException e) {
+                // Monitoring is optional, the application works without it.
+                System.err.println("Could not register the cache MBean: " + e.getMessage());
+            }
+            // Each store keeps its own snapshot, so switching stores never warm-starts from the other's tasks
+            Path snapshotFile = Path.of(System.getProperty(TasksDAOProxy.SNAPSHOT_FILE_PROPERTY,
+                    sharded ? SHARDS_SNAPSHOT_FILE : TasksDAOProxy.DEFAULT_SNAPSHOT_FILE));
+            if (!inMemory) {
+                proxyDAO.warmStart(snapshotFile);
+            }
 
             // Construct the View and ViewModel and wire them together.
             IView taskManagerView = new TaskManagerView();
@@ -72,6 +129,18 @@ public class Main {
                     if(viewModel instanceof TasksViewModel){
                         ((TasksViewModel) viewModel).shutdown();
                     }
+                    // Write pending updates before the database goes away.
+                    try {
+                        proxyDAO.shutdown();
+                        if (!inMemory) {
+                            proxyDAO.saveSnapshot(snapshotFile);
+                        }
+                    } catch (TasksDAOException e) {
+                        System.err.println("Error saving pending writes and task snapshot: " + e.getMessage());
+                    }
+                    if (inMemory) {
+                        return;
+                    }
 
                     // Derby's proper shutdown throws an SQLException with SQLState "08006".
                     DriverManager.getConnection("jdbc:derby:;shutdown=true");
@@ -0,0 +1,136 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapter exposing any blocking {@link ITasksDAO} as an {@link IAsyncTasksDAO}.
+ * <p>
+ * Each call runs on the given executor; a {@link TasksDAOException} thrown by the blocking
+ * DAO completes the returned future exceptionally instead of being printed and lost.
+ *
+ * <ul>
+ *   <li>delegate: The blocking DAO doing the actual work.</li>
+ *   <li>executor: Runs the blocking calls.</li>
+ * </ul>
+ */
+public class AsyncTasksDAOAdapter implements IAsyncTasksDAO {
+
+    /**
+     * A blocking DAO call producing a result.
+     */
+    @FunctionalInterface
+    protected interface DAOCall<T> {
+        T call() throws TasksDAOException;
+    }
+
+    /**
+     * A blocking DAO call without a result.
+     */
+    @FunctionalInterface
+    protected interface DAOAction {
+        void run() throws TasksDAOException;
+    }
+
+    private final ITasksDAO delegate;
+    private final Executor executor;
+
+    /**
+     * @param delegate the blocking DAO to adapt
+     * @param executor runs the blocking calls; must not run them on the caller's thread
+     *                 if callers expect not to block
+     */
+    public AsyncTasksDAOAdapter(ITasksDAO delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the adapted blocking DAO
+     */
+    public ITasksDAO getDelegate() {return delegate;}
+
+    /**
+     * @return the executor running the blocking calls
+     */
+    protected Executor getExecutor() {return executor;}
+
+    /**
+     * Runs a blocking call on the executor.
+     *
+     * @return a future completed with the call's result, or exceptionally with its exception
+     */
+    protected <T> CompletableFuture<T> supply(DAOCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (TasksDAOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. RejectedExecutionException after the executor was shut down
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs a blocking action on the executor.
+     *
+     * @return a future completed once the action has run, or exceptionally with its exception
+     */
+    protected CompletableFuture<Void> run(DAOAction action) {
+        return supply(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<ITask[]> getTasks() {
+        return supply(delegate::getTasks);
+    }
+
+    @Override
+    public CompletableFuture<ITask[]> getTasksPage(int afterId, int limit) {
+        return supply(() -> delegate.getTasksPage(afterId, limit));
+    }
+
+    @Override
+    public CompletableFuture<ITask> getTask(int id) {
+        return supply(() -> delegate.getTask(id));
+    }
+
+    @Override
+    public CompletableFuture<ITask> addTask(ITask task) {
+        return supply(() -> {
+            delegate.addTask(task);
+            return task;
+        });
+    }
+
+    @Override
+    public CompletableFuture<int[]> addTasks(ITask... tasks) {
+        return supply(() -> delegate.addTasks(tasks));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateTask(ITask task) {
+        return run(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTasks() {
+        return run(delegate::deleteTasks);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTask(int id) {
+        return run(() -> delegate.deleteTask(id));
+    }
+}
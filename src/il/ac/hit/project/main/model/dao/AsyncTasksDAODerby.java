@@ -0,0 +1,170 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link IAsyncTasksDAO} implementation over {@link TasksDAODerby}.
+ * <p>
+ * Embedded Derby only offers blocking JDBC calls, so this class still runs them on worker
+ * threads, but it is shaped around the DAO's connection pool:
+ * <ul>
+ *   <li>It owns one worker per pooled connection, so a worker never blocks waiting for a lease.</li>
+ *   <li>Inserts submitted while an earlier insert is running are pipelined: they are queued and
+ *       written together by a single {@link TasksDAODerby#addTasks(ITask...)} call, i.e. one
+ *       transaction instead of one commit per task.</li>
+ * </ul>
+ * All tasks written by one pipelined batch succeed or fail together.
+ */
+public class AsyncTasksDAODerby extends AsyncTasksDAOAdapter implements AutoCloseable {
+
+    // Largest number of queued inserts written by one addTasks() call, i.e. one transaction
+    private static final int MAX_PIPELINED_INSERTS = 500;
+
+    /**
+     * A queued insert and the future reporting its outcome.
+     */
+    private record PendingInsert(ITask task, CompletableFuture<ITask> result) {}
+
+    private final TasksDAODerby dao;
+    private final ExecutorService ownedExecutor;
+    private final Queue<PendingInsert> pendingInserts = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean insertDrainScheduled = new AtomicBoolean();
+    private final AtomicLong insertBatches = new AtomicLong();
+    private final AtomicLong pipelinedInserts = new AtomicLong();
+
+    /**
+     * Creates an async DAO with one daemon worker thread per connection of the DAO's pool.
+     *
+     * @param dao the blocking Derby DAO
+     */
+    public AsyncTasksDAODerby(TasksDAODerby dao) {
+        this(dao, newWorkerPool(dao.getConnectionPool().getMaxSize()));
+    }
+
+    private AsyncTasksDAODerby(TasksDAODerby dao, ExecutorService workers) {
+        super(dao, workers);
+        this.dao = dao;
+        this.ownedExecutor = workers;
+    }
+
+    /**
+     * Creates the fixed pool of daemon workers, so pending calls never keep the JVM alive.
+     */
+    private static ExecutorService newWorkerPool(int size) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, "tasks-dao-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the task for insertion. Tasks queued while an insert is in flight are written
+     * together in one transaction by the next batch.
+     *
+     * @param task the task to add; must not be {@code null}
+     * @return a future completed with the task, carrying its generated id
+     */
+    @Override
+    public CompletableFuture<ITask> addTask(ITask task) {
+        CompletableFuture<ITask> result = new CompletableFuture<>();
+        pendingInserts.add(new PendingInsert(task, result));
+        scheduleInsertDrain();
+        return result;
+    }
+
+    /**
+     * Schedules a drain of the insert queue unless one is already scheduled or running.
+     */
+    private void scheduleInsertDrain() {
+        if (!insertDrainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getExecutor().execute(this::drainInserts);
+        } catch (RuntimeException e) {
+            insertDrainScheduled.set(false);
+            PendingInsert pending;
+            while ((pending = pendingInserts.poll()) != null) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Writes up to {@value #MAX_PIPELINED_INSERTS} queued inserts in one batch, then reschedules
+     * itself if more inserts arrived meanwhile.
+     */
+    private void drainInserts() {
+        try {
+            List<PendingInsert> batch = new ArrayList<>();
+            PendingInsert pending;
+            while (batch.size() < MAX_PIPELINED_INSERTS && (pending = pendingInserts.poll()) != null) {
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            ITask[] tasks = new ITask[batch.size()];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = batch.get(i).task();
+            }
+            try {
+                dao.addTasks(tasks);
+                insertBatches.incrementAndGet();
+                pipelinedInserts.addAndGet(tasks.length);
+                for (PendingInsert done : batch) {
+                    done.result().complete(done.task());
+                }
+            } catch (TasksDAOException | RuntimeException e) {
+                for (PendingInsert failed : batch) {
+                    failed.result().completeExceptionally(e);
+                }
+            }
+        } finally {
+            insertDrainScheduled.set(false);
+            if (!pendingInserts.isEmpty()) {
+                scheduleInsertDrain();
+            }
+        }
+    }
+
+    /**
+     * @return the number of batches written for {@link #addTask(ITask)} calls
+     */
+    public long getInsertBatchCount() {return insertBatches.get();}
+
+    /**
+     * @return the number of tasks written through {@link #addTask(ITask)}
+     */
+    public long getPipelinedInsertCount() {return pipelinedInserts.get();}
+
+    /**
+     * Stops accepting calls and waits briefly for submitted calls to finish.
+     * The underlying DAO and its connections stay open.
+     */
+    @Override
+    public void close() {
+        ownedExecutor.shutdown();
+        try {
+            if (!ownedExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Async DAO workers did not finish in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,772 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskState;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An {@code ITasksDAO} that keeps each task field in its own memory-mapped column file, so
+ * scans, filters and counts read only the columns they need, straight from the page cache.
+ * <p>
+ * Columns, one row per task, in the given directory:
+ * <pre>
+ *   ids-&lt;generation&gt;.col           int id; ids only grow, so rows are sorted by id
+ *   states-&lt;generation&gt;.col        byte state ordinal, -1 for a deleted row
+ *   titles-&lt;generation&gt;.off        int heap offset, int length (-1 for null) of the title
+ *   titles-&lt;generation&gt;.heap       UTF-8 bytes of the titles
+ *   descriptions-&lt;generation&gt;.off  / descriptions-&lt;generation&gt;.heap   the same for the descriptions
+ *   columns.meta                   int magic ('TCOL'), int format version, long generation,
+ *                                  int rows, int next id, int title heap bytes, int description heap bytes
+ * </pre>
+ * Adds append a row, deletes mark the row's state, and updates overwrite the state and append
+ * the new strings to the heaps. Once more than half of the rows or heap bytes are dead, the live
+ * rows are copied into the next generation's columns and {@code columns.meta} is switched to it;
+ * see {@link #compact()}.
+ * <p>
+ * Writes reach the page cache at once but are only made durable by {@link #flush()} and
+ * {@link #close()}, which force the columns and then replace {@code columns.meta}. After a crash,
+ * rows added since the last flush are gone. Updates and deletes change flushed rows in place, so
+ * they may survive: a deleted row stays deleted, but a row updated since the last flush may point
+ * past the heap bytes {@code columns.meta} records. Opening checks every live row and rejects such
+ * columns as corrupt rather than serve strings that later adds would overwrite.
+ * <p>
+ * It behaves like {@link TasksDAODerby}: ids are generated in increasing order and never reused,
+ * {@link #getTask(int)} throws for a missing id, {@link #updateTask(ITask)} of a missing id does
+ * nothing, {@link #deleteTask(int)} of a missing id throws and batch deletes skip missing ids.
+ *
+ * <ul>
+ *   <li>lock: Reads share it; writes, flushes and compactions take it exclusively.</li>
+ *   <li>rows / liveRows: Rows in the columns, and those not deleted.</li>
+ *   <li>deadHeapBytes: Heap bytes of strings that were replaced or belong to deleted rows.</li>
+ * </ul>
+ */
+public class ColumnarTasksDAO implements ITasksDAO, AutoCloseable {
+
+    private static final int MAGIC = 0x54434F4C;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte DELETED = -1;
+    private static final int INITIAL_ROWS = 4096;
+    private static final int INITIAL_HEAP_BYTES = 1 << 16;
+    // Dead rows and heap bytes tolerated before compaction, however small the live data is
+    private static final int COMPACTION_MIN_DEAD_ROWS = 1024;
+    private static final int COMPACTION_MIN_DEAD_HEAP_BYTES = 1 << 20;
+    private static final String META_FILE = "columns.meta";
+    private static final int META_BYTES = 6 * Integer.BYTES + Long.BYTES;
+    private static final Pattern COLUMN_FILE = Pattern.compile("(ids|states|titles|descriptions)-(\\d+)\\.(col|off|heap)");
+    private static final ITask[] NO_TASKS = new ITask[0];
+
+    /**
+     * A memory-mapped file that is remapped at twice its size when it runs out of room.
+     */
+    private static final class Column {
+        private final Path path;
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+
+        Column(Path path, long initialBytes) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), initialBytes));
+        }
+
+        MappedByteBuffer ensureCapacity(long bytes) throws IOException {
+            if (bytes > buffer.capacity()) {
+                if (bytes > Integer.MAX_VALUE) {
+                    throw new IOException("Column file full: " + path);
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(Integer.MAX_VALUE, Math.max(bytes, 2L * buffer.capacity())));
+            }
+            return buffer;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * A nullable string column: an offsets column pointing into a heap column of UTF-8 bytes.
+     */
+    private static final class StringColumn {
+        private final Column offsets;
+        private final Column heap;
+        private int heapBytes;
+
+        StringColumn(Path directory, String name, long generation, int heapBytes) throws IOException {
+            this.offsets = new Column(directory.resolve(name + "-" + generation + ".off"), 2L * Integer.BYTES * INITIAL_ROWS);
+            this.heap = new Column(directory.resolve(name + "-" + generation + ".heap"), INITIAL_HEAP_BYTES);
+            this.heapBytes = heapBytes;
+        }
+
+        String get(int row) {
+            int length = length(row);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            heap.buffer.get(offsets.buffer.getInt(row * 2 * Integer.BYTES), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int length(int row) {
+            return offsets.buffer.getInt(row * 2 * Integer.BYTES + Integer.BYTES);
+        }
+
+        /**
+         * @return whether the string of {@code row} is null or lies within the recorded heap bytes
+         */
+        boolean isValid(int row) {
+            int length = length(row);
+            long offset = offsets.buffer.getInt(row * 2 * Integer.BYTES);
+            return length == -1 || (length >= 0 && offset >= 0 && offset + length <= heapBytes);
+        }
+
+        void set(int row, String value) throws IOException {
+            MappedByteBuffer rowOffsets = offsets.ensureCapacity((row + 1L) * 2 * Integer.BYTES);
+            if (value == null) {
+                rowOffsets.putInt(row * 2 * Integer.BYTES, 0).putInt(row * 2 * Integer.BYTES + Integer.BYTES, -1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            heap.ensureCapacity((long) heapBytes + bytes.length).put(heapBytes, bytes);
+            rowOffsets.putInt(row * 2 * Integer.BYTES, heapBytes).putInt(row * 2 * Integer.BYTES + Integer.BYTES, bytes.length);
+            heapBytes += bytes.length;
+        }
+
+        void force() {
+            offsets.force();
+            heap.force();
+        }
+
+        void close() throws IOException {
+            offsets.close();
+            heap.close();
+        }
+    }
+
+    private final Path directory;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long generation;
+    private Column ids;
+    private Column states;
+    private StringColumn titles;
+    private StringColumn descriptions;
+    private int rows;
+    private int liveRows;
+    private int nextId;
+    private long deadHeapBytes;
+    private boolean closed;
+
+    /**
+     * Opens the columns in {@code directory}, creating both if needed.
+     *
+     * @param directory the directory holding the column files
+     * @throws TasksDAOException If the columns cannot be created or are corrupt.
+     */
+    public ColumnarTasksDAO(Path directory) throws TasksDAOException {
+        this.directory = directory;
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            throw new TasksDAOException("Error opening task columns in " + directory, e);
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        Path meta = directory.resolve(META_FILE);
+        int titleHeapBytes = 0;
+        int descriptionHeapBytes = 0;
+        if (Files.exists(meta)) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(meta));
+            if (in.remaining() != META_BYTES || in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a task columns file: " + meta);
+            }
+            generation = in.getLong();
+            rows = in.getInt();
+            nextId = in.getInt();
+            titleHeapBytes = in.getInt();
+            descriptionHeapBytes = in.getInt();
+        } else {
+            generation = 1;
+            rows = 0;
+            nextId = 1;
+        }
+        deleteColumnFiles(generation, false);
+        openColumns(generation, titleHeapBytes, descriptionHeapBytes);
+        if (ids.buffer.capacity() < (long) rows * Integer.BYTES || states.buffer.capacity() < rows
+                || titles.offsets.buffer.capacity() < 2L * Integer.BYTES * rows
+                || descriptions.offsets.buffer.capacity() < 2L * Integer.BYTES * rows
+                || titles.heap.buffer.capacity() < titleHeapBytes
+                || descriptions.heap.buffer.capacity() < descriptionHeapBytes) {
+            throw new IOException("Task columns shorter than " + meta + " says");
+        }
+        long liveHeapBytes = 0;
+        for (int row = 0; row < rows; row++) {
+            byte state = states.buffer.get(row);
+            if (state != DELETED) {
+                // A row updated after the last flush may point at strings that were never flushed
+                if (state < 0 || state >= TaskStateFactory.count() || !titles.isValid(row) || !descriptions.isValid(row)) {
+                    throw new IOException("Task columns row " + row + " is corrupt: it was changed after the last flush");
+                }
+                liveRows++;
+                liveHeapBytes += Math.max(0, titles.length(row)) + Math.max(0, descriptions.length(row));
+            }
+        }
+        deadHeapBytes = titleHeapBytes + (long) descriptionHeapBytes - liveHeapBytes;
+        if (!Files.exists(meta)) {
+            writeMeta();
+        }
+    }
+
+    private void openColumns(long generation, int titleHeapBytes, int descriptionHeapBytes) throws IOException {
+        ids = new Column(directory.resolve("ids-" + generation + ".col"), (long) Integer.BYTES * INITIAL_ROWS);
+        states = new Column(directory.resolve("states-" + generation + ".col"), INITIAL_ROWS);
+        titles = new StringColumn(directory, "titles", generation, titleHeapBytes);
+        descriptions = new StringColumn(directory, "descriptions", generation, descriptionHeapBytes);
+    }
+
+    /**
+     * Deletes the column files of every generation except {@code keep}, or only of {@code keep}
+     * when {@code onlyKeep} is set.
+     */
+    private void deleteColumnFiles(long keep, boolean onlyKeep) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Matcher matcher = COLUMN_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && (Long.parseLong(matcher.group(2)) == keep) == onlyKeep) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- reads
+
+    /**
+     * Retrieves all tasks, scanning the state column for live rows.
+     *
+     * @return {@code ITask[]} An array of all tasks, ordered by id.
+     * @throws TasksDAOException If the columns are closed.
+     */
+    @Override
+    public ITask[] getTasks() throws TasksDAOException {
+        return readRows(0, Integer.MAX_VALUE, -1);
+    }
+
+    /**
+     * Retrieves one page of tasks after the given id, found by binary search in the id column.
+     *
+     * @param afterId Only tasks with an id greater than this value are returned.
+     * @param limit Maximum number of tasks to return.
+     * @return {@code ITask[]} The page of tasks ordered by id.
+     * @throws TasksDAOException If the columns are closed.
+     */
+    @Override
+    public ITask[] getTasksPage(int afterId, int limit) throws TasksDAOException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int row = search(afterId);
+            return readRows(row >= 0 ? row + 1 : -row - 1, limit, -1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the tasks in the given state, reading the other columns only for matching rows.
+     *
+     * @param state the state to filter by
+     * @return the tasks in {@code state}, ordered by id
+     * @throws TasksDAOException If the columns are closed.
+     */
+    public ITask[] getTasksByState(TaskState state) throws TasksDAOException {
+        return readRows(0, Integer.MAX_VALUE, state.getOrdinal());
+    }
+
+    /**
+     * Counts the tasks in each state, reading the state column only.
+     *
+     * @return the number of tasks indexed by {@link TaskState#getOrdinal()}
+     * @throws TasksDAOException If the columns are closed.
+     */
+    public int[] countByState() throws TasksDAOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int[] counts = new int[TaskStateFactory.count()];
+            MappedByteBuffer stateColumn = states.buffer;
+            for (int row = 0; row < rows; row++) {
+                byte ordinal = stateColumn.get(row);
+                if (ordinal != DELETED) {
+                    counts[ordinal]++;
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the tasks and finds the highest id from the state and id columns.
+     *
+     * @return the summary of the live tasks
+     * @throws TasksDAOException If the columns are closed.
+     */
+    @Override
+    public TasksSummary getSummary() throws TasksDAOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int row = rows - 1;
+            while (row >= 0 && states.buffer.get(row) == DELETED) {
+                row--;
+            }
+            return new TasksSummary(liveRows, row < 0 ? 0 : ids.buffer.getInt(row * Integer.BYTES));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a task with the given id.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id.
+     * @throws TasksDAOException If the columns are closed, or no task has the given id (see
+     * {@link #findTask(int)} for a lookup that does not throw).
+     */
+    @Override
+    public ITask getTask(int id) throws TasksDAOException {
+        ITask task = findTask(id);
+        if (task == null) {
+            throw new TasksDAOException("No task with id " + id);
+        }
+        return task;
+    }
+
+    /**
+     * Retrieves a task with the given id, found by binary search in the id column.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id, or null if the task does not exist.
+     * @throws TasksDAOException If the columns are closed.
+     */
+    @Override
+    public ITask findTask(int id) throws TasksDAOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int row = liveRow(id);
+            return row < 0 ? null : readRow(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads up to {@code limit} live rows from {@code fromRow} on, in state {@code ordinal} or in
+     * any state when it is negative.
+     */
+    private ITask[] readRows(int fromRow, int limit, int ordinal) throws TasksDAOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            if (liveRows == 0) {
+                return NO_TASKS;
+            }
+            List<ITask> tasks = new ArrayList<>(Math.min(limit, liveRows));
+            MappedByteBuffer stateColumn = states.buffer;
+            for (int row = fromRow; row < rows && tasks.size() < limit; row++) {
+                byte state = stateColumn.get(row);
+                if (state != DELETED && (ordinal < 0 || state == ordinal)) {
+                    tasks.add(readRow(row));
+                }
+            }
+            return tasks.toArray(NO_TASKS);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ITask readRow(int row) {
+        return new Task(ids.buffer.getInt(row * Integer.BYTES), titles.get(row), descriptions.get(row),
+                TaskStateFactory.fromOrdinal(states.buffer.get(row)));
+    }
+
+    /**
+     * @return the row of {@code id}, or {@code -(insertion row) - 1} if no row has it
+     */
+    private int search(int id) {
+        MappedByteBuffer idColumn = ids.buffer;
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = idColumn.getInt(middle * Integer.BYTES);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * @return the row of the live task {@code id}, or -1
+     */
+    private int liveRow(int id) {
+        int row = search(id);
+        return row >= 0 && states.buffer.get(row) != DELETED ? row : -1;
+    }
+
+    // ---------------------------------------------------------------- writes
+
+    /**
+     * Appends a row for a task under a newly generated id, which is also set on {@code task}.
+     *
+     * @param task The task to add.
+     * @throws TasksDAOException If the columns cannot grow.
+     */
+    @Override
+    public void addTask(ITask task) throws TasksDAOException {
+        addTasks(task);
+    }
+
+    /**
+     * Appends a row for each task under newly generated ids.
+     *
+     * @param tasks The tasks to add.
+     * @return The generated ids, in the same order as {@code tasks}.
+     * @throws TasksDAOException If the columns cannot grow; the tasks added before the failure stay.
+     */
+    @Override
+    public int[] addTasks(ITask... tasks) throws TasksDAOException {
+        int[] generated = new int[tasks.length];
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            for (int i = 0; i < tasks.length; i++) {
+                int row = rows;
+                int id = nextId;
+                titles.set(row, tasks[i].getTitle());
+                descriptions.set(row, tasks[i].getDescription());
+                states.ensureCapacity(row + 1L).put(row, (byte) tasks[i].getState().getOrdinal());
+                ids.ensureCapacity((row + 1L) * Integer.BYTES).putInt(row * Integer.BYTES, id);
+                rows++;
+                liveRows++;
+                nextId++;
+                ((Task) tasks[i]).setId(id);
+                generated[i] = id;
+            }
+            return generated;
+        } catch (IOException e) {
+            throw new TasksDAOException("Error adding task to task columns", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Overwrites the state of the task's row and appends its strings to the heaps. A task that
+     * does not exist is not added.
+     *
+     * @param task The task to update.
+     * @throws TasksDAOException If the heaps cannot grow.
+     */
+    @Override
+    public void updateTask(ITask task) throws TasksDAOException {
+        updateTasks(task);
+    }
+
+    /**
+     * Updates several tasks under one lock. Tasks that do not exist are skipped.
+     *
+     * @param tasks The tasks to update.
+     * @throws TasksDAOException If the heaps cannot grow.
+     */
+    @Override
+    public void updateTasks(ITask... tasks) throws TasksDAOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            for (ITask task : tasks) {
+                int row = liveRow(task.getId());
+                if (row < 0) {
+                    continue;
+                }
+                deadHeapBytes += Math.max(0, titles.length(row)) + Math.max(0, descriptions.length(row));
+                titles.set(row, task.getTitle());
+                descriptions.set(row, task.getDescription());
+                states.buffer.put(row, (byte) task.getState().getOrdinal());
+            }
+            compactIfDue();
+        } catch (IOException e) {
+            throw new TasksDAOException("Error updating task columns", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes every task by emptying the columns. Their ids are not reused.
+     *
+     * @throws TasksDAOException If the columns are closed.
+     */
+    @Override
+    public void deleteTasks() throws TasksDAOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            rows = 0;
+            liveRows = 0;
+            titles.heapBytes = 0;
+            descriptions.heapBytes = 0;
+            deadHeapBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the row of the task with the given id as deleted.
+     *
+     * @param id The id of the task to delete.
+     * @throws TasksDAOException If no task has the given id.
+     */
+    @Override
+    public void deleteTask(int id) throws TasksDAOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (liveRow(id) < 0) {
+                throw new TasksDAOException("Deleting task failed, no task with id " + id);
+            }
+            deleteTasks(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the rows of several tasks as deleted. Ids that do not exist are skipped.
+     *
+     * @param ids The ids of the tasks to delete.
+     * @throws TasksDAOException If a due compaction fails.
+     */
+    @Override
+    public void deleteTasks(int... ids) throws TasksDAOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            for (int id : ids) {
+                int row = liveRow(id);
+                if (row >= 0) {
+                    deadHeapBytes += Math.max(0, titles.length(row)) + Math.max(0, descriptions.length(row));
+                    states.buffer.put(row, DELETED);
+                    liveRows--;
+                }
+            }
+            compactIfDue();
+        } catch (IOException e) {
+            throw new TasksDAOException("Error deleting from task columns", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- compaction and durability
+
+    private void compactIfDue() throws IOException {
+        int deadRows = rows - liveRows;
+        long liveHeapBytes = titles.heapBytes + (long) descriptions.heapBytes - deadHeapBytes;
+        if ((deadRows >= COMPACTION_MIN_DEAD_ROWS && deadRows > liveRows)
+                || (deadHeapBytes >= COMPACTION_MIN_DEAD_HEAP_BYTES && deadHeapBytes > liveHeapBytes)) {
+            compactColumns();
+        }
+    }
+
+    /**
+     * Copies the live rows into the next generation's columns and switches to them, dropping
+     * deleted rows and replaced strings. Runs automatically when most rows or heap bytes are dead.
+     *
+     * @throws TasksDAOException If the new columns cannot be written; the old ones stay in use.
+     */
+    public void compact() throws TasksDAOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            compactColumns();
+        } catch (IOException e) {
+            throw new TasksDAOException("Error compacting task columns", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void compactColumns() throws IOException {
+        long oldGeneration = generation;
+        Column oldIds = ids;
+        Column oldStates = states;
+        StringColumn oldTitles = titles;
+        StringColumn oldDescriptions = descriptions;
+        int oldRows = rows;
+        deleteColumnFiles(oldGeneration + 1, true);
+        try {
+            openColumns(oldGeneration + 1, 0, 0);
+            int row = 0;
+            for (int oldRow = 0; oldRow < oldRows; oldRow++) {
+                byte state = oldStates.buffer.get(oldRow);
+                if (state == DELETED) {
+                    continue;
+                }
+                titles.set(row, oldTitles.get(oldRow));
+                descriptions.set(row, oldDescriptions.get(oldRow));
+                states.ensureCapacity(row + 1L).put(row, state);
+                ids.ensureCapacity((row + 1L) * Integer.BYTES).putInt(row * Integer.BYTES, oldIds.buffer.getInt(oldRow * Integer.BYTES));
+                row++;
+            }
+            generation = oldGeneration + 1;
+            rows = row;
+            forceColumns();
+            writeMeta();
+        } catch (IOException | RuntimeException e) {
+            //openColumns may have failed halfway, leaving some old columns in place
+            if (ids != oldIds) {
+                ids.close();
+            }
+            if (states != oldStates) {
+                states.close();
+            }
+            if (titles != oldTitles) {
+                titles.close();
+            }
+            if (descriptions != oldDescriptions) {
+                descriptions.close();
+            }
+            generation = oldGeneration;
+            rows = oldRows;
+            ids = oldIds;
+            states = oldStates;
+            titles = oldTitles;
+            descriptions = oldDescriptions;
+            throw e;
+        }
+        deadHeapBytes = 0;
+        oldIds.close();
+        oldStates.close();
+        oldTitles.close();
+        oldDescriptions.close();
+        deleteColumnFiles(generation, false);
+    }
+
+    /**
+     * Forces every column to disk and then records the row count and heap sizes in
+     * {@code columns.meta}, so a later open sees every write made before this call.
+     *
+     * @throws TasksDAOException If the columns cannot be written.
+     */
+    public void flush() throws TasksDAOException {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            forceColumns();
+            writeMeta();
+        } catch (IOException e) {
+            throw new TasksDAOException("Error flushing task columns", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void forceColumns() {
+        ids.force();
+        states.force();
+        titles.force();
+        descriptions.force();
+    }
+
+    /**
+     * Replaces {@code columns.meta} atomically.
+     */
+    private void writeMeta() throws IOException {
+        ByteBuffer meta = ByteBuffer.allocate(META_BYTES)
+                .putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation).putInt(rows).putInt(nextId)
+                .putInt(titles.heapBytes).putInt(descriptions.heapBytes);
+        Path temporary = directory.resolve(META_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            meta.flip();
+            while (meta.hasRemaining()) {
+                channel.write(meta);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(META_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Flushes and closes the columns.
+     *
+     * @throws TasksDAOException If the columns cannot be written.
+     */
+    @Override
+    public void close() throws TasksDAOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            forceColumns();
+            writeMeta();
+            closeColumns();
+            closed = true;
+        } catch (IOException e) {
+            throw new TasksDAOException("Error closing task columns", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void closeColumns() throws IOException {
+        ids.close();
+        states.close();
+        titles.close();
+        descriptions.close();
+    }
+
+    private void ensureOpen() throws TasksDAOException {
+        if (closed) {
+            throw new TasksDAOException("Task columns are closed");
+        }
+    }
+}
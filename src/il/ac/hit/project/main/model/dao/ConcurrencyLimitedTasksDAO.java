@@ -0,0 +1,226 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A decorator that caps how many calls may run against the underlying {@link ITasksDAO}
+ * at the same time.
+ * <p>
+ * Callers that are cheap to create, such as virtual threads, can otherwise pile up on the
+ * data store without bound. Here, calls beyond the limit wait (in arrival order) for a
+ * running call to finish. Setting the limit to the size of the DAO's connection pool means
+ * waiting happens here rather than inside the pool. In front of a caching
+ * {@link TasksDAOProxy}, place it between the proxy and its DAO (see
+ * {@link TasksDAOProxy#limitConcurrency(int)}), so calls answered from the cache never wait.
+ * A stream from {@link #streamTasks()} counts as a running call until it is closed.
+ *
+ * <ul>
+ *   <li>tasksDAO: The ITasksDAO instance calls are forwarded to.</li>
+ *   <li>permits: One permit per call allowed to run concurrently.</li>
+ * </ul>
+ */
+public class ConcurrencyLimitedTasksDAO implements ITasksDAO {
+
+    /**
+     * A DAO call producing a result.
+     */
+    @FunctionalInterface
+    private interface DAOCall<T> {
+        T call() throws TasksDAOException;
+    }
+
+    private final ITasksDAO tasksDAO;
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong waitCount = new AtomicLong();
+
+    /**
+     * @param tasksDAO the DAO to protect
+     * @param maxConcurrentCalls the maximum number of calls running at once; must be positive
+     */
+    public ConcurrencyLimitedTasksDAO(ITasksDAO tasksDAO, int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrentCalls);
+        }
+        this.tasksDAO = tasksDAO;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Waits for a permit, counting calls that could not start immediately.
+     */
+    private void acquire() throws TasksDAOException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        waitCount.incrementAndGet();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TasksDAOException("Interrupted while waiting to access the data store", e);
+        }
+    }
+
+    private void enter() {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    }
+
+    private void exit() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * Runs one call while holding a permit.
+     */
+    private <T> T limit(DAOCall<T> call) throws TasksDAOException {
+        acquire();
+        enter();
+        try {
+            return call.call();
+        } finally {
+            exit();
+        }
+    }
+
+    @Override
+    public ITask[] getTasks() throws TasksDAOException {
+        return limit(tasksDAO::getTasks);
+    }
+
+    /**
+     * Passes the underlying stream through, so rows are still read lazily, holding a permit
+     * from opening the stream until it is closed: an open cursor uses the data store like a
+     * running call. The stream must be closed, or its permit is never returned.
+     */
+    @Override
+    public Stream<ITask> streamTasks() throws TasksDAOException {
+        acquire();
+        enter();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                exit();
+            }
+        };
+        try {
+            return tasksDAO.streamTasks().onClose(release);
+        } catch (TasksDAOException | RuntimeException | Error e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    @Override
+    public ITask[] getTasksPage(int afterId, int limit) throws TasksDAOException {
+        return limit(() -> tasksDAO.getTasksPage(afterId, limit));
+    }
+
+    @Override
+    public TasksSummary getSummary() throws TasksDAOException {
+        return limit(tasksDAO::getSummary);
+    }
+
+    @Override
+    public TaskChanges getChangesSince(long version) throws TasksDAOException {
+        return limit(() -> tasksDAO.getChangesSince(version));
+    }
+
+    @Override
+    public ITask getTask(int id) throws TasksDAOException {
+        return limit(() -> tasksDAO.getTask(id));
+    }
+
+    @Override
+    public ITask findTask(int id) throws TasksDAOException {
+        return limit(() -> tasksDAO.findTask(id));
+    }
+
+    @Override
+    public void addTask(ITask task) throws TasksDAOException {
+        limit(() -> {
+            tasksDAO.addTask(task);
+            return null;
+        });
+    }
+
+    @Override
+    public int[] addTasks(ITask... tasks) throws TasksDAOException {
+        return limit(() -> tasksDAO.addTasks(tasks));
+    }
+
+    @Override
+    public void updateTask(ITask task) throws TasksDAOException {
+        limit(() -> {
+            tasksDAO.updateTask(task);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateTasks(ITask... tasks) throws TasksDAOException {
+        limit(() -> {
+            tasksDAO.updateTasks(tasks);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTasks() throws TasksDAOException {
+        limit(() -> {
+            tasksDAO.deleteTasks();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTask(int id) throws TasksDAOException {
+        limit(() -> {
+            tasksDAO.deleteTask(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTasks(int... ids) throws TasksDAOException {
+        limit(() -> {
+            tasksDAO.deleteTasks(ids);
+            return null;
+        });
+    }
+
+    /**
+     * @return the protected DAO
+     */
+    public ITasksDAO getDelegate() {return tasksDAO;}
+
+    /**
+     * @return the maximum number of calls running at once
+     */
+    public int getMaxConcurrentCalls() {return maxConcurrentCalls;}
+
+    /**
+     * @return the number of calls currently running
+     */
+    public int getInFlight() {return inFlight.get();}
+
+    /**
+     * @return the highest number of calls that ran at the same time
+     */
+    public int getPeakInFlight() {return peakInFlight.get();}
+
+    /**
+     * @return the number of calls that had to wait for a running call to finish
+     */
+    public long getWaitCount() {return waitCount.get();}
+}
@@ -0,0 +1,464 @@
+package il.ac.hit.project.main.model.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A small bounded pool of JDBC connections, so concurrent DAO calls each run on their
+ * own connection instead of being serialized on a shared one.
+ * <p>
+ * Leasing is per thread: while a thread holds a lease, further {@link #lease()} calls
+ * from the same thread return the same connection (with a nested hold count), so a DAO
+ * method may call another one without needing a second connection. A lease must be
+ * closed exactly once per {@code lease()} call; the connection returns to the pool when
+ * the outermost lease is closed.
+ * <p>
+ * Connections idle for longer than the validation interval are checked with a validation
+ * query before being handed out, and replaced when the check fails.
+ *
+ * <ul>
+ *   <li>factory: Opens new connections; {@code null} for a pool around one fixed connection.</li>
+ *   <li>maxSize: Upper bound on the number of open connections.</li>
+ *   <li>idle: Connections available for leasing, most recently returned first.</li>
+ *   <li>leasedByThread: The connection currently held by each leasing thread.</li>
+ * </ul>
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection for the pool.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Cheapest statement Derby accepts; run on connections that were idle for a while
+    public static final String VALIDATION_QUERY = "VALUES 1";
+    public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = 30_000;
+    public static final long DEFAULT_VALIDATION_INTERVAL_MILLIS = 30_000;
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long leaseTimeoutMillis;
+    private final long validationIntervalMillis;
+
+    private final Object lock = new Object();
+    private final Deque<Lease> idle = new ArrayDeque<>();
+    private final Map<Thread, Lease> leasedByThread = new HashMap<>();
+    private int openCount;
+    private boolean closed;
+
+    // Metrics, guarded by lock
+    private long leaseCount;
+    private long reentrantLeaseCount;
+    private long waitCount;
+    private long totalWaitNanos;
+    private long timeoutCount;
+    private long createdCount;
+    private long validationFailureCount;
+    private int peakActiveCount;
+
+    /**
+     * Creates an empty pool; connections are opened lazily, up to {@code maxSize}.
+     *
+     * @param factory opens new connections
+     * @param maxSize maximum number of open connections; must be positive
+     * @param leaseTimeoutMillis how long {@link #lease()} waits for a free connection
+     * @param validationIntervalMillis idle time after which a connection is validated before reuse
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long leaseTimeoutMillis, long validationIntervalMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    /**
+     * Creates an empty pool with the default lease timeout and validation interval.
+     *
+     * @param factory opens new connections
+     * @param maxSize maximum number of open connections; must be positive
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize) {
+        this(factory, maxSize, DEFAULT_LEASE_TIMEOUT_MILLIS, DEFAULT_VALIDATION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Wraps a single caller-provided connection. Leases are exclusive, so concurrent callers
+     * take turns on it. The connection is never validated, since it could not be replaced,
+     * and closing the pool closes it.
+     *
+     * @param connection the connection to lease out
+     * @return a pool of size one around {@code connection}
+     */
+    public static ConnectionPool of(Connection connection) {
+        ConnectionPool pool = new ConnectionPool(null, 1);
+        synchronized (pool.lock) {
+            pool.idle.push(pool.new Lease(connection));
+            pool.openCount = 1;
+        }
+        return pool;
+    }
+
+    /**
+     * Leases a connection for the calling thread, waiting up to the lease timeout when every
+     * connection is in use. A thread that already holds a lease gets the same connection again.
+     *
+     * @return the lease; close it to give the connection back
+     * @throws SQLTransientConnectionException if no connection became free in time
+     * @throws SQLException if the pool is closed or a new connection cannot be opened
+     */
+    public Lease lease() throws SQLException {
+        Thread current = Thread.currentThread();
+        Lease lease;
+        boolean mustCreate = false;
+        synchronized (lock) {
+            if (closed) {
+                throw new SQLException("Connection pool is closed");
+            }
+            lease = leasedByThread.get(current);
+            if (lease != null) {
+                lease.holds++;
+                leaseCount++;
+                reentrantLeaseCount++;
+                return lease;
+            }
+            if (idle.isEmpty() && openCount >= maxSize) {
+                waitForIdle();
+            }
+            if (!idle.isEmpty()) {
+                lease = idle.pop();
+            } else {
+                //Reserve the slot now, open the connection outside the lock
+                openCount++;
+                mustCreate = true;
+            }
+        }
+        if (mustCreate) {
+            lease = open();
+        } else if (factory != null && System.currentTimeMillis() - lease.returnedAt > validationIntervalMillis
+                && !isValid(lease)) {
+            lease = replace(lease);
+        }
+        synchronized (lock) {
+            lease.owner = current;
+            lease.holds = 1;
+            leasedByThread.put(current, lease);
+            leaseCount++;
+            peakActiveCount = Math.max(peakActiveCount, leasedByThread.size());
+        }
+        return lease;
+    }
+
+    /**
+     * Waits until a connection is returned or the lease timeout expires. Must hold {@code lock}.
+     */
+    private void waitForIdle() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + leaseTimeoutMillis * 1_000_000;
+        waitCount++;
+        try {
+            while (idle.isEmpty() && openCount >= maxSize && !closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeoutCount++;
+                    throw new SQLTransientConnectionException("No connection available within "
+                            + leaseTimeoutMillis + " ms (pool size " + maxSize + ")");
+                }
+                lock.wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        } finally {
+            totalWaitNanos += System.nanoTime() - start;
+        }
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    /**
+     * Opens a connection for a slot already reserved in {@code openCount}.
+     */
+    private Lease open() throws SQLException {
+        try {
+            if (factory == null) {
+                throw new SQLException("Connection pool cannot open new connections");
+            }
+            Lease lease = new Lease(factory.create());
+            synchronized (lock) {
+                createdCount++;
+            }
+            return lease;
+        } catch (SQLException | RuntimeException e) {
+            synchronized (lock) {
+                openCount--;
+                lock.notify();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Discards a connection that failed validation and opens a replacement in its slot.
+     */
+    private Lease replace(Lease broken) throws SQLException {
+        synchronized (lock) {
+            validationFailureCount++;
+        }
+        broken.discard();
+        return open();
+    }
+
+    /**
+     * Runs the validation query on a connection.
+     *
+     * @return {@code true} if the query succeeded
+     */
+    private boolean isValid(Lease lease) {
+        try (Statement statement = lease.connection.createStatement()) {
+            statement.execute(VALIDATION_QUERY);
+            return true;
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Pooled connection failed validation", e);
+            return false;
+        }
+    }
+
+    /**
+     * Gives a fully released connection back to the pool. A transaction left open by the
+     * holder is rolled back, so the next holder always starts in autocommit mode.
+     */
+    private void giveBack(Lease lease) {
+        boolean healthy = true;
+        try {
+            if (!lease.connection.getAutoCommit()) {
+                lease.connection.rollback();
+                lease.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Discarding pooled connection", e);
+            healthy = false;
+        }
+        synchronized (lock) {
+            leasedByThread.remove(lease.owner, lease);
+            lease.owner = null;
+            if (healthy && !closed) {
+                lease.returnedAt = System.currentTimeMillis();
+                idle.push(lease);
+            } else {
+                openCount--;
+            }
+            lock.notify();
+        }
+        if (!healthy || isClosed()) {
+            lease.discard();
+        }
+    }
+
+    /**
+     * @return the maximum number of open connections
+     */
+    public int getMaxSize() {return maxSize;}
+
+    /**
+     * @return the number of connections currently leased
+     */
+    public int getActiveCount() {
+        synchronized (lock) {
+            return leasedByThread.size();
+        }
+    }
+
+    /**
+     * @return the number of open connections waiting to be leased
+     */
+    public int getIdleCount() {
+        synchronized (lock) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * @return the highest number of connections leased at the same time
+     */
+    public int getPeakActiveCount() {
+        synchronized (lock) {
+            return peakActiveCount;
+        }
+    }
+
+    /**
+     * @return the number of {@link #lease()} calls that returned a lease, including nested ones
+     */
+    public long getLeaseCount() {
+        synchronized (lock) {
+            return leaseCount;
+        }
+    }
+
+    /**
+     * @return the number of leases served by a connection the calling thread already held
+     */
+    public long getReentrantLeaseCount() {
+        synchronized (lock) {
+            return reentrantLeaseCount;
+        }
+    }
+
+    /**
+     * @return the number of leases that had to wait for a connection to be returned
+     */
+    public long getWaitCount() {
+        synchronized (lock) {
+            return waitCount;
+        }
+    }
+
+    /**
+     * @return the average time spent waiting, over the leases that had to wait, in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        synchronized (lock) {
+            return waitCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / waitCount;
+        }
+    }
+
+    /**
+     * @return the number of leases that gave up after the lease timeout
+     */
+    public long getTimeoutCount() {
+        synchronized (lock) {
+            return timeoutCount;
+        }
+    }
+
+    /**
+     * @return the number of connections opened by this pool
+     */
+    public long getCreatedCount() {
+        synchronized (lock) {
+            return createdCount;
+        }
+    }
+
+    /**
+     * @return the number of connections replaced after failing the validation query
+     */
+    public long getValidationFailureCount() {
+        synchronized (lock) {
+            return validationFailureCount;
+        }
+    }
+
+    private boolean isClosed() {
+        synchronized (lock) {
+            return closed;
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out leases. Connections still leased
+     * are closed when they are given back.
+     */
+    @Override
+    public void close() {
+        List<Lease> toClose;
+        synchronized (lock) {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            openCount -= idle.size();
+            idle.clear();
+            lock.notifyAll();
+        }
+        for (Lease lease : toClose) {
+            lease.discard();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return String.format("ConnectionPool[max=%d, active=%d, idle=%d, peak=%d, leases=%d, waits=%d, " +
+                            "avgWaitMs=%.2f, timeouts=%d, created=%d, validationFailures=%d]",
+                    maxSize, leasedByThread.size(), idle.size(), peakActiveCount, leaseCount, waitCount,
+                    waitCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / waitCount,
+                    timeoutCount, createdCount, validationFailureCount);
+        }
+    }
+
+    /**
+     * A pooled connection held by one thread, together with that connection's
+     * {@link PreparedStatementCache}. Closing the lease gives the connection back.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Connection connection;
+        private final PreparedStatementCache statements;
+        // Guarded by the pool lock
+        private Thread owner;
+        private int holds;
+        private long returnedAt = System.currentTimeMillis();
+
+        private Lease(Connection connection) {
+            this.connection = connection;
+            this.statements = new PreparedStatementCache(connection);
+        }
+
+        /**
+         * @return the leased connection; must not be closed by the holder
+         */
+        public Connection connection() {return connection;}
+
+        /**
+         * @return the statement cache of the leased connection
+         */
+        public PreparedStatementCache statements() {return statements;}
+
+        /**
+         * Releases one hold on this lease; the connection returns to the pool once every
+         * nested lease of the owning thread is closed. May be called from another thread,
+         * for example when a stream is closed by a different thread than the one that opened it.
+         */
+        @Override
+        public void close() {
+            synchronized (lock) {
+                if (holds <= 0) {
+                    throw new IllegalStateException("Lease already released");
+                }
+                if (--holds > 0) {
+                    return;
+                }
+            }
+            giveBack(this);
+        }
+
+        /**
+         * Closes the cached statements and the physical connection.
+         */
+        private void discard() {
+            statements.close();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.log(Level.WARNING, "Error closing pooled connection", e);
+            }
+        }
+    }
+}
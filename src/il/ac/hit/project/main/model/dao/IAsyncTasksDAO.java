@@ -0,0 +1,85 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link ITasksDAO}.
+ * <p>
+ * Every operation returns immediately with a {@link CompletableFuture}, so callers can compose,
+ * pipeline and time out data access (for example with {@code thenCompose} or
+ * {@code orTimeout}) instead of holding a thread for each call.
+ * <ul>
+ *   <li>Futures never complete with {@code null} arrays (an empty array is used when there are no tasks).</li>
+ *   <li>Persistence failures complete the future exceptionally with a {@link TasksDAOException}.</li>
+ * </ul>
+ *
+ * @see AsyncTasksDAOAdapter
+ * @see AsyncTasksDAODerby
+ */
+public interface IAsyncTasksDAO {
+
+    /**
+     * Retrieves all tasks from the data store.
+     *
+     * @return a future completed with a non-null array containing all tasks
+     */
+    CompletableFuture<ITask[]> getTasks();
+
+    /**
+     * Retrieves one page of tasks using keyset pagination, as in {@link ITasksDAO#getTasksPage(int, int)}.
+     *
+     * @param afterId only tasks with an id strictly greater than this value are returned
+     * @param limit   maximum number of tasks to return; must be positive
+     * @return a future completed with a non-null array of at most {@code limit} tasks ordered by id
+     */
+    CompletableFuture<ITask[]> getTasksPage(int afterId, int limit);
+
+    /**
+     * Retrieves a single task by its identifier.
+     *
+     * @param id the unique identifier of the task to retrieve
+     * @return a future completed with the task
+     */
+    CompletableFuture<ITask> getTask(int id);
+
+    /**
+     * Persists a new task.
+     *
+     * @param task the task to add; must not be {@code null}
+     * @return a future completed with the task, carrying its generated id
+     */
+    CompletableFuture<ITask> addTask(ITask task);
+
+    /**
+     * Persists several new tasks in one call.
+     *
+     * @param tasks the tasks to add; must not be {@code null} nor contain {@code null}
+     * @return a future completed with the generated ids, in the same order as {@code tasks}
+     */
+    CompletableFuture<int[]> addTasks(ITask... tasks);
+
+    /**
+     * Updates an existing task in the data store.
+     *
+     * @param task the task to update; must not be {@code null}
+     * @return a future completed once the task is updated
+     */
+    CompletableFuture<Void> updateTask(ITask task);
+
+    /**
+     * Deletes all tasks from the data store.
+     *
+     * @return a future completed once every task is deleted
+     */
+    CompletableFuture<Void> deleteTasks();
+
+    /**
+     * Deletes the task with the specified identifier.
+     *
+     * @param id the unique identifier of the task to delete
+     * @return a future completed once the task is deleted
+     */
+    CompletableFuture<Void> deleteTask(int id);
+}
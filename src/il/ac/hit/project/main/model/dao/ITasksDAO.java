@@ -2,6 +2,10 @@ package il.ac.hit.project.main.model.dao;
 
 import il.ac.hit.project.main.model.task.ITask;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
 /**
  * Data-access contract for working with tasks in a persistence layer.
  * <p>
@@ -21,6 +25,75 @@ public interface ITasksDAO {
      */
     ITask[] getTasks() throws TasksDAOException;
 
+    /**
+     * Streams all tasks from the data store in ascending id order.
+     *
+     * <p>Unlike {@link #getTasks()}, implementations may read lazily from an open cursor so that
+     * callers can process very large stores in constant memory. The returned stream may hold
+     * persistence resources and must be closed, preferably with try-with-resources. Errors that
+     * happen while the stream is being consumed surface as {@link IllegalStateException}s whose
+     * cause is the underlying persistence error.</p>
+     *
+     * <p>The default implementation streams over the array returned by {@link #getTasks()}.</p>
+     *
+     * @return a sequential stream of all tasks; empty if no tasks exist
+     * @throws TasksDAOException if the stream cannot be opened due to a persistence error
+     */
+    default Stream<ITask> streamTasks() throws TasksDAOException {
+        return Arrays.stream(getTasks());
+    }
+
+    /**
+     * Retrieves one page of tasks using keyset pagination: the first {@code limit} tasks whose id
+     * is greater than {@code afterId}, in ascending id order.
+     *
+     * <p>To walk the whole store, start with {@code afterId = 0} and pass the id of the last task
+     * of each page to fetch the next one; a page shorter than {@code limit} is the last page.
+     * The default implementation slices the result of {@link #getTasks()}.</p>
+     *
+     * @param afterId only tasks with an id strictly greater than this value are returned
+     * @param limit   maximum number of tasks to return; must be positive
+     * @return a non-null array of at most {@code limit} tasks ordered by id
+     * @throws TasksDAOException if the page cannot be retrieved due to a persistence error
+     */
+    default ITask[] getTasksPage(int afterId, int limit) throws TasksDAOException {
+        return Arrays.stream(getTasks())
+                .filter(task -> task.getId() > afterId)
+                .sorted(Comparator.comparingInt(ITask::getId))
+                .limit(limit)
+                .toArray(ITask[]::new);
+    }
+
+    /**
+     * Counts the tasks and finds the highest id, e.g. to check whether a cached copy of the
+     * store is still complete without reading every task.
+     *
+     * <p>The default implementation computes the summary from {@link #getTasks()}.</p>
+     *
+     * @return the summary of the store; {@code maxId} is 0 when the store is empty
+     * @throws TasksDAOException if the summary cannot be computed due to a persistence error
+     */
+    default TasksSummary getSummary() throws TasksDAOException {
+        ITask[] tasks = getTasks();
+        return new TasksSummary(tasks.length, Arrays.stream(tasks).mapToInt(ITask::getId).max().orElse(0));
+    }
+
+    /**
+     * Reports the tasks inserted, updated or deleted since an earlier change version, by this
+     * process or any other one sharing the store, so that caches can invalidate only those tasks.
+     *
+     * <p>Pass {@link TaskChanges#UNKNOWN_VERSION} to learn the current version, and the version of
+     * each result to the next call. The default implementation returns {@code null}: the store
+     * does not track changes.</p>
+     *
+     * @param version the version of the previous result, or {@link TaskChanges#UNKNOWN_VERSION}
+     * @return the changes since {@code version}, or {@code null} if the store does not track changes
+     * @throws TasksDAOException if the changes cannot be read due to a persistence error
+     */
+    default TaskChanges getChangesSince(long version) throws TasksDAOException {
+        return null;
+    }
+
     /**
      * Retrieves a single task by its identifier.
      *
@@ -30,6 +103,22 @@ public interface ITasksDAO {
      */
     ITask getTask(int id) throws TasksDAOException;
 
+    /**
+     * Looks up a single task by its identifier, reporting a missing task with {@code null}
+     * rather than an exception.
+     *
+     * <p>Implementations whose {@link #getTask(int)} throws for missing ids should override this,
+     * so that callers probing ids (such as caches) do not pay for building an exception. The
+     * default implementation calls {@link #getTask(int)}.</p>
+     *
+     * @param id the unique identifier of the task to look up
+     * @return the task with the given id, or {@code null} if no such task exists
+     * @throws TasksDAOException if the task cannot be retrieved due to a persistence error
+     */
+    default ITask findTask(int id) throws TasksDAOException {
+        return getTask(id);
+    }
+
     /**
      * Persists a new task.
      *
@@ -65,4 +154,68 @@ public interface ITasksDAO {
      * @throws TasksDAOException if the task cannot be deleted due to a persistence error
      */
     void deleteTask(int id) throws TasksDAOException;
-}
\ No newline at end of file
+
+    /**
+     * Persists several new tasks in one call.
+     *
+     * <p>The default implementation adds the tasks one by one through {@link #addTask(ITask)};
+     * implementations backed by a database should override it to batch the writes.</p>
+     *
+     * @param tasks the tasks to add; must not be {@code null} nor contain {@code null}
+     * @return the generated ids, in the same order as {@code tasks}
+     * @throws TasksDAOException if any of the tasks cannot be added
+     */
+    default int[] addTasks(ITask... tasks) throws TasksDAOException {
+        int[] ids = new int[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            addTask(tasks[i]);
+            ids[i] = tasks[i].getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Updates several existing tasks in one call.
+     *
+     * <p>The default implementation delegates to {@link #updateTask(ITask)} for each task.</p>
+     *
+     * @param tasks the tasks to update; must not be {@code null} nor contain {@code null}
+     * @throws TasksDAOException if any of the tasks cannot be updated
+     */
+    default void updateTasks(ITask... tasks) throws TasksDAOException {
+        for (ITask task : tasks) {
+            updateTask(task);
+        }
+    }
+
+    /**
+     * Deletes the tasks with the specified identifiers in one call.
+     *
+     * <p>As with {@link #deleteTask(int)}, the operation is expected to be idempotent: ids with
+     * no matching task are skipped. The default implementation delegates to
+     * {@link #deleteTask(int)} for each id; when that fails, it asks {@link #findTask(int)}
+     * whether the task exists and skips the id if it does not.</p>
+     *
+     * @param ids the identifiers of the tasks to delete
+     * @throws TasksDAOException if the tasks cannot be deleted due to a persistence error
+     */
+    default void deleteTasks(int... ids) throws TasksDAOException {
+        for (int id : ids) {
+            try {
+                deleteTask(id);
+            } catch (TasksDAOException e) {
+                //Some implementations report a missing id as an error; only a task that is still there is one
+                ITask remaining;
+                try {
+                    remaining = findTask(id);
+                } catch (TasksDAOException probeFailure) {
+                    e.addSuppressed(probeFailure);
+                    throw e;
+                }
+                if (remaining != null) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
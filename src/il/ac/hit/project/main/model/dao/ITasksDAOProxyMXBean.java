@@ -0,0 +1,72 @@
+package il.ac.hit.project.main.model.dao;
+
+/**
+ * JMX management interface of a {@link TasksDAOProxy}.
+ * <p>
+ * Every attribute is read from one {@link il.ac.hit.project.main.model.dao.cache.CacheStats}
+ * copy and has the same meaning as the component of the same name. The proxy's log output is
+ * controlled separately, through the logger named after the proxy class (for example with the
+ * platform's {@code java.util.logging:type=Logging} MBean).
+ */
+public interface ITasksDAOProxyMXBean {
+
+    long getTaskHits();
+
+    long getTaskMisses();
+
+    long getMissingHits();
+
+    double getTaskHitRate();
+
+    long getTaskLoads();
+
+    double getAverageTaskLoadMillis();
+
+    long getTaskEvictions();
+
+    long getTaskRejections();
+
+    int getCachedTasks();
+
+    long getSnapshotHits();
+
+    long getSnapshotMisses();
+
+    double getSnapshotHitRate();
+
+    long getSnapshotLoads();
+
+    double getAverageSnapshotLoadMillis();
+
+    long getSnapshotRebuilds();
+
+    long getSnapshotRefreshes();
+
+    long getSnapshotExpirations();
+
+    long getSnapshotDrops();
+
+    int getSnapshotSize();
+
+    long getCoalescedLoads();
+
+    boolean isWriteBehindEnabled();
+
+    int getPendingWrites();
+
+    long getFlushes();
+
+    long getFlushedWrites();
+
+    long getCoalescedWrites();
+
+    long getFlushFailures();
+
+    boolean isChangePollingEnabled();
+
+    long getChangePolls();
+
+    long getChangedTasks();
+
+    long getFullInvalidations();
+}
@@ -0,0 +1,306 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.dao.cache.IntObjectMap;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * A concurrent {@code ITasksDAO} that keeps its tasks in memory only, for benchmarks and for
+ * deployments that need no persistence.
+ * <p>
+ * It behaves like {@link TasksDAODerby}: ids are generated in increasing order and never reused,
+ * {@link #getTask(int)} throws for a missing id, {@link #updateTask(ITask)} of a missing id does
+ * nothing, {@link #deleteTask(int)} of a missing id throws and batch deletes skip missing ids.
+ * Tasks are copied when stored, so changing a task object after storing it does not change the
+ * store; the tasks handed out are shared and must only be changed through {@link #updateTask(ITask)}.
+ * <p>
+ * Writes take the write lock of a {@link StampedLock}. Reads are served from an immutable
+ * id-ordered array of all tasks, built under the read lock by the first read after a write, so
+ * {@link #getTasks()} always returns a consistent point-in-time copy and repeated reads take no lock.
+ *
+ * <ul>
+ *   <li>tasks: Task id to stored task, guarded by {@code lock}.</li>
+ *   <li>ordered: Every task ordered by id, or null after a write until the next read.</li>
+ *   <li>nextId: The id generator, shared by concurrent inserts without the lock.</li>
+ * </ul>
+ */
+public class InMemoryTasksDAO implements ITasksDAO {
+
+    private static final ITask[] NO_TASKS = new ITask[0];
+
+    private final StampedLock lock = new StampedLock();
+    private final IntObjectMap<ITask> tasks = new IntObjectMap<>();
+    private volatile ITask[] ordered = NO_TASKS;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * Retrieves all tasks.
+     *
+     * @return a new array of every task, ordered by id
+     */
+    @Override
+    public ITask[] getTasks() {
+        return orderedTasks().clone();
+    }
+
+    /**
+     * Streams all tasks of the current snapshot without copying it.
+     *
+     * @return a stream of every task, ordered by id
+     */
+    @Override
+    public Stream<ITask> streamTasks() {
+        return Arrays.stream(orderedTasks());
+    }
+
+    /**
+     * Retrieves one page of tasks after the given id, found by binary search in the snapshot.
+     *
+     * @param afterId Only tasks with an id greater than this value are returned.
+     * @param limit Maximum number of tasks to return.
+     * @return the page of tasks ordered by id
+     */
+    @Override
+    public ITask[] getTasksPage(int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        ITask[] current = orderedTasks();
+        int index = indexOf(current, afterId);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        return Arrays.copyOfRange(current, from, (int) Math.min(current.length, (long) from + limit));
+    }
+
+    /**
+     * @return the number of tasks and the highest id, read from the snapshot
+     */
+    @Override
+    public TasksSummary getSummary() {
+        ITask[] current = orderedTasks();
+        return new TasksSummary(current.length, current.length == 0 ? 0 : current[current.length - 1].getId());
+    }
+
+    /**
+     * Retrieves the task with the given id.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id.
+     * @throws TasksDAOException If no task has the given id (see {@link #findTask(int)} for a
+     * lookup that does not throw).
+     */
+    @Override
+    public ITask getTask(int id) throws TasksDAOException {
+        ITask task = findTask(id);
+        if (task == null) {
+            throw new TasksDAOException("No task with id " + id);
+        }
+        return task;
+    }
+
+    /**
+     * Retrieves the task with the given id, from the snapshot when it is current.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id, or null if the task does not exist.
+     */
+    @Override
+    public ITask findTask(int id) {
+        ITask[] current = ordered;
+        if (current != null) {
+            int index = indexOf(current, id);
+            return index >= 0 ? current[index] : null;
+        }
+        long stamp = lock.readLock();
+        try {
+            return tasks.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adds a task under a newly generated id, which is also set on {@code task}.
+     *
+     * @param task The task to add.
+     */
+    @Override
+    public void addTask(ITask task) {
+        int id = nextId.getAndIncrement();
+        ((Task) task).setId(id);
+        ITask stored = copyOf(task);
+        long stamp = lock.writeLock();
+        try {
+            tasks.put(id, stored);
+            ordered = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds several tasks at once; readers see all of them or none.
+     *
+     * @param tasks The tasks to add.
+     * @return The generated ids, in the same order as {@code tasks}.
+     */
+    @Override
+    public int[] addTasks(ITask... tasks) {
+        int[] ids = new int[tasks.length];
+        ITask[] stored = new ITask[tasks.length];
+        int first = nextId.getAndAdd(tasks.length);
+        for (int i = 0; i < tasks.length; i++) {
+            ids[i] = first + i;
+            ((Task) tasks[i]).setId(ids[i]);
+            stored[i] = copyOf(tasks[i]);
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (ITask task : stored) {
+                this.tasks.put(task.getId(), task);
+            }
+            ordered = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return ids;
+    }
+
+    /**
+     * Updates a task. A task that does not exist is not added.
+     *
+     * @param task The task to update.
+     */
+    @Override
+    public void updateTask(ITask task) {
+        updateTasks(task);
+    }
+
+    /**
+     * Updates several tasks at once; readers see all of the updates or none. Tasks that do not
+     * exist are skipped.
+     *
+     * @param tasks The tasks to update.
+     */
+    @Override
+    public void updateTasks(ITask... tasks) {
+        ITask[] stored = Arrays.stream(tasks).map(InMemoryTasksDAO::copyOf).toArray(ITask[]::new);
+        long stamp = lock.writeLock();
+        try {
+            for (ITask task : stored) {
+                if (this.tasks.containsKey(task.getId())) {
+                    this.tasks.put(task.getId(), task);
+                }
+            }
+            ordered = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes all tasks. Their ids are not reused.
+     */
+    @Override
+    public void deleteTasks() {
+        long stamp = lock.writeLock();
+        try {
+            tasks.clear();
+            ordered = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes the task with the given id.
+     *
+     * @param id The id of the task to delete.
+     * @throws TasksDAOException If no task has the given id.
+     */
+    @Override
+    public void deleteTask(int id) throws TasksDAOException {
+        long stamp = lock.writeLock();
+        try {
+            if (tasks.remove(id) == null) {
+                throw new TasksDAOException("Deleting task failed, no task with id " + id);
+            }
+            ordered = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes several tasks at once; readers see all of the deletes or none. Ids that do not
+     * exist are skipped.
+     *
+     * @param ids The ids of the tasks to delete.
+     */
+    @Override
+    public void deleteTasks(int... ids) {
+        long stamp = lock.writeLock();
+        try {
+            for (int id : ids) {
+                tasks.remove(id);
+            }
+            ordered = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the current snapshot, built under the read lock if a write invalidated it
+     */
+    private ITask[] orderedTasks() {
+        ITask[] current = ordered;
+        if (current != null) {
+            return current;
+        }
+        long stamp = lock.readLock();
+        try {
+            current = ordered;
+            if (current == null) {
+                //Writers are excluded, so every reader building it now builds the same array
+                ITask[] all = new ITask[tasks.size()];
+                int[] count = {0};
+                tasks.forEachValue(task -> all[count[0]++] = task);
+                Arrays.sort(all, Comparator.comparingInt(ITask::getId));
+                ordered = current = all;
+            }
+            return current;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Binary search by id, with the result convention of {@link Arrays#binarySearch(int[], int)}.
+     */
+    private static int indexOf(ITask[] sorted, int id) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = sorted[middle].getId();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static ITask copyOf(ITask task) {
+        return new Task(task.getId(), task.getTitle(), task.getDescription(), task.getState());
+    }
+}
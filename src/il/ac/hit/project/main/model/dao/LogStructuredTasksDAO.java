@@ -0,0 +1,899 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.dao.cache.IntLongMap;
+import il.ac.hit.project.main.model.dao.cache.TaskCodec;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An {@code ITasksDAO} that stores tasks in an append-only log file, for write-heavy use: every
+ * write is a sequential append instead of an update of B-tree pages.
+ * <p>
+ * The log is one segment file, {@code tasks-<generation>.log}, in the given directory:
+ * <pre>
+ *   header: int magic ('TLOG'), int format version, int next task id
+ *   records: int payload length, int CRC-32 of the payload, payload
+ *   payload: byte type, then for PUT the task's {@link TaskCodec} encoding, for DELETE the
+ *            int task id, for CLEAR nothing
+ * </pre>
+ * An in-memory index maps each live task id to the offset and length of its latest PUT record;
+ * it is rebuilt by replaying the log when the DAO is opened. A record that is incomplete or fails
+ * its checksum ends the replay and is cut off, so a crash in the middle of an append loses at
+ * most the writes that had not returned yet.
+ * <p>
+ * Writes return once their records are on disk. Writers that arrive while another one is
+ * forcing the file wait for it and are then usually covered by the same {@code fsync}, so
+ * concurrent writers share disk flushes (group commit).
+ * <p>
+ * Replaced and deleted tasks leave dead records behind. Once the log is larger than the
+ * compaction threshold and more than half of it is dead, a background thread copies the live
+ * records into the next generation's segment, adds the records appended meanwhile, and switches
+ * to it; see {@link #compact()}.
+ * <p>
+ * It behaves like {@link TasksDAODerby}: ids are generated in increasing order and never reused,
+ * {@link #getTask(int)} throws for a missing id, {@link #updateTask(ITask)} of a missing id does
+ * nothing, {@link #deleteTask(int)} of a missing id throws and batch deletes skip missing ids.
+ *
+ * <ul>
+ *   <li>lock: Reads share it; appends and the switch to a compacted segment take it exclusively.</li>
+ *   <li>channel / generation / index / end: The current segment, its live records and its length.</li>
+ *   <li>syncLock / appendedBatches / syncedBatches: The group commit; a batch is the records of one write call.</li>
+ * </ul>
+ */
+public class LogStructuredTasksDAO implements ITasksDAO, AutoCloseable {
+
+    // Log length below which compaction is not started automatically
+    public static final long DEFAULT_COMPACTION_MIN_BYTES = 1 << 20;
+
+    private static final int MAGIC = 0x544C4F47;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;
+    // Record lengths share an index entry with the offset, in its low 24 bits
+    private static final int LENGTH_BITS = 24;
+    private static final int MAX_RECORD_BYTES = (1 << LENGTH_BITS) - 1;
+    private static final long ABSENT = -1L;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("tasks-(\\d+)\\.log");
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final Logger LOG = Logger.getLogger(LogStructuredTasksDAO.class.getName());
+
+    /**
+     * The live records of a segment: task id to location (offset and record length), with the
+     * bytes they occupy and the highest id any record mentioned.
+     */
+    private static final class LogIndex {
+        final IntLongMap locations = new IntLongMap();
+        long liveBytes;
+        int maxId;
+
+        /**
+         * Applies one record, found at {@code offset}, to the index.
+         *
+         * @throws IllegalArgumentException if the record type is unknown
+         */
+        void apply(ByteBuffer payload, long offset, int recordBytes) {
+            byte type = payload.get(0);
+            if (type == CLEAR) {
+                locations.clear();
+                liveBytes = 0;
+                return;
+            }
+            if (type != PUT && type != DELETE) {
+                throw new IllegalArgumentException("Unknown task log record type: " + type);
+            }
+            int id = payload.getInt(1);
+            maxId = Math.max(maxId, id);
+            long previous = type == PUT
+                    ? locations.put(id, location(offset, recordBytes), ABSENT)
+                    : locations.remove(id, ABSENT);
+            if (previous != ABSENT) {
+                liveBytes -= recordLength(previous);
+            }
+            if (type == PUT) {
+                liveBytes += recordBytes;
+            }
+        }
+    }
+
+    /**
+     * Produces the records of one write while the lock is held, so it can check the index first.
+     */
+    @FunctionalInterface
+    private interface RecordSource {
+        List<byte[]> records(LogIndex index) throws TasksDAOException;
+    }
+
+    private final Path directory;
+    private final long compactionMinBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private long generation;
+    private LogIndex index;
+    private long end;
+    private int nextId;
+    private long appendedBatches;
+
+    private final Object syncLock = new Object();
+    private long syncedBatches;
+
+    //Serializes compactions with each other and with close()
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean(false);
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tasks-log-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder appendedRecords = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    /**
+     * Opens the log in {@code directory}, creating both if needed, with a compaction threshold of
+     * {@value #DEFAULT_COMPACTION_MIN_BYTES} bytes.
+     *
+     * @param directory the directory holding the log segment
+     * @throws TasksDAOException If the log cannot be created or read.
+     */
+    public LogStructuredTasksDAO(Path directory) throws TasksDAOException {
+        this(directory, DEFAULT_COMPACTION_MIN_BYTES);
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating both if needed, and replays it into the index.
+     *
+     * @param directory          the directory holding the log segment
+     * @param compactionMinBytes log length below which compaction is not started automatically
+     * @throws TasksDAOException If the log cannot be created or read.
+     */
+    public LogStructuredTasksDAO(Path directory, long compactionMinBytes) throws TasksDAOException {
+        this.directory = directory;
+        this.compactionMinBytes = compactionMinBytes;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new TasksDAOException("Error opening task log in " + directory, e);
+        }
+    }
+
+    /**
+     * Picks the newest segment, removes leftovers of interrupted compactions, and replays it.
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = new ArrayList<>();
+        long newest = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (matcher.matches()) {
+                    segments.add(file);
+                    newest = Math.max(newest, Long.parseLong(matcher.group(1)));
+                } else if (name.startsWith("tasks-") && name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(file);
+                }
+            }
+        }
+        if (newest == 0) {
+            generation = 1;
+            channel = FileChannel.open(segmentPath(generation), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeHeader(channel, 1);
+            channel.force(true);
+            index = new LogIndex();
+            end = HEADER_BYTES;
+            nextId = 1;
+            return;
+        }
+        generation = newest;
+        //A compaction that switched segments but had not deleted the old one yet
+        for (Path segment : segments) {
+            if (!segment.equals(segmentPath(newest))) {
+                Files.delete(segment);
+            }
+        }
+        replay(segmentPath(newest));
+    }
+
+    /**
+     * Rebuilds the index from a segment, cutting off a torn or corrupt tail.
+     */
+    private void replay(Path segment) throws IOException {
+        LogIndex replayed = new LogIndex();
+        long position = HEADER_BYTES;
+        int headerNextId;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a task log segment: " + segment);
+            }
+            headerNextId = in.readInt();
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || FRAME_BYTES + length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                try {
+                    replayed.apply(ByteBuffer.wrap(payload), position, FRAME_BYTES + payload.length);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    break;
+                }
+                position += FRAME_BYTES + payload.length;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a task log segment: " + segment, e);
+        }
+        channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (position < size) {
+            long discarded = size - position;
+            LOG.warning(() -> "Task log " + segment + ": discarding " + discarded
+                    + " bytes after the last complete record");
+            channel.truncate(position);
+            channel.force(true);
+        }
+        index = replayed;
+        end = position;
+        nextId = Math.max(headerNextId, replayed.maxId + 1);
+    }
+
+    // ---------------------------------------------------------------- reads
+
+    /**
+     * Retrieves all tasks, reading their latest records from the log.
+     *
+     * @return {@code ITask[]} An array of all tasks, ordered by id.
+     * @throws TasksDAOException If the log cannot be read.
+     */
+    @Override
+    public ITask[] getTasks() throws TasksDAOException {
+        return readPage(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves one page of tasks after the given id.
+     *
+     * @param afterId Only tasks with an id greater than this value are returned.
+     * @param limit Maximum number of tasks to return.
+     * @return {@code ITask[]} The page of tasks ordered by id.
+     * @throws TasksDAOException If the log cannot be read.
+     */
+    @Override
+    public ITask[] getTasksPage(int afterId, int limit) throws TasksDAOException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        return readPage(afterId, limit);
+    }
+
+    private ITask[] readPage(int afterId, int limit) throws TasksDAOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int[] ids = sortedIds();
+            int from = Arrays.binarySearch(ids, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            int to = (int) Math.min(ids.length, (long) from + limit);
+            ITask[] tasks = new ITask[to - from];
+            for (int i = from; i < to; i++) {
+                tasks[i - from] = readTask(index.locations.get(ids[i], ABSENT));
+            }
+            return tasks;
+        } catch (IOException e) {
+            throw new TasksDAOException("Error reading task log", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the tasks and finds the highest id from the index, without reading the log.
+     *
+     * @return the summary of the live tasks
+     * @throws TasksDAOException If the log is closed.
+     */
+    @Override
+    public TasksSummary getSummary() throws TasksDAOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int[] maxId = {0};
+            index.locations.forEach((id, location) -> maxId[0] = Math.max(maxId[0], id));
+            return new TasksSummary(index.locations.size(), maxId[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a task with the given id.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id.
+     * @throws TasksDAOException If the log cannot be read, or no task has the given id (see
+     * {@link #findTask(int)} for a lookup that does not throw).
+     */
+    @Override
+    public ITask getTask(int id) throws TasksDAOException {
+        ITask task = findTask(id);
+        if (task == null) {
+            throw new TasksDAOException("No task with id " + id);
+        }
+        return task;
+    }
+
+    /**
+     * Retrieves a task with the given id with one positional read of its record.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id, or null if the task does not exist.
+     * @throws TasksDAOException If the log cannot be read.
+     */
+    @Override
+    public ITask findTask(int id) throws TasksDAOException {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            long location = index.locations.get(id, ABSENT);
+            return location == ABSENT ? null : readTask(location);
+        } catch (IOException e) {
+            throw new TasksDAOException("Error reading task log", e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads and checks the PUT record at {@code location}; only called with the lock held.
+     */
+    private ITask readTask(long location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(recordLength(location));
+        readFully(channel, record, recordOffset(location));
+        record.flip();
+        record.getInt();
+        int checksum = record.getInt();
+        ByteBuffer payload = record.slice();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum || payload.get(0) != PUT) {
+            throw new IOException("Corrupt task log record at offset " + recordOffset(location));
+        }
+        return TaskCodec.decode(payload.position(1));
+    }
+
+    /**
+     * @return the live task ids in ascending order; only called with the lock held
+     */
+    private int[] sortedIds() {
+        int[] ids = new int[index.locations.size()];
+        int[] count = {0};
+        index.locations.forEach((id, location) -> ids[count[0]++] = id);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    // ---------------------------------------------------------------- writes
+
+    /**
+     * Appends a task under a newly generated id, which is also set on {@code task}.
+     *
+     * @param task The task to add.
+     * @throws TasksDAOException If the record cannot be written.
+     */
+    @Override
+    public void addTask(ITask task) throws TasksDAOException {
+        addTasks(task);
+    }
+
+    /**
+     * Appends several tasks with one write and one disk flush.
+     *
+     * @param tasks The tasks to add.
+     * @return The generated ids, in the same order as {@code tasks}.
+     * @throws TasksDAOException If the records cannot be written; no id is set then.
+     */
+    @Override
+    public int[] addTasks(ITask... tasks) throws TasksDAOException {
+        int[] ids = new int[tasks.length];
+        append(current -> {
+            List<byte[]> records = new ArrayList<>(tasks.length);
+            for (int i = 0; i < tasks.length; i++) {
+                ids[i] = nextId + i;
+                records.add(putRecord(tasks[i], ids[i]));
+            }
+            nextId += tasks.length;
+            return records;
+        });
+        for (int i = 0; i < tasks.length; i++) {
+            ((Task) tasks[i]).setId(ids[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Appends the new version of a task. A task that does not exist is not added.
+     *
+     * @param task The task to update.
+     * @throws TasksDAOException If the record cannot be written.
+     */
+    @Override
+    public void updateTask(ITask task) throws TasksDAOException {
+        updateTasks(task);
+    }
+
+    /**
+     * Appends the new versions of several tasks with one write and one disk flush. Tasks that do
+     * not exist are skipped.
+     *
+     * @param tasks The tasks to update.
+     * @throws TasksDAOException If the records cannot be written.
+     */
+    @Override
+    public void updateTasks(ITask... tasks) throws TasksDAOException {
+        append(current -> {
+            List<byte[]> records = new ArrayList<>(tasks.length);
+            for (ITask task : tasks) {
+                if (current.locations.containsKey(task.getId())) {
+                    records.add(putRecord(task, task.getId()));
+                }
+            }
+            return records;
+        });
+    }
+
+    /**
+     * Appends a record deleting every task. Their ids are not reused.
+     *
+     * @throws TasksDAOException If the record cannot be written.
+     */
+    @Override
+    public void deleteTasks() throws TasksDAOException {
+        append(current -> List.of(new byte[] {CLEAR}));
+    }
+
+    /**
+     * Appends a record deleting the task with the given id.
+     *
+     * @param id The id of the task to delete.
+     * @throws TasksDAOException If no task has the given id, or the record cannot be written.
+     */
+    @Override
+    public void deleteTask(int id) throws TasksDAOException {
+        append(current -> {
+            if (!current.locations.containsKey(id)) {
+                throw new TasksDAOException("Deleting task failed, no task with id " + id);
+            }
+            return List.of(deleteRecord(id));
+        });
+    }
+
+    /**
+     * Appends records deleting several tasks with one write and one disk flush. Ids that do not
+     * exist are skipped.
+     *
+     * @param ids The ids of the tasks to delete.
+     * @throws TasksDAOException If the records cannot be written.
+     */
+    @Override
+    public void deleteTasks(int... ids) throws TasksDAOException {
+        append(current -> {
+            List<byte[]> records = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                if (current.locations.containsKey(id)) {
+                    records.add(deleteRecord(id));
+                }
+            }
+            return records;
+        });
+    }
+
+    private static byte[] putRecord(ITask task, int id) throws TasksDAOException {
+        byte[] encoded = TaskCodec.encode(task);
+        if (FRAME_BYTES + 1 + encoded.length > MAX_RECORD_BYTES) {
+            throw new TasksDAOException("Task too large for the task log: " + id);
+        }
+        byte[] payload = new byte[1 + encoded.length];
+        payload[0] = PUT;
+        System.arraycopy(encoded, 0, payload, 1, encoded.length);
+        //The encoding starts with the id, which is only known here for new tasks
+        ByteBuffer.wrap(payload).putInt(1, id);
+        return payload;
+    }
+
+    private static byte[] deleteRecord(int id) {
+        return ByteBuffer.allocate(1 + Integer.BYTES).put(DELETE).putInt(id).array();
+    }
+
+    /**
+     * Appends the records of one write call at the end of the log and applies them to the index,
+     * then waits until they are on disk.
+     */
+    private void append(RecordSource source) throws TasksDAOException {
+        long batch;
+        boolean compactionDue;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            List<byte[]> payloads = source.records(index);
+            if (payloads.isEmpty()) {
+                return;
+            }
+            ByteBuffer frames = frame(payloads);
+            //A failed write leaves end unchanged, so the next append overwrites the partial bytes
+            writeFully(channel, frames, end);
+            long offset = end;
+            for (byte[] payload : payloads) {
+                index.apply(ByteBuffer.wrap(payload), offset, FRAME_BYTES + payload.length);
+                offset += FRAME_BYTES + payload.length;
+            }
+            end = offset;
+            batch = ++appendedBatches;
+            appendedRecords.add(payloads.size());
+            compactionDue = end >= compactionMinBytes && end - HEADER_BYTES - index.liveBytes > index.liveBytes;
+        } catch (IOException e) {
+            throw new TasksDAOException("Error writing task log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(batch);
+        if (compactionDue) {
+            scheduleCompaction();
+        }
+    }
+
+    private static ByteBuffer frame(List<byte[]> payloads) {
+        int bytes = 0;
+        for (byte[] payload : payloads) {
+            bytes += FRAME_BYTES + payload.length;
+        }
+        ByteBuffer frames = ByteBuffer.allocate(bytes);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload);
+            frames.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        }
+        return frames.flip();
+    }
+
+    /**
+     * Returns once every batch up to {@code batch} is on disk. The first waiting writer forces the
+     * file for every batch appended so far; the writers queued behind it usually find their batch
+     * already covered.
+     */
+    private void awaitDurable(long batch) throws TasksDAOException {
+        synchronized (syncLock) {
+            if (syncedBatches >= batch) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            lock.readLock().lock();
+            try {
+                ensureOpen();
+                target = appendedBatches;
+                current = channel;
+            } finally {
+                lock.readLock().unlock();
+            }
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                throw new TasksDAOException("Error flushing task log to disk", e);
+            }
+            syncedBatches = target;
+            syncs.increment();
+        }
+    }
+
+    // ---------------------------------------------------------------- compaction
+
+    private void scheduleCompaction() {
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            compactionExecutor.execute(() -> {
+                try {
+                    compact();
+                } catch (TasksDAOException e) {
+                    LOG.log(Level.WARNING, "Error compacting task log", e);
+                } finally {
+                    compactionScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //Closing
+            compactionScheduled.set(false);
+        }
+    }
+
+    /**
+     * Rewrites the live records into the next generation's segment and switches to it.
+     * <p>
+     * The live records are copied without blocking readers or writers. Only the records
+     * appended during the copy are then copied with the lock held, after which the new segment
+     * is forced to disk, renamed into place and the old one deleted. A crash at any point leaves
+     * either the old or the new segment complete; {@link #LogStructuredTasksDAO(Path)} keeps the newest.
+     * </p>
+     *
+     * @throws TasksDAOException If the new segment cannot be written; the old one stays in use.
+     */
+    public void compact() throws TasksDAOException {
+        synchronized (compactionLock) {
+            FileChannel source;
+            long copiedEnd;
+            long nextGeneration;
+            int[] ids;
+            long[] locations;
+            lock.readLock().lock();
+            try {
+                ensureOpen();
+                source = channel;
+                copiedEnd = end;
+                nextGeneration = generation + 1;
+                ids = sortedIds();
+                locations = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    locations[i] = index.locations.get(ids[i], ABSENT);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Path temporary = directory.resolve(segmentPath(nextGeneration).getFileName() + TEMP_SUFFIX);
+            FileChannel target = null;
+            try {
+                target = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                LogIndex compacted = new LogIndex();
+                long targetEnd = copyLiveRecords(source, ids, locations, target, compacted);
+                synchronized (syncLock) {
+                    lock.writeLock().lock();
+                    try {
+                        targetEnd = copyTail(source, copiedEnd, end, target, targetEnd, compacted);
+                        writeHeader(target, nextId);
+                        target.force(true);
+                        Files.move(temporary, segmentPath(nextGeneration), StandardCopyOption.ATOMIC_MOVE);
+                        channel = target;
+                        generation = nextGeneration;
+                        index = compacted;
+                        end = targetEnd;
+                        syncedBatches = appendedBatches;
+                        target = null;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+                source.close();
+                Files.delete(segmentPath(nextGeneration - 1));
+                compactions.increment();
+            } catch (IOException e) {
+                throw new TasksDAOException("Error compacting task log", e);
+            } finally {
+                if (target != null) {
+                    try {
+                        target.close();
+                        Files.deleteIfExists(temporary);
+                    } catch (IOException e) {
+                        LOG.log(Level.WARNING, "Error removing unfinished task log segment " + temporary, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the given records, in id order, after the header of {@code target}.
+     *
+     * @return the end of the copied records in {@code target}
+     */
+    private static long copyLiveRecords(FileChannel source, int[] ids, long[] locations,
+                                        FileChannel target, LogIndex compacted) throws IOException {
+        long position = HEADER_BYTES;
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream(1 << 16);
+        long chunkStart = position;
+        for (long location : locations) {
+            ByteBuffer record = ByteBuffer.allocate(recordLength(location));
+            readFully(source, record, recordOffset(location));
+            compacted.apply(ByteBuffer.wrap(record.array(), FRAME_BYTES, record.capacity() - FRAME_BYTES).slice(),
+                    position, record.capacity());
+            chunk.write(record.array(), 0, record.capacity());
+            position += record.capacity();
+            if (chunk.size() >= 1 << 16) {
+                writeFully(target, ByteBuffer.wrap(chunk.toByteArray()), chunkStart);
+                chunk.reset();
+                chunkStart = position;
+            }
+        }
+        writeFully(target, ByteBuffer.wrap(chunk.toByteArray()), chunkStart);
+        return position;
+    }
+
+    /**
+     * Copies the records appended to {@code source} between {@code from} and {@code to} to the end
+     * of {@code target} and applies them to its index; only called with the lock held.
+     *
+     * @return the new end of {@code target}
+     */
+    private static long copyTail(FileChannel source, long from, long to, FileChannel target, long targetEnd,
+                                 LogIndex compacted) throws IOException {
+        if (to == from) {
+            return targetEnd;
+        }
+        ByteBuffer tail = ByteBuffer.allocate((int) (to - from));
+        readFully(source, tail, from);
+        tail.flip();
+        writeFully(target, tail.duplicate(), targetEnd);
+        long position = targetEnd;
+        while (tail.hasRemaining()) {
+            int length = tail.getInt();
+            tail.getInt();
+            compacted.apply(tail.slice(tail.position(), length), position, FRAME_BYTES + length);
+            tail.position(tail.position() + length);
+            position += FRAME_BYTES + length;
+        }
+        return position;
+    }
+
+    // ---------------------------------------------------------------- life cycle and statistics
+
+    /**
+     * Stops background compaction and closes the log. Every completed write is already on disk.
+     *
+     * @throws TasksDAOException If the log cannot be closed.
+     */
+    @Override
+    public void close() throws TasksDAOException {
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (compactionLock) {
+            lock.writeLock().lock();
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+            } catch (IOException e) {
+                throw new TasksDAOException("Error closing task log", e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the number of records appended since the log was opened
+     */
+    public long getAppendedRecords() {return appendedRecords.sum();}
+
+    /**
+     * @return the number of times the log was forced to disk; lower than the number of write
+     *         calls when concurrent writes shared a flush
+     */
+    public long getSyncs() {return syncs.sum();}
+
+    /**
+     * @return the number of completed compactions
+     */
+    public long getCompactions() {return compactions.sum();}
+
+    /**
+     * @return the length of the current segment in bytes
+     */
+    public long getLogBytes() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the bytes of the current segment taken by the latest records of live tasks
+     */
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            return index.liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private void ensureOpen() throws TasksDAOException {
+        if (channel == null) {
+            throw new TasksDAOException("Task log is closed");
+        }
+    }
+
+    private Path segmentPath(long generation) {
+        return directory.resolve(String.format("tasks-%06d.log", generation));
+    }
+
+    private static void writeHeader(FileChannel channel, int nextId) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nextId).flip(), 0);
+    }
+
+    private static long location(long offset, int recordBytes) {
+        return offset << LENGTH_BITS | recordBytes;
+    }
+
+    private static long recordOffset(long location) {
+        return location >>> LENGTH_BITS;
+    }
+
+    private static int recordLength(long location) {
+        return (int) (location & MAX_RECORD_BYTES);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Task log ends at offset " + position);
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package il.ac.hit.project.main.model.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection cache of compiled {@link PreparedStatement}s keyed by their SQL text.
+ * <p>
+ * Derby parses and compiles every statement text it sees; by preparing each CRUD statement
+ * once and reusing it, the compile cost is paid a single time per connection instead of per call.
+ * <p>
+ * Thread-safety: lookups are safe to call concurrently. A cached statement, however, carries
+ * bound parameters and an open result set, so it must only be used by the thread holding the
+ * connection's {@link ConnectionPool.Lease}, for the whole bind-execute-read sequence.
+ *
+ * <ul>
+ *   <li>connection: The connection owning every cached statement.</li>
+ *   <li>statements: Compiled statements keyed by SQL text (and generated-keys flag).</li>
+ *   <li>hits / compiles: Counters used to report the cache hit rate.</li>
+ * </ul>
+ */
+public class PreparedStatementCache implements AutoCloseable {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong compiles = new AtomicLong();
+
+    /**
+     * Creates an empty cache bound to the given connection.
+     *
+     * @param connection the connection used to prepare statements; must not be null
+     */
+    public PreparedStatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Returns a compiled statement for the given SQL, preparing it on first use.
+     *
+     * @param sql the parameterized SQL text
+     * @return a cached, open prepared statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement get(String sql) throws SQLException {
+        return lookup(sql, false);
+    }
+
+    /**
+     * Returns a compiled INSERT statement that reports auto-generated keys, preparing it on first use.
+     *
+     * @param sql the parameterized INSERT statement
+     * @return a cached, open prepared statement created with {@link Statement#RETURN_GENERATED_KEYS}
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement getReturningKeys(String sql) throws SQLException {
+        return lookup(sql, true);
+    }
+
+    /**
+     * Shared lookup for both statement flavours. A statement found closed (for example after
+     * a connection-level failure) is treated as a miss and compiled again.
+     */
+    private PreparedStatement lookup(String sql, boolean returnKeys) throws SQLException {
+        String key = returnKeys ? "KEYS:" + sql : sql;
+        PreparedStatement statement = statements.get(key);
+        if (statement != null && !statement.isClosed()) {
+            hits.incrementAndGet();
+            return statement;
+        }
+        synchronized (this) {
+            statement = statements.get(key);
+            if (statement != null && !statement.isClosed()) {
+                hits.incrementAndGet();
+                return statement;
+            }
+            statement = returnKeys
+                    ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(sql);
+            compiles.incrementAndGet();
+            statements.put(key, statement);
+            return statement;
+        }
+    }
+
+    /**
+     * @return the number of lookups served by an already compiled statement
+     */
+    public long getHits() {return hits.get();}
+
+    /**
+     * @return the number of statements compiled by this cache (one per cache miss)
+     */
+    public long getCompiles() {return compiles.get();}
+
+    /**
+     * @return the number of distinct statements currently held
+     */
+    public int size() {return statements.size();}
+
+    /**
+     * Fraction of lookups served without compiling.
+     *
+     * @return a value between 0 and 1; 0 when no lookups were made yet
+     */
+    public double getHitRate() {
+        long total = hits.get() + compiles.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Closes every cached statement and empties the cache. Counters are kept.
+     */
+    @Override
+    public synchronized void close() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+        statements.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PreparedStatementCache[statements=%d, hits=%d, compiles=%d, hitRate=%.2f]",
+                size(), getHits(), getCompiles(), getHitRate());
+    }
+}
@@ -0,0 +1,160 @@
+package il.ac.hit.project.main.model.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Applies versioned schema changes to the {@code tasks} database.
+ * <p>
+ * The applied version is tracked in a {@code schema_version} table. Every migration has a
+ * version number and runs exactly once, in its own transaction, in ascending version order.
+ * To change the schema, append a new {@link Migration} to {@link #MIGRATIONS}; never edit
+ * a migration that has already shipped.
+ * <p>
+ * Only plain {@link Statement}s are used: migrations run once per database, so there is
+ * nothing to gain from preparing them.
+ */
+public class SchemaMigrator {
+
+    /**
+     * A single schema change.
+     *
+     * @param version     strictly increasing version number, starting at 1
+     * @param description short human-readable summary, stored in {@code schema_version}
+     * @param statements  DDL/DML statements applied in order within one transaction
+     */
+    record Migration(int version, String description, String... statements) {}
+
+    /**
+     * All known migrations, in ascending version order.
+     */
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Secondary indexes on state and lower-cased title",
+                    // Derby has no expression indexes, so the lower-cased title is a generated column
+                    "ALTER TABLE tasks ADD COLUMN title_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(title))",
+                    "CREATE INDEX idx_tasks_state ON tasks (state)",
+                    "CREATE INDEX idx_tasks_state_id ON tasks (state, id)",
+                    "CREATE INDEX idx_tasks_title_lower ON tasks (title_lower)"),
+            new Migration(2, "Store state as a SMALLINT code instead of its display name",
+                    // Codes follow the workflow order: 0 = To Do, 1 = In Progress, 2 = Completed
+                    "ALTER TABLE tasks ADD COLUMN state_code SMALLINT NOT NULL DEFAULT 0",
+                    "UPDATE tasks SET state_code = CASE state " +
+                            "WHEN 'In Progress' THEN 1 WHEN 'Completed' THEN 2 ELSE 0 END",
+                    "DROP INDEX idx_tasks_state",
+                    "DROP INDEX idx_tasks_state_id",
+                    "ALTER TABLE tasks DROP COLUMN state",
+                    "RENAME COLUMN tasks.state_code TO state",
+                    "ALTER TABLE tasks ALTER COLUMN state DROP DEFAULT",
+                    "ALTER TABLE tasks ADD CONSTRAINT chk_tasks_state CHECK (state BETWEEN 0 AND 2)",
+                    "CREATE INDEX idx_tasks_state ON tasks (state)",
+                    "CREATE INDEX idx_tasks_state_id ON tasks (state, id)"),
+            new Migration(3, "Log the id of every inserted, updated or deleted task in task_changes",
+                    // seq orders the changes; caches in other processes poll for rows after the last seq they saw
+                    "CREATE TABLE task_changes (" +
+                            "seq BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, " +
+                            "task_id INT NOT NULL)",
+                    "CREATE TRIGGER trg_tasks_insert AFTER INSERT ON tasks REFERENCING NEW AS changed " +
+                            "FOR EACH ROW INSERT INTO task_changes (task_id) VALUES (changed.id)",
+                    "CREATE TRIGGER trg_tasks_update AFTER UPDATE ON tasks REFERENCING NEW AS changed " +
+                            "FOR EACH ROW INSERT INTO task_changes (task_id) VALUES (changed.id)",
+                    "CREATE TRIGGER trg_tasks_delete AFTER DELETE ON tasks REFERENCING OLD AS changed " +
+                            "FOR EACH ROW INSERT INTO task_changes (task_id) VALUES (changed.id)")
+    );
+
+    private final Connection connection;
+
+    /**
+     * Creates a migrator for the given connection.
+     *
+     * @param connection the connection to migrate; its {@code tasks} table must already exist
+     */
+    public SchemaMigrator(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Brings the schema up to the latest version by applying every pending migration.
+     *
+     * @return the schema version after migrating
+     * @throws SQLException if the version table cannot be read or a migration fails; a failed
+     *                      migration is rolled back and later migrations are not attempted
+     */
+    public int migrate() throws SQLException {
+        synchronized (connection) {
+            createVersionTableIfNotExists();
+            int version = getCurrentVersion();
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() > version) {
+                    apply(migration);
+                    version = migration.version();
+                    System.out.println("Schema migrated to version " + version + ": " + migration.description());
+                }
+            }
+            return version;
+        }
+    }
+
+    /**
+     * Reads the highest applied migration version.
+     *
+     * @return the current schema version; 0 if no migration was applied yet
+     * @throws SQLException if the version table cannot be read
+     */
+    public int getCurrentVersion() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            // MAX over an empty table yields NULL, which getInt reports as 0
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * @return the version the schema reaches once every known migration is applied
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.getLast().version();
+    }
+
+    /**
+     * Creates the {@code schema_version} table unless it already exists.
+     */
+    private void createVersionTableIfNotExists() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(255) NOT NULL, " +
+                    "applied_at TIMESTAMP NOT NULL)");
+        } catch (SQLException e) {
+            // "X0Y32" indicates a table already exists
+            if (!"X0Y32".equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Runs all statements of a migration and records its version, as one transaction.
+     */
+    private void apply(Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.statements()) {
+                statement.executeUpdate(sql);
+            }
+            // The description is a compile-time constant, so inlining it is safe
+            statement.executeUpdate("INSERT INTO schema_version (version, description, applied_at) VALUES ("
+                    + migration.version() + ", '" + migration.description().replace("'", "''")
+                    + "', CURRENT_TIMESTAMP)");
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
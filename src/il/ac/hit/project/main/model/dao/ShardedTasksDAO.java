@@ -0,0 +1,441 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An {@code ITasksDAO} that partitions tasks across several underlying DAOs (shards), typically
+ * one embedded Derby database each, so writes are spread over several transaction logs.
+ * <p>
+ * The shard of a task is encoded in its id: a task stored under local id {@code l} in shard
+ * {@code s} of {@code n} has the global id {@code l * n + s}, so {@code id % n} finds the shard
+ * and every single-task operation goes to that shard only. New tasks are spread over the shards
+ * round-robin. Because each shard's local ids increase, so do its global ids, and
+ * {@link #getTasks()} and {@link #getTasksPage(int, int)} query every shard in parallel and merge
+ * the id-ordered results.
+ * <p>
+ * Only ids are translated: tasks passed to the shards carry local ids, tasks handed out carry
+ * global ids. The shards must not be used directly while they are part of this DAO. Change
+ * polling ({@link #getChangesSince(long)}) is not supported across shards.
+ *
+ * <ul>
+ *   <li>shards: The underlying DAOs; the index of a shard is part of every id it stores.</li>
+ *   <li>executor: One thread per shard for the scatter-gather calls.</li>
+ *   <li>nextShard: Round-robin counter choosing the shard of new tasks.</li>
+ *   <li>pools: Connection pools opened by {@link #openDerby(Path, int)}, closed with this DAO.</li>
+ * </ul>
+ */
+public class ShardedTasksDAO implements ITasksDAO, AutoCloseable {
+
+    // Shards opened by the application when sharding is enabled
+    public static final int DEFAULT_SHARD_COUNT = 4;
+    // Connections opened per shard by openDerby
+    public static final int SHARD_POOL_SIZE = 4;
+
+    private final ITasksDAO[] shards;
+    private final ExecutorService executor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+    private final List<ConnectionPool> pools;
+
+    /**
+     * A call of one shard, run by {@link #scatter(ShardCall)}.
+     */
+    @FunctionalInterface
+    private interface ShardCall<T> {
+        T call(int shard, ITasksDAO dao) throws TasksDAOException;
+    }
+
+    /**
+     * Creates a DAO over the given shards. Their order fixes the ids, so it must not change
+     * between runs over the same databases.
+     *
+     * @param shards the underlying DAOs, at least one
+     */
+    public ShardedTasksDAO(List<? extends ITasksDAO> shards) {
+        this(shards, List.of());
+    }
+
+    private ShardedTasksDAO(List<? extends ITasksDAO> shards, List<ConnectionPool> pools) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.shards = shards.toArray(new ITasksDAO[0]);
+        this.pools = pools;
+        this.executor = Executors.newFixedThreadPool(this.shards.length, runnable -> {
+            Thread thread = new Thread(runnable, "tasks-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens (creating if needed) {@code shardCount} embedded Derby databases named
+     * {@code shard-0}, {@code shard-1}, ... in {@code directory}.
+     *
+     * @param directory  the directory holding the databases
+     * @param shardCount the number of shards; must stay the same for the same directory
+     * @return a DAO over the databases, which closes their connection pools on {@link #close()}
+     * @throws TasksDAOException If a database cannot be opened or migrated
+     */
+    public static ShardedTasksDAO openDerby(Path directory, int shardCount) throws TasksDAOException {
+        try {
+            Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+        } catch (ClassNotFoundException e) {
+            throw new TasksDAOException("Error initializing DB connection.", e);
+        }
+        List<TasksDAODerby> shards = new ArrayList<>(shardCount);
+        List<ConnectionPool> pools = new ArrayList<>(shardCount);
+        try {
+            for (int shard = 0; shard < shardCount; shard++) {
+                String url = "jdbc:derby:" + directory.resolve("shard-" + shard) + ";create=true";
+                ConnectionPool pool = new ConnectionPool(() -> DriverManager.getConnection(url), SHARD_POOL_SIZE);
+                pools.add(pool);
+                shards.add(new TasksDAODerby(pool));
+            }
+        } catch (TasksDAOException e) {
+            pools.forEach(ConnectionPool::close);
+            throw e;
+        }
+        return new ShardedTasksDAO(shards, pools);
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int getShardCount() {return shards.length;}
+
+    /**
+     * @return the shard that stores, or would store, the task with the given id
+     */
+    public int shardOf(int id) {return Math.floorMod(id, shards.length);}
+
+    private int localId(int id) {return Math.floorDiv(id, shards.length);}
+
+    private int globalId(int shard, int localId) throws TasksDAOException {
+        long id = (long) localId * shards.length + shard;
+        if (id > Integer.MAX_VALUE) {
+            throw new TasksDAOException("Task id space exhausted in shard " + shard);
+        }
+        return (int) id;
+    }
+
+    // ---------------------------------------------------------------- reads
+
+    /**
+     * Retrieves all tasks, reading every shard in parallel.
+     *
+     * @return {@code ITask[]} An array of all tasks, ordered by id.
+     * @throws TasksDAOException If any shard fails.
+     */
+    @Override
+    public ITask[] getTasks() throws TasksDAOException {
+        return merge(scatter((shard, dao) -> dao.getTasks()), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves one page of tasks after the given id. Every shard is asked for a full page after
+     * the same global id, in parallel, and the first {@code limit} tasks of the merge are returned.
+     *
+     * @param afterId Only tasks with an id greater than this value are returned.
+     * @param limit Maximum number of tasks to return.
+     * @return {@code ITask[]} The page of tasks ordered by id.
+     * @throws TasksDAOException If any shard fails.
+     */
+    @Override
+    public ITask[] getTasksPage(int afterId, int limit) throws TasksDAOException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        // The highest local id of each shard whose global id is still <= afterId
+        return merge(scatter((shard, dao) -> dao.getTasksPage((int) Math.floorDiv((long) afterId - shard, shards.length), limit)), limit);
+    }
+
+    /**
+     * Adds up the summaries of all shards, read in parallel.
+     *
+     * @return the number of tasks and the highest id
+     * @throws TasksDAOException If any shard fails.
+     */
+    @Override
+    public TasksSummary getSummary() throws TasksDAOException {
+        List<TasksSummary> summaries = scatter((shard, dao) -> dao.getSummary());
+        int count = 0;
+        int maxId = 0;
+        for (int shard = 0; shard < shards.length; shard++) {
+            TasksSummary summary = summaries.get(shard);
+            count += summary.count();
+            if (summary.count() > 0) {
+                maxId = Math.max(maxId, globalId(shard, summary.maxId()));
+            }
+        }
+        return new TasksSummary(count, maxId);
+    }
+
+    /**
+     * Retrieves a task with the given id from its shard.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id.
+     * @throws TasksDAOException If the shard fails or has no such task.
+     */
+    @Override
+    public ITask getTask(int id) throws TasksDAOException {
+        if (localId(id) <= 0) {
+            throw new TasksDAOException("No task with id " + id);
+        }
+        return toGlobal(shardOf(id), shards[shardOf(id)].getTask(localId(id)));
+    }
+
+    /**
+     * Retrieves a task with the given id from its shard.
+     *
+     * @param id The id of the task to retrieve.
+     * @return The task with the given id, or null if the task does not exist.
+     * @throws TasksDAOException If the shard fails.
+     */
+    @Override
+    public ITask findTask(int id) throws TasksDAOException {
+        if (localId(id) <= 0) {
+            return null;
+        }
+        return toGlobal(shardOf(id), shards[shardOf(id)].findTask(localId(id)));
+    }
+
+    // ---------------------------------------------------------------- writes
+
+    /**
+     * Adds a task to the next shard in turn and sets its global id.
+     *
+     * @param task The task to add.
+     * @throws TasksDAOException If the shard fails.
+     */
+    @Override
+    public void addTask(ITask task) throws TasksDAOException {
+        int shard = Math.floorMod(nextShard.getAndIncrement(), shards.length);
+        shards[shard].addTask(task);
+        ((Task) task).setId(globalId(shard, task.getId()));
+    }
+
+    /**
+     * Spreads the tasks over the shards round-robin and adds each shard's part as one batch,
+     * all shards in parallel.
+     *
+     * @param tasks The tasks to add.
+     * @return The generated global ids, in the same order as {@code tasks}.
+     * @throws TasksDAOException If any shard fails; the other shards' parts may have been added,
+     *                           and their tasks then have their global ids.
+     */
+    @Override
+    public int[] addTasks(ITask... tasks) throws TasksDAOException {
+        int start = nextShard.getAndAdd(tasks.length);
+        List<List<ITask>> parts = partition(tasks.length, i -> Math.floorMod(start + i, shards.length), i -> tasks[i]);
+        scatter((shard, dao) -> {
+            if (!parts.get(shard).isEmpty()) {
+                dao.addTasks(parts.get(shard).toArray(new ITask[0]));
+                // Translate as soon as the part is added: a local id must not outlive a failing shard
+                for (ITask task : parts.get(shard)) {
+                    ((Task) task).setId(globalId(shard, task.getId()));
+                }
+            }
+            return null;
+        });
+        return Arrays.stream(tasks).mapToInt(ITask::getId).toArray();
+    }
+
+    /**
+     * Updates a task in its shard.
+     *
+     * @param task The task to update.
+     * @throws TasksDAOException If the shard fails.
+     */
+    @Override
+    public void updateTask(ITask task) throws TasksDAOException {
+        if (localId(task.getId()) > 0) {
+            shards[shardOf(task.getId())].updateTask(toLocal(task));
+        }
+    }
+
+    /**
+     * Updates several tasks, one batch per shard, all shards in parallel.
+     *
+     * @param tasks The tasks to update.
+     * @throws TasksDAOException If any shard fails.
+     */
+    @Override
+    public void updateTasks(ITask... tasks) throws TasksDAOException {
+        List<List<ITask>> parts = partition(tasks.length, i -> shardOf(tasks[i].getId()), i -> toLocal(tasks[i]));
+        scatter((shard, dao) -> {
+            if (!parts.get(shard).isEmpty()) {
+                dao.updateTasks(parts.get(shard).toArray(new ITask[0]));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Deletes every task of every shard, in parallel.
+     *
+     * @throws TasksDAOException If any shard fails.
+     */
+    @Override
+    public void deleteTasks() throws TasksDAOException {
+        scatter((shard, dao) -> {
+            dao.deleteTasks();
+            return null;
+        });
+    }
+
+    /**
+     * Deletes a task from its shard.
+     *
+     * @param id The id of the task to delete.
+     * @throws TasksDAOException If the shard fails or has no such task.
+     */
+    @Override
+    public void deleteTask(int id) throws TasksDAOException {
+        if (localId(id) <= 0) {
+            throw new TasksDAOException("Deleting task failed, no task with id " + id);
+        }
+        shards[shardOf(id)].deleteTask(localId(id));
+    }
+
+    /**
+     * Deletes several tasks, one batch per shard, all shards in parallel. Ids that do not exist
+     * are skipped.
+     *
+     * @param ids The ids of the tasks to delete.
+     * @throws TasksDAOException If any shard fails.
+     */
+    @Override
+    public void deleteTasks(int... ids) throws TasksDAOException {
+        List<List<Integer>> parts = partition(ids.length, i -> shardOf(ids[i]), i -> localId(ids[i]));
+        scatter((shard, dao) -> {
+            int[] localIds = parts.get(shard).stream().mapToInt(Integer::intValue).filter(id -> id > 0).toArray();
+            if (localIds.length > 0) {
+                dao.deleteTasks(localIds);
+            }
+            return null;
+        });
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    /**
+     * Runs {@code call} on every shard in parallel and waits for all of them.
+     *
+     * @return the results, indexed by shard
+     * @throws TasksDAOException the first shard failure, by shard order
+     */
+    private <T> List<T> scatter(ShardCall<T> call) throws TasksDAOException {
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            int current = shard;
+            futures.add(executor.submit(() -> call.call(current, shards[current])));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        TasksDAOException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                results.add(null);
+                if (failure == null) {
+                    failure = e.getCause() instanceof TasksDAOException cause ? cause
+                            : new TasksDAOException("Error querying task shard", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new TasksDAOException("Interrupted while querying task shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Merges the id-ordered results of the shards, translated to global ids, into one id-ordered
+     * array of at most {@code limit} tasks.
+     */
+    private ITask[] merge(List<ITask[]> results, int limit) throws TasksDAOException {
+        int total = 0;
+        for (ITask[] result : results) {
+            total += result.length;
+        }
+        ITask[] merged = new ITask[Math.min(total, limit)];
+        int[] positions = new int[shards.length];
+        for (int i = 0; i < merged.length; i++) {
+            int best = -1;
+            long bestId = Long.MAX_VALUE;
+            for (int shard = 0; shard < shards.length; shard++) {
+                ITask[] result = results.get(shard);
+                if (positions[shard] < result.length) {
+                    long id = (long) result[positions[shard]].getId() * shards.length + shard;
+                    if (id < bestId) {
+                        bestId = id;
+                        best = shard;
+                    }
+                }
+            }
+            merged[i] = toGlobal(best, results.get(best)[positions[best]++]);
+        }
+        return merged;
+    }
+
+    /**
+     * Sorts {@code count} items by shard, preserving their order within each shard.
+     */
+    private <T> List<List<T>> partition(int count, IntUnaryOperator shardOfItem, IntFunction<T> item) {
+        List<List<T>> parts = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            parts.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            parts.get(shardOfItem.applyAsInt(i)).add(item.apply(i));
+        }
+        return parts;
+    }
+
+    /**
+     * @return a copy of a task read from {@code shard} carrying its global id; the shard's own
+     *         object may be shared with its cache, so it is not changed
+     */
+    private ITask toGlobal(int shard, ITask task) throws TasksDAOException {
+        if (task == null) {
+            return null;
+        }
+        return new Task(globalId(shard, task.getId()), task.getTitle(), task.getDescription(), task.getState());
+    }
+
+    /**
+     * @return a copy of {@code task} carrying its local id, leaving the caller's task unchanged
+     */
+    private ITask toLocal(ITask task) {
+        return new Task(localId(task.getId()), task.getTitle(), task.getDescription(), task.getState());
+    }
+
+    /**
+     * Stops the query threads and closes the connection pools opened by {@link #openDerby(Path, int)}.
+     * Shards passed to the constructor are left open.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        pools.forEach(ConnectionPool::close);
+    }
+}
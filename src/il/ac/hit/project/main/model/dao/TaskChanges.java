@@ -0,0 +1,20 @@
+package il.ac.hit.project.main.model.dao;
+
+/**
+ * The tasks that changed in a store since a given change version, as reported by
+ * {@link ITasksDAO#getChangesSince(long)}.
+ * <p>
+ * Change versions only grow. A caller remembers {@link #version()} and passes it to the next
+ * call, so every change is reported once. When the store cannot list every change since the
+ * given version (the version is unknown, too old, or too many tasks changed), the result is
+ * not {@link #complete()} and the caller must assume that any task may have changed.
+ *
+ * @param version  the change version the result is up to date with
+ * @param ids      the distinct ids of the inserted, updated and deleted tasks; empty when not complete
+ * @param complete whether {@code ids} lists every change since the given version
+ */
+public record TaskChanges(long version, int[] ids, boolean complete) {
+
+    // Version to pass when none is known yet; the result then only carries the current version
+    public static final long UNKNOWN_VERSION = -1;
+}
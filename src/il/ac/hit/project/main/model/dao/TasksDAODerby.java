@@ -5,22 +5,37 @@ import il.ac.hit.project.main.model.task.*;
 //Sql imports
 import java.sql.DriverManager;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.ResultSet;
 
 //Util imports
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.regex.Matcher;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.StreamSupport;
 
 import il.ac.hit.project.main.model.task.TaskState;
-import il.ac.hit.project.main.model.task.ToDoState;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
 
 /**
  * A concrete implementation of the {@code ITasksDAO} interface that interacts with
  * a Derby database to manage tasks. This class uses a Singleton pattern to ensure
- * a single instance exists and maintains a persistent database connection throughout
- * the application's lifecycle.
+ * a single instance exists and keeps a pool of database connections open throughout
+ * the application's lifecycle, so concurrent calls run on separate connections.
  */
 public class TasksDAODerby implements ITasksDAO {
     /*
@@ -28,11 +43,45 @@ public class TasksDAODerby implements ITasksDAO {
      * Given support for the inherited functions for handling tasks data objects through
      * the DerbyDB jdbc driver, using the embedded mode.
      * [TasksDAODerby] instance - Singleton object
-     * [Connection] connection - connection object to use to communicate with the DB
+     * [ConnectionPool] pool - connections used to communicate with the DB, each with its own statement cache
      * */
+    // Parameterized CRUD statements, compiled once per connection through the statement cache
+    private static final String SELECT_ALL_SQL = "SELECT * FROM tasks ORDER BY id ASC";
+    private static final String SELECT_PAGE_SQL = "SELECT * FROM tasks WHERE id > ? ORDER BY id ASC FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_BY_ID_SQL = "SELECT * FROM tasks WHERE id = ?";
+    private static final String SUMMARY_SQL = "SELECT COUNT(*), MAX(id) FROM tasks";
+    private static final String INSERT_SQL = "INSERT INTO tasks (title, description, state) VALUES (?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE tasks SET title = ?, description = ?, state = ? WHERE id = ?";
+    private static final String DELETE_ALL_SQL = "DELETE FROM tasks";
+    private static final String DELETE_BY_ID_SQL = "DELETE FROM tasks WHERE id = ?";
+    // Change log maintained by the triggers of schema version 3
+    private static final String CHANGE_RANGE_SQL = "SELECT MIN(seq), MAX(seq) FROM task_changes";
+    private static final String SELECT_CHANGES_SQL = "SELECT seq, task_id FROM task_changes WHERE seq > ? ORDER BY seq ASC FETCH FIRST ? ROWS ONLY";
+    private static final String PRUNE_CHANGES_SQL = "DELETE FROM task_changes WHERE seq <= ?";
+    // Queries that state filtering and title search push down to SQL, probed by getIndexUsageReport()
+    static final String SELECT_BY_STATE_SQL = "SELECT * FROM tasks WHERE state = ? ORDER BY id ASC";
+    static final String COUNT_BY_STATE_SQL = "SELECT COUNT(*) FROM tasks WHERE state = ?";
+    static final String SELECT_BY_TITLE_PREFIX_SQL = "SELECT * FROM tasks WHERE title_lower LIKE ? ORDER BY id ASC";
+    // Most change-log rows getChangesSince() reads; beyond that the caller reloads everything
+    public static final int MAX_CHANGES_PER_POLL = 1000;
+    // Change-log rows kept behind the newest one; older rows are pruned by pruneChangeLog()
+    public static final int CHANGE_LOG_RETENTION = 10_000;
+    // Rows this DAO writes between two automatic prunes of the change log
+    private static final int CHANGE_LOG_PRUNE_INTERVAL = 1000;
+    // Maximum number of rows written per transaction by the batch operations
+    private static final int BATCH_CHUNK_SIZE = 500;
+    // Rows fetched per round trip by streamTasks() unless another fetch size is requested
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    // Connections opened by the singleton; matches the worker threads of the view model
+    public static final int DEFAULT_POOL_SIZE = 8;
+
+    private static final Logger LOG = Logger.getLogger(TasksDAODerby.class.getName());
+
     // Singleton instance
     private static TasksDAODerby instance = null;
-    private final Connection connection;
+    private final ConnectionPool pool;
+    // Rows written since the change log was last pruned
+    private final AtomicLong changesSincePrune = new AtomicLong();
 
     /**
      * Private constructor to prevent direct instantiation
@@ -44,19 +93,43 @@ public class TasksDAODerby implements ITasksDAO {
         try {
             Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
             String DB_URL = "jdbc:derby:./taskDB;create=true";
-            this.connection = DriverManager.getConnection(DB_URL);
-            createTableIfNotExists(this.connection);
-        } catch (ClassNotFoundException | SQLException e) {
+            this.pool = new ConnectionPool(() -> DriverManager.getConnection(DB_URL), DEFAULT_POOL_SIZE);
+        } catch (ClassNotFoundException e) {
             throw new TasksDAOException("Error initializing DB connection.", e);
         }
+        initializeSchema();
     }
 
     // A separate, public constructor for integration tests
-    // This allows the test to manually provide a connection
+    // This allows the test to manually provide a connection; calls then take turns on it
     public TasksDAODerby(Connection connection) throws TasksDAOException {
-        this.connection = connection;
-        // The table creation logic can be handled here as well, if needed.
-        createTableIfNotExists(this.connection);
+        this(ConnectionPool.of(connection));
+    }
+
+    /**
+     * Creates a DAO over a caller-provided connection pool, for example one opened against
+     * another database or with a different size.
+     *
+     * @param pool the pool to lease connections from
+     * @throws TasksDAOException If the table cannot be created or migrated
+     */
+    public TasksDAODerby(ConnectionPool pool) throws TasksDAOException {
+        this.pool = pool;
+        initializeSchema();
+    }
+
+    /**
+     * Creates the table and applies pending migrations on a leased connection.
+     *
+     * @throws TasksDAOException If no connection can be leased, or the table cannot be created or migrated
+     */
+    private void initializeSchema() throws TasksDAOException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            createTableIfNotExists(lease.connection());
+            migrateSchema(lease.connection());
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error initializing DB connection.", e);
+        }
     }
 
     /**
@@ -92,6 +165,7 @@ public class TasksDAODerby implements ITasksDAO {
                 - title: a string with a maximum length of 255 characters
                 - description: a string with a maximum length of 1024 characters
                 - state: a string with a maximum length of 50 characters
+            Later schema versions are applied by the SchemaMigrator (e.g. state becomes a SMALLINT code).
             */
             String sql = "CREATE TABLE tasks (" +
                     "id INT PRIMARY KEY GENERATED ALWAYS AS IDENTITY, " +
@@ -111,23 +185,59 @@ public class TasksDAODerby implements ITasksDAO {
     }
 
     /**
-     * Converts a human-readable task state name into a corresponding TaskState instance.
-     * Implementation note: starts from a ToDoState and advances using {@code next()} to minimize
-     * additional allocations and keep state transitions consistent.
+     * Applies pending schema migrations (secondary indexes and later schema changes).
+     *
+     * @param connection The connection to the database to migrate.
+     * @throws TasksDAOException If a migration fails; the failed migration is rolled back.
+     * @see SchemaMigrator
+     */
+    private void migrateSchema(Connection connection) throws TasksDAOException {
+        try {
+            new SchemaMigrator(connection).migrate();
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error migrating schema", e);
+        }
+    }
+
+    /**
+     * Decodes a stored state code into its shared {@link TaskState} flyweight.
+     * The stored code is the state's {@link TaskState#getOrdinal() ordinal}.
      *
-     * @param stateStr the display name of the state to convert; must be one of the supported values
-     * @return a TaskState instance corresponding to {@code stateStr}
-     * @throws IllegalArgumentException if {@code stateStr} is not a recognized state name
+     * @param code the stored code
+     * @return the shared TaskState instance for {@code code}
+     * @throws SQLException if {@code code} is not a known state code
      */
-    private TaskState stateFromString(String stateStr) {
-        //Starting with a ToDoState and advancing it using the next function to save up on new instances
-        TaskState state = new ToDoState();
-        return switch (stateStr) {
-            case "To Do" -> state;
-            case "In Progress" -> state.next();
-            case "Completed" -> state.next().next();
-            default -> throw new IllegalArgumentException("Unknown state: " + stateStr);
-        };
+    private static TaskState stateFromCode(short code) throws SQLException {
+        if (code < 0 || code >= TaskStateFactory.count()) {
+            throw new SQLException("Unknown state code: " + code);
+        }
+        return TaskStateFactory.fromOrdinal(code);
+    }
+
+    /**
+     * Maps the current row of a {@code tasks} result set into a {@link Task}.
+     *
+     * @param resultSet a result set positioned on a valid row
+     * @return the task read from the row
+     * @throws SQLException if a column cannot be read
+     */
+    private ITask readTask(ResultSet resultSet) throws SQLException {
+        return new Task(
+                resultSet.getInt("id"),
+                resultSet.getString("title"),
+                resultSet.getString("description"),
+                stateFromCode(resultSet.getShort("state"))
+        );
+    }
+
+    /**
+     * Binds the title, description and state of a task to parameters 1-3 of an
+     * INSERT/UPDATE statement. Binding replaces the old manual quote escaping.
+     */
+    private void bindTaskColumns(PreparedStatement statement, ITask task) throws SQLException {
+        statement.setString(1, task.getTitle());
+        statement.setString(2, task.getDescription());
+        statement.setShort(3, (short) task.getState().getOrdinal());
     }
 
     /**
@@ -140,16 +250,14 @@ public class TasksDAODerby implements ITasksDAO {
     @Override
     public ITask[] getTasks() throws TasksDAOException {
         List<ITask> tasks = new ArrayList<>();
-        String sql = "SELECT * FROM tasks ORDER BY id ASC";
-        //tryWith block, automatically closes AutoCloseable classes
-        try (ResultSet resultSet = runQuery(sql)) {
-            while (resultSet.next()) {
-                tasks.add(new Task(
-                        resultSet.getInt("id"),
-                        resultSet.getString("title"),
-                        resultSet.getString("description"),
-                        stateFromString(resultSet.getString("state"))
-                ));
+        //The lease gives this thread exclusive use of the connection and its cached statements
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement statement = lease.statements().get(SELECT_ALL_SQL);
+            //tryWith block, automatically closes AutoCloseable classes
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    tasks.add(readTask(resultSet));
+                }
             }
         } catch (SQLException e) {
             throw new TasksDAOException("Error retrieving tasks", e);
@@ -158,37 +266,302 @@ public class TasksDAODerby implements ITasksDAO {
         return tasks.toArray(ITask[]::new );
     }
 
+    /**
+     * Retrieves one page of tasks after the given id. The {@code id > ?} predicate is answered
+     * by the primary key index, so the cost of a page does not depend on its position in the table.
+     *
+     * @param afterId Only tasks with an id greater than this value are returned.
+     * @param limit Maximum number of tasks to return.
+     * @return {@code ITask[]} The page of tasks ordered by id.
+     * @throws TasksDAOException If there is a database access error when retrieving the page.
+     */
+    @Override
+    public ITask[] getTasksPage(int afterId, int limit) throws TasksDAOException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        List<ITask> tasks = new ArrayList<>(limit);
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement statement = lease.statements().get(SELECT_PAGE_SQL);
+            statement.setInt(1, afterId);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    tasks.add(readTask(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error retrieving tasks page", e);
+        }
+        return tasks.toArray(ITask[]::new);
+    }
+
+    /**
+     * Counts the tasks and reads the highest id in one query; both are answered from the primary
+     * key index without reading the rows.
+     *
+     * @return the summary of the tasks table
+     * @throws TasksDAOException If there is a database access error when running the query.
+     */
+    @Override
+    public TasksSummary getSummary() throws TasksDAOException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement statement = lease.statements().get(SUMMARY_SQL);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                //MAX of an empty table is NULL, which getInt reads as 0
+                return new TasksSummary(resultSet.getInt(1), resultSet.getInt(2));
+            }
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error summarizing tasks", e);
+        }
+    }
+
+    /**
+     * Reads the change log that the {@code tasks} triggers fill on every insert, update and delete,
+     * whichever process made it.
+     * <p>
+     * When nothing changed this costs one query answered from the log's primary key index.
+     * Otherwise at most {@value #MAX_CHANGES_PER_POLL} rows after {@code version} are read; more
+     * changes than that, or a version older than the retained log, give an incomplete result.
+     * Writes prune the log down to about the newest {@value #CHANGE_LOG_RETENTION} rows (see
+     * {@link #pruneChangeLog()}), so a caller that polls less often than that many changes happen
+     * also gets an incomplete result. Polling only reads, so pollers never lock the log.
+     * </p>
+     *
+     * @param version The version of the previous result, or {@link TaskChanges#UNKNOWN_VERSION}.
+     * @return the changes since {@code version}; never null
+     * @throws TasksDAOException If there is a database access error when reading the log.
+     */
+    @Override
+    public TaskChanges getChangesSince(long version) throws TasksDAOException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            long oldest;
+            long newest;
+            try (ResultSet resultSet = lease.statements().get(CHANGE_RANGE_SQL).executeQuery()) {
+                resultSet.next();
+                //MIN and MAX of an empty log are NULL, which getLong reads as 0
+                oldest = resultSet.getLong(1);
+                newest = resultSet.getLong(2);
+            }
+            //Rows after the caller's version were pruned, or the log was reset since
+            if (version < 0 || version > newest || oldest > version + 1) {
+                return new TaskChanges(newest, new int[0], false);
+            }
+            if (version == newest) {
+                return new TaskChanges(version, new int[0], true);
+            }
+            PreparedStatement statement = lease.statements().get(SELECT_CHANGES_SQL);
+            statement.setLong(1, version);
+            statement.setInt(2, MAX_CHANGES_PER_POLL + 1);
+            Set<Integer> ids = new LinkedHashSet<>();
+            long last = version;
+            int rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    last = resultSet.getLong(1);
+                    ids.add(resultSet.getInt(2));
+                    rows++;
+                }
+            }
+            if (rows > MAX_CHANGES_PER_POLL) {
+                return new TaskChanges(Math.max(last, newest), new int[0], false);
+            }
+            return new TaskChanges(last, ids.stream().mapToInt(Integer::intValue).toArray(), true);
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error reading task changes", e);
+        }
+    }
+
+    /**
+     * Deletes the change-log rows older than the newest {@value #CHANGE_LOG_RETENTION}. Writes call
+     * this every {@value #CHANGE_LOG_PRUNE_INTERVAL} rows they change; it can also be run as
+     * maintenance, e.g. after other processes wrote to the same database.
+     *
+     * @return the number of rows deleted from the log
+     * @throws TasksDAOException If there is a database access error when pruning the log.
+     */
+    public int pruneChangeLog() throws TasksDAOException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            return pruneChangeLog(lease);
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error pruning task changes", e);
+        }
+    }
+
+    private int pruneChangeLog(ConnectionPool.Lease lease) throws SQLException {
+        changesSincePrune.set(0);
+        long oldest;
+        long newest;
+        try (ResultSet resultSet = lease.statements().get(CHANGE_RANGE_SQL).executeQuery()) {
+            resultSet.next();
+            oldest = resultSet.getLong(1);
+            newest = resultSet.getLong(2);
+        }
+        if (newest - oldest < CHANGE_LOG_RETENTION) {
+            return 0;
+        }
+        PreparedStatement prune = lease.statements().get(PRUNE_CHANGES_SQL);
+        prune.setLong(1, newest - CHANGE_LOG_RETENTION);
+        return prune.executeUpdate();
+    }
+
+    /**
+     * Counts rows written through {@code lease} and prunes the change log once every
+     * {@value #CHANGE_LOG_PRUNE_INTERVAL} of them. The write itself is already done, so a failed
+     * prune is only logged; the next one retries.
+     */
+    private void pruneChangeLogIfDue(ConnectionPool.Lease lease, int changedRows) {
+        if (changesSincePrune.addAndGet(changedRows) < CHANGE_LOG_PRUNE_INTERVAL) {
+            return;
+        }
+        try {
+            pruneChangeLog(lease);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Error pruning task changes", e);
+        }
+    }
+
+    /**
+     * Streams all tasks over an open database cursor using {@link #DEFAULT_FETCH_SIZE}.
+     *
+     * @return a lazily populated stream of all tasks ordered by id; must be closed by the caller
+     * @throws TasksDAOException if the query cannot be executed
+     * @see #streamTasks(int)
+     */
+    @Override
+    public Stream<ITask> streamTasks() throws TasksDAOException {
+        return streamTasks(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Streams all tasks over an open database cursor. Rows are read only as the stream is
+     * consumed, so memory use does not depend on the table size.
+     * <p>
+     * The cursor uses its own statement rather than a cached one, since it stays open after this
+     * method returns, and its connection stays leased until the stream is closed. Closing the
+     * stream closes the cursor and its statement and gives the connection back to the pool.
+     * </p>
+     *
+     * @param fetchSize number of rows the driver should fetch per round trip; must be positive
+     * @return a lazily populated stream of all tasks ordered by id; must be closed by the caller
+     * @throws TasksDAOException if the query cannot be executed
+     */
+    public Stream<ITask> streamTasks(int fetchSize) throws TasksDAOException {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        ConnectionPool.Lease lease = null;
+        PreparedStatement statement = null;
+        try {
+            lease = pool.lease();
+            statement = lease.connection().prepareStatement(SELECT_ALL_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY, ResultSet.HOLD_CURSORS_OVER_COMMIT);
+            statement.setFetchSize(fetchSize);
+            ResultSet resultSet = statement.executeQuery();
+            PreparedStatement cursorStatement = statement;
+            ConnectionPool.Lease cursorLease = lease;
+            return StreamSupport.stream(new ResultSetSpliterator(resultSet), false)
+                    .onClose(() -> {
+                        try {
+                            resultSet.close();
+                            cursorStatement.close();
+                        } catch (SQLException e) {
+                            System.err.println("Error closing task cursor: " + e.getMessage());
+                        } finally {
+                            cursorLease.close();
+                        }
+                    });
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            if (lease != null) {
+                lease.close();
+            }
+            throw new TasksDAOException("Error streaming tasks", e);
+        }
+    }
+
+    /**
+     * Spliterator advancing an open {@code tasks} result set one row per call.
+     * Read errors are rethrown as {@link IllegalStateException}, as documented by
+     * {@link ITasksDAO#streamTasks()}.
+     */
+    private class ResultSetSpliterator extends Spliterators.AbstractSpliterator<ITask> {
+        private final ResultSet resultSet;
+
+        ResultSetSpliterator(ResultSet resultSet) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ITask> action) {
+            try {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                action.accept(readTask(resultSet));
+                return true;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error reading streamed tasks", e);
+            }
+        }
+    }
+
+    /**
+     * Closes a statement, ignoring a {@code null} reference and logging close failures.
+     */
+    private void closeQuietly(Statement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing statement: " + e.getMessage());
+        }
+    }
+
     /**
      * Retrieves a task from the database with the given id.
      *
      * @param id The id of the task to retrieve.
+     * @return The task with the given id.
+     * @throws TasksDAOException If there is a database access error when retrieving a task, or no
+     * task has the given id (see {@link #findTask(int)} for a lookup that does not throw).
+     */
+    @Override
+    public ITask getTask(int id) throws TasksDAOException {
+        ITask task = findTask(id);
+        if (task == null) {
+            //Explicit declaring that a task with that id does not exist.
+            throw new TasksDAOException("No task with id " + id);
+        }
+        return task;
+    }
+
+    /**
+     * Retrieves a task from the database with the given id, without throwing when it does not exist.
+     *
+     * @param id The id of the task to retrieve.
      * @return The task with the given id, or null if the task does not exist.
      * @throws TasksDAOException If there is a database access error when retrieving a task.
      */
     @Override
-    public ITask getTask(int id) throws TasksDAOException {
-        //Select a specific task
-        String sql = "SELECT * FROM tasks WHERE id = " + id;
-        try(ResultSet resultSet = runQuery(sql))
-        {
-            //If we find any results... we return to a task.
-            if (resultSet.next()) {
-                return new Task(
-                        resultSet.getInt("id"),
-                        resultSet.getString("title"),
-                        resultSet.getString("description"),
-                        stateFromString(resultSet.getString("state"))
-                );
-            }
-            else{
-                //Explicit declaring that a task with that id does not exist.
-                throw new TasksDAOException("No task with id " + id);
+    public ITask findTask(int id) throws TasksDAOException {
+        ITask task;
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            //Select a specific task
+            PreparedStatement statement = lease.statements().get(SELECT_BY_ID_SQL);
+            statement.setInt(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                //If we find any results... we return to a task.
+                task = resultSet.next() ? readTask(resultSet) : null;
             }
-
         } catch (SQLException e) {
             throw new TasksDAOException("Error retrieving task", e);
         }
-
+        return task;
     }
 
     /**
@@ -199,17 +572,12 @@ public class TasksDAODerby implements ITasksDAO {
      */
     @Override
     public void addTask(ITask task) throws TasksDAOException {
-        //Clean data to avoid SQL injection
-        String title = task.getTitle().replace("'", "''");
-        String description = task.getDescription().replace("'", "''");
-        String state = task.getState().getDisplayName();
-
-        //Insert new task
-        String sql = "INSERT INTO tasks (title, description, state) " +
-                "VALUES ('" + title + "', '" + description + "', '" + state+ "')";
-        try {
-            int newId = runInsert(sql);
-            ((Task) task).setId(newId);
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            //Insert new task, values are bound as parameters so no escaping is needed
+            PreparedStatement statement = lease.statements().getReturningKeys(INSERT_SQL);
+            bindTaskColumns(statement, task);
+            ((Task) task).setId(runInsert(statement));
+            pruneChangeLogIfDue(lease, 1);
         } catch (SQLException e) {
             throw new TasksDAOException("Error adding task", e);
         }
@@ -223,19 +591,12 @@ public class TasksDAODerby implements ITasksDAO {
      */
     @Override
     public void updateTask(ITask task) throws TasksDAOException {
-        //Update task
-        String title = task.getTitle().replace("'", "''");
-        String description = task.getDescription().replace("'", "''");
-        String state = task.getState().getDisplayName();
-
-        String sql = "UPDATE tasks SET " +
-                "title = '" + title + "', " +
-                "description = '" + description + "', " +
-                "state = '" + state + "' " +
-                "WHERE id = " + task.getId();
-
-        try {
-            runUpdate(sql);
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            //Update task
+            PreparedStatement statement = lease.statements().get(UPDATE_SQL);
+            bindTaskColumns(statement, task);
+            statement.setInt(4, task.getId());
+            pruneChangeLogIfDue(lease, statement.executeUpdate());
         } catch (SQLException e) {
             throw new TasksDAOException("Error updating task", e);
         }
@@ -249,8 +610,8 @@ public class TasksDAODerby implements ITasksDAO {
     @Override
     public void deleteTasks() throws TasksDAOException {
         //Delete all tasks
-        try {
-            runUpdate( "DELETE FROM tasks");
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            pruneChangeLogIfDue(lease, lease.statements().get(DELETE_ALL_SQL).executeUpdate());
         } catch (SQLException e) {
             throw new TasksDAOException("Error deleting all tasks", e);
         }
@@ -264,60 +625,270 @@ public class TasksDAODerby implements ITasksDAO {
      */
     @Override
     public void deleteTask(int id) throws TasksDAOException {
-        String sql = "DELETE FROM tasks WHERE id = " + id;
-        try {
-
-            int affectedRows = runUpdate(sql);
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            PreparedStatement statement = lease.statements().get(DELETE_BY_ID_SQL);
+            statement.setInt(1, id);
+            int affectedRows = statement.executeUpdate();
             if (affectedRows == 0) {
                 throw new SQLException("Deleting task failed, no rows affected.");
             }
+            pruneChangeLogIfDue(lease, affectedRows);
         } catch (SQLException e) {
             throw new TasksDAOException("Error deleting task", e);
         }
     }
 
     /**
-     * Run a query (SELECT) and return its ResultSet.
-     * The caller is responsible for processing the ResultSet.
+     * Adds several tasks, committing once per chunk of {@value #BATCH_CHUNK_SIZE} rows instead of
+     * once per row. Each chunk is atomic; a failure rolls back the current chunk only.
+     * <p>
+     * Rows are inserted one statement at a time inside the chunk transaction, because Derby
+     * reports only the last generated key of an {@code executeBatch()} call.
+     * </p>
+     *
+     * @param tasks The tasks to add; their ids are updated with the generated keys.
+     * @return The generated ids, in the same order as {@code tasks}.
+     * @throws TasksDAOException If there is a database access error when adding the tasks.
      */
-    private ResultSet runQuery(String sql) throws SQLException {
-        Statement statement = connection.createStatement();
-        return statement.executeQuery(sql); // stmt will be closed when ResultSet is closed
+    @Override
+    public int[] addTasks(ITask... tasks) throws TasksDAOException {
+        int[] ids = new int[tasks.length];
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            for (int from = 0; from < tasks.length; from += BATCH_CHUNK_SIZE) {
+                int to = Math.min(from + BATCH_CHUNK_SIZE, tasks.length);
+                int chunkStart = from;
+                runInTransaction(lease.connection(), () -> {
+                    PreparedStatement statement = lease.statements().getReturningKeys(INSERT_SQL);
+                    for (int i = chunkStart; i < to; i++) {
+                        bindTaskColumns(statement, tasks[i]);
+                        ids[i] = runInsert(statement);
+                    }
+                });
+                //Only expose the ids once their chunk is committed
+                for (int i = chunkStart; i < to; i++) {
+                    ((Task) tasks[i]).setId(ids[i]);
+                }
+                pruneChangeLogIfDue(lease, to - chunkStart);
+            }
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error adding tasks", e);
+        }
+        return ids;
     }
 
     /**
-     * Run an update (INSERT, UPDATE, DELETE).
+     * Updates several tasks using JDBC batching, one transaction per chunk of
+     * {@value #BATCH_CHUNK_SIZE} rows.
+     *
+     * @param tasks The tasks to update.
+     * @throws TasksDAOException If there is a database access error when updating the tasks.
      */
-    private int runUpdate(String sql) throws SQLException {
-        try (Statement statement = connection.createStatement()) {
-            return statement.executeUpdate(sql);
+    @Override
+    public void updateTasks(ITask... tasks) throws TasksDAOException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            for (int from = 0; from < tasks.length; from += BATCH_CHUNK_SIZE) {
+                int to = Math.min(from + BATCH_CHUNK_SIZE, tasks.length);
+                int chunkStart = from;
+                runInTransaction(lease.connection(), () -> {
+                    PreparedStatement statement = lease.statements().get(UPDATE_SQL);
+                    try {
+                        for (int i = chunkStart; i < to; i++) {
+                            bindTaskColumns(statement, tasks[i]);
+                            statement.setInt(4, tasks[i].getId());
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    } finally {
+                        //Never leave queued rows on the cached statement for the next holder
+                        statement.clearBatch();
+                    }
+                });
+                pruneChangeLogIfDue(lease, to - chunkStart);
+            }
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error updating tasks", e);
         }
     }
 
     /**
-     * Executes an INSERT SQL statement and returns the auto-generated primary key.
+     * Deletes the tasks with the given ids using JDBC batching, one transaction per chunk of
+     * {@value #BATCH_CHUNK_SIZE} ids. Ids that do not exist are skipped.
+     *
+     * @param ids The ids of the tasks to delete.
+     * @throws TasksDAOException If there is a database access error when deleting the tasks.
+     */
+    @Override
+    public void deleteTasks(int... ids) throws TasksDAOException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            for (int from = 0; from < ids.length; from += BATCH_CHUNK_SIZE) {
+                int to = Math.min(from + BATCH_CHUNK_SIZE, ids.length);
+                int chunkStart = from;
+                runInTransaction(lease.connection(), () -> {
+                    PreparedStatement statement = lease.statements().get(DELETE_BY_ID_SQL);
+                    try {
+                        for (int i = chunkStart; i < to; i++) {
+                            statement.setInt(1, ids[i]);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    } finally {
+                        statement.clearBatch();
+                    }
+                });
+                pruneChangeLogIfDue(lease, to - chunkStart);
+            }
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error deleting tasks", e);
+        }
+    }
+
+    /**
+     * A unit of JDBC work executed by {@link #runInTransaction(Connection, SqlWork)}.
+     */
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Runs the given work as a single transaction: autocommit is switched off, the work is
+     * committed on success or rolled back on failure, and autocommit is restored afterwards.
+     * <p>
+     * The connection must be leased by the calling thread, so no other work can join the
+     * open transaction.
+     * </p>
+     *
+     * @param connection the leased connection to run the transaction on
+     * @param work the statements to run
+     * @throws SQLException if the work or the commit fails (after rolling back)
+     */
+    private void runInTransaction(Connection connection, SqlWork work) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Reports which index Derby's optimizer picks for each query that the DAO runs or that
+     * state filtering and title search push down to SQL.
+     * <p>
+     * Every probe query is executed once with runtime statistics switched on, and the access
+     * path is read from the recorded execution plan. Plans depend on table statistics, so
+     * a query over a tiny table may legitimately use a table scan.
+     * </p>
+     *
+     * @return the SQL of every probed query mapped to the index or constraint it used, or to
+     *         {@code "table scan"}; in probe order
+     * @throws TasksDAOException If a query or the statistics cannot be read.
+     */
+    public Map<String, String> getIndexUsageReport() throws TasksDAOException {
+        Map<String, String> report = new LinkedHashMap<>();
+        //Runtime statistics are per connection, so every probe runs on the same leased connection
+        try (ConnectionPool.Lease lease = pool.lease();
+             Statement statistics = lease.connection().createStatement()) {
+            Connection connection = lease.connection();
+            statistics.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+            try {
+                report.put(SELECT_ALL_SQL, explainAccessPath(connection, statistics, SELECT_ALL_SQL));
+                report.put(SELECT_BY_ID_SQL, explainAccessPath(connection, statistics, SELECT_BY_ID_SQL, 1));
+                report.put(SELECT_PAGE_SQL, explainAccessPath(connection, statistics, SELECT_PAGE_SQL, 0, 1));
+                report.put(SELECT_BY_STATE_SQL, explainAccessPath(connection, statistics, SELECT_BY_STATE_SQL, (short) 0));
+                report.put(COUNT_BY_STATE_SQL, explainAccessPath(connection, statistics, COUNT_BY_STATE_SQL, (short) 0));
+                report.put(SELECT_BY_TITLE_PREFIX_SQL, explainAccessPath(connection, statistics, SELECT_BY_TITLE_PREFIX_SQL, "a%"));
+            } finally {
+                statistics.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(0)");
+            }
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error reporting index usage", e);
+        }
+        return report;
+    }
+
+    /**
+     * Runs a query to completion and extracts the access path from its runtime statistics.
+     * Must be called with runtime statistics enabled on the connection.
+     */
+    private String explainAccessPath(Connection connection, Statement statistics, String sql, Object... parameters)
+            throws SQLException {
+        try (PreparedStatement probe = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                probe.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = probe.executeQuery()) {
+                while (resultSet.next()) {
+                    // drain, so the plan reflects a full execution
+                }
+            }
+        }
+        String plan;
+        try (ResultSet resultSet = statistics.executeQuery("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()")) {
+            plan = resultSet.next() ? resultSet.getString(1) : "";
+        }
+        Matcher index = INDEX_IN_PLAN.matcher(plan);
+        if (index.find()) {
+            return index.group(1).equals("index") ? index.group(2) : "primary key";
+        }
+        return plan.contains("Table Scan") ? "table scan" : "unknown";
+    }
+
+    // Matches "... using index IDX_NAME ..." or "... using constraint SQL... ..." in a Derby plan
+    private static final Pattern INDEX_IN_PLAN = Pattern.compile("Index Scan ResultSet for \\w+ using (index|constraint) (\\S+)");
+
+    /**
+     * Returns the prepared-statement cache of the connection the calling thread would lease.
+     * Every pooled connection has its own cache; for a DAO built around a single connection
+     * this is the only one. Exposed for monitoring (hit rate, compile count).
+     *
+     * @return the statement cache; never null
+     * @throws TasksDAOException If no connection can be leased.
+     */
+    public PreparedStatementCache getStatementCache() throws TasksDAOException {
+        try (ConnectionPool.Lease lease = pool.lease()) {
+            return lease.statements();
+        } catch (SQLException e) {
+            throw new TasksDAOException("Error leasing a connection", e);
+        }
+    }
+
+    /**
+     * Returns the connection pool of this DAO, exposed for monitoring (active and idle
+     * connections, waits, timeouts) and for closing the connections on shutdown.
+     *
+     * @return the connection pool; never null
+     */
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    /**
+     * Executes a bound INSERT statement and returns the auto-generated primary key.
      * <p>
      * This method assumes that the target table has an auto-increment (identity) column.
      * It is mainly used when inserting new tasks, so the caller can update the in-memory
      * task object with the generated ID from the database.
      * </p>
      *
-     * @param sql the SQL INSERT statement to execute
+     * @param statement the prepared INSERT statement, created with generated keys and already bound
      * @return the auto-generated key (e.g., task ID)
      * @throws SQLException if the insert fails, no rows are affected, or no key is returned
      */
-    private int runInsert(String sql) throws SQLException {
-        try (Statement statement = connection.createStatement()) {
-            int affectedRows = statement.executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
-            if (affectedRows == 0) {
-                throw new SQLException("Insert failed, no rows affected.");
-            }
-            try (ResultSet keys = statement.getGeneratedKeys()) {
-                if (keys.next()) {
-                    return keys.getInt(1);
-                }
-                throw new SQLException("Insert failed, no ID obtained.");
+    private int runInsert(PreparedStatement statement) throws SQLException {
+        int affectedRows = statement.executeUpdate();
+        if (affectedRows == 0) {
+            throw new SQLException("Insert failed, no rows affected.");
+        }
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (keys.next()) {
+                return keys.getInt(1);
             }
+            throw new SQLException("Insert failed, no ID obtained.");
         }
     }
-}
\ No newline at end of file
+}
@@ -1,86 +1,548 @@
 package il.ac.hit.project.main.model.dao;
 
+import il.ac.hit.project.main.model.dao.cache.BoundedCache;
+import il.ac.hit.project.main.model.dao.cache.CacheStats;
+import il.ac.hit.project.main.model.dao.cache.ICache;
+import il.ac.hit.project.main.model.dao.cache.IdBitSet;
+import il.ac.hit.project.main.model.dao.cache.SingleFlight;
+import il.ac.hit.project.main.model.dao.cache.TaskSnapshot;
+import il.ac.hit.project.main.model.dao.cache.TaskSnapshotFile;
 import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * A proxy class that caches queries from the database to improve performance.
  * It implements the ITasksDAO interface and delegates queries to the underlying
  * ITasksDAO instance, while storing the results in a cache to avoid repeated
  * database queries.
+ * <p>
+ * Both caches are bounded, so heap usage does not grow with the table: the per-task cache
+ * evicts according to its {@link il.ac.hit.project.main.model.dao.cache.IEvictionPolicy}, and
+ * the full-table snapshot is only kept while the table has at most {@code maxSnapshotTasks} rows.
+ * <p>
+ * The snapshot also ages, so rows written by other processes eventually show up. Once it is
+ * older than the refresh-after time, readers keep being served the current snapshot while a
+ * single background reload replaces it atomically. A snapshot older than the expire-after time
+ * is no longer served; the next reader reloads it synchronously.
+ * <p>
+ * Concurrent misses are coalesced: threads that miss the same task id, or that all need the full
+ * table, share one in-flight call to the underlying DAO instead of each querying it.
+ * <p>
+ * The snapshot is an immutable {@link TaskSnapshot} ordered by id. Reads hand out its array
+ * without copying; this proxy's writes build the next version and swap it in. The caches hold
+ * their own copies of written tasks, and {@link #getTask(int)} and {@link #findTask(int)} return
+ * copies, so callers may edit a task they wrote or looked up. The tasks of {@link #getTasks()}
+ * and {@link #getTasksPage(int, int)} are the cached ones, shared by every reader, and must not
+ * be changed.
+ * <p>
+ * Optionally, updates and deletes are written behind (see {@link #enableWriteBehind(Duration, int)}):
+ * the caches change at once, while the database write waits in a per-id queue where a later write
+ * of the same task replaces an earlier one. The queue is flushed in batches on a timer, when it
+ * reaches a size threshold, before any read that has to go to the database, and on {@link #shutdown()}.
+ * <p>
+ * Lookups of missing ids are answered in memory where possible: by the snapshot, which holds
+ * the whole table; by an {@link IdBitSet} of the ids read with the table, kept even when the table
+ * is too large for a snapshot; and by a small cache of ids the DAO recently reported missing.
+ * {@link #findTask(int)} reports a missing task with null, without building an exception.
+ * <p>
+ * Other processes sharing the database are noticed through the DAO's change log (see
+ * {@link ITasksDAO#getChangesSince(long)}): {@link #pollChanges()}, run on a timer by
+ * {@link #enableChangePolling(Duration)}, invalidates the cached copies of exactly the tasks that
+ * changed and patches them into the snapshot; only when the log cannot list every change is
+ * everything dropped. The snapshot's age limits stay in force as a backstop for changes the log
+ * reports late, such as a transaction that commits after a later one.
+ * <p>
+ * The snapshot can outlive the process: {@link #saveSnapshot(Path)} writes it to a file on
+ * shutdown and {@link #warmStart(Path)} maps it back on the next start, so the first
+ * {@link #getTasks()} does not wait for the database. A warm snapshot is checked in the
+ * background against the table's row count and highest id, and reloaded if they differ; the
+ * listeners added with {@link #addWarmStartRejectionListener(Runnable)} are then told to read
+ * the tasks again.
+ * <p>
+ * Cache behavior is reported through {@link #getStats()}, which {@link TasksDAOProxyMonitor}
+ * publishes over JMX, and through a {@code java.util.logging} logger named after this class:
+ * loads and writes are logged at {@code FINE}, so they cost nothing unless that level is
+ * enabled, and failures at {@code WARNING}.
 
  * <li>tasksDAO: The ITasksDAO instance to delegate queries to.</li>
- * <li>cache: A ConcurrentHashMap to store cached results.</li>
+ * <li>cache: A size-bounded cache of individually fetched and written tasks.</li>
+ * <li>snapshot: The full-table snapshot, or null while none is loaded. Replaced as a whole by
+ *     reloads and by this proxy's own writes, never modified.</li>
+ * <li>pendingWrites: The latest unflushed write of each task id while write-behind is on.</li>
+ * <li>knownIds / missingIds: What is known about ids that do not exist.</li>
 
  */
 public class TasksDAOProxy implements ITasksDAO {
 
-    private final ITasksDAO tasksDAO;
-    private final ConcurrentHashMap<Integer, ITask> cache = new ConcurrentHashMap<>();
+    // Entries kept by the per-task cache of the single-argument constructor
+    public static final int DEFAULT_MAX_CACHED_TASKS = 10_000;
+    // Largest table the single-argument constructor keeps as a full snapshot
+    public static final int DEFAULT_MAX_SNAPSHOT_TASKS = 100_000;
+    // Snapshot age after which reads trigger a background reload
+    public static final Duration DEFAULT_SNAPSHOT_REFRESH_AFTER = Duration.ofSeconds(30);
+    // Snapshot age after which it is no longer served
+    public static final Duration DEFAULT_SNAPSHOT_EXPIRE_AFTER = Duration.ofMinutes(5);
+    // Time between write-behind flushes suggested for interactive use
+    public static final Duration DEFAULT_WRITE_BEHIND_INTERVAL = Duration.ofSeconds(1);
+    // Number of pending writes that triggers a write-behind flush before the timer does
+    public static final int DEFAULT_WRITE_BEHIND_THRESHOLD = 100;
+    // System property that turns write-behind on in the application, e.g. -Dtasks.writeBehind=true
+    public static final String WRITE_BEHIND_PROPERTY = "tasks.writeBehind";
+    // Ids the DAO reported missing that are remembered at a time
+    public static final int DEFAULT_MAX_MISSING_IDS = 1024;
+    // How long an id the DAO reported missing is answered as missing without asking again
+    public static final Duration DEFAULT_MISSING_ID_TTL = Duration.ofSeconds(10);
+    // System property naming the warm-start snapshot file of the application
+    public static final String SNAPSHOT_FILE_PROPERTY = "tasks.snapshotFile";
+    // Warm-start snapshot file used when the property is not set, next to the database directory
+    public static final String DEFAULT_SNAPSHOT_FILE = "taskDB.snapshot";
+    // Time between two polls of the DAO's change log suggested for interactive use
+    public static final Duration DEFAULT_CHANGE_POLL_INTERVAL = Duration.ofSeconds(2);
+    // System property that turns change polling on in the application, e.g. -Dtasks.pollChanges=true
+    public static final String CHANGE_POLL_PROPERTY = "tasks.pollChanges";
+    // Largest number of pending writes sent to the DAO in one batch
+    private static final int MAX_FLUSH_BATCH = 500;
+
+    /**
+     * The ids present when the table was last read, and when that was; trusted as long as a
+     * snapshot of the same read would be.
+     */
+    private record KnownIds(IdBitSet ids, long loadedAtNanos) {}
+
+    /**
+     * A write waiting to be flushed: the latest version of a task, or its deletion.
+     */
+    private record PendingWrite(int id, ITask task) {
+        static PendingWrite update(ITask task) {return new PendingWrite(task.getId(), task);}
+        static PendingWrite delete(int id) {return new PendingWrite(id, null);}
+        boolean isDelete() {return task == null;}
+    }
+
+    //Only replaced by limitConcurrency(), which wraps it
+    private volatile ITasksDAO tasksDAO;
+    private final ICache<Integer, ITask> cache;
     //Separate cache for all tasks - once gotten all the tasks at once, no need to retrieve separate tasks.
-    private final ConcurrentHashMap<Integer, ITask> allCache = new ConcurrentHashMap<>();
+    //Only ever set to a whole table; a partial table must never be served as the full table
+    private volatile TaskSnapshot snapshot;
+    private volatile KnownIds knownIds;
+    //Id -> System.nanoTime() when the DAO reported it missing
+    private final BoundedCache<Integer, Long> missingIds = BoundedCache.lru(DEFAULT_MAX_MISSING_IDS);
+    private volatile long missingIdTtlNanos = DEFAULT_MISSING_ID_TTL.toNanos();
+    private final int maxSnapshotTasks;
+    private volatile long refreshAfterNanos = DEFAULT_SNAPSHOT_REFRESH_AFTER.toNanos();
+    private volatile long expireAfterNanos = DEFAULT_SNAPSHOT_EXPIRE_AFTER.toNanos();
+
+    //Guards snapshot replacement, and caching of loaded tasks, against this proxy's writes; writeEpoch counts those writes
+    private final Object snapshotLock = new Object();
+    private long writeEpoch = 0;
+    private long snapshotVersion = 0;
+    private final AtomicBoolean refreshInFlight = new AtomicBoolean(false);
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(daemonThreads("tasks-snapshot-refresh"));
+
+    //Write-behind queue, guarded by itself together with the writeBehind flag
+    private final Map<Integer, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private boolean writeBehind = false;
+    private int writeBehindThreshold;
+    private volatile ScheduledExecutorService writeBehindExecutor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    //Serializes flushes with each other and with deleteTasks()
+    private final Object flushLock = new Object();
+
+    //Change version of the DAO this proxy is up to date with, guarded by changeLock, which also serializes polls
+    private final Object changeLock = new Object();
+    private long changeVersion = TaskChanges.UNKNOWN_VERSION;
+    private volatile ScheduledExecutorService changePollExecutor;
+
+    //Coalesce concurrent misses into one DAO call per task id, and one full-table load
+    private final SingleFlight<Integer, ITask> taskLoads = new SingleFlight<>();
+    private final SingleFlight<String, TaskSnapshot> tableLoads = new SingleFlight<>();
+    private static final String FULL_TABLE = "tasks";
+
+    private static final Logger LOG = Logger.getLogger(TasksDAOProxy.class.getName());
+
+    private final LongAdder taskHits = new LongAdder();
+    private final LongAdder taskMisses = new LongAdder();
+    private final LongAdder missingHits = new LongAdder();
+    private final LongAdder taskDatabaseLoads = new LongAdder();
+    private final LongAdder taskLoadNanos = new LongAdder();
+    private final LongAdder snapshotHits = new LongAdder();
+    private final LongAdder snapshotMisses = new LongAdder();
+    private final LongAdder snapshotDrops = new LongAdder();
+    private final LongAdder snapshotRefreshes = new LongAdder();
+    private final LongAdder snapshotExpirations = new LongAdder();
+    private final LongAdder snapshotDatabaseLoads = new LongAdder();
+    private final LongAdder snapshotLoadNanos = new LongAdder();
+    private final LongAdder snapshotRebuilds = new LongAdder();
+    //Told when a warm-start snapshot turns out to be stale, so whoever showed it can read the tasks again
+    private final List<Runnable> warmStartRejectionListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder warmStarts = new LongAdder();
+    private final LongAdder warmStartRejections = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LongAdder coalescedWrites = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder changePolls = new LongAdder();
+    private final LongAdder changedTasks = new LongAdder();
+    private final LongAdder fullInvalidations = new LongAdder();
 
 
     /**
      * Constructs a new TasksDAOProxy instance with the given
-     * ITasksDAO instance to delegate queries to.
+     * ITasksDAO instance to delegate queries to, a frequency-aware (W-TinyLFU) per-task cache of
+     * {@value #DEFAULT_MAX_CACHED_TASKS} entries and a snapshot limit of
+     * {@value #DEFAULT_MAX_SNAPSHOT_TASKS} tasks.
      * @param tasksDAO The ITasksDAO instance to delegate queries to.
      */
-    public TasksDAOProxy(ITasksDAO tasksDAO) {this.tasksDAO = tasksDAO;}
+    public TasksDAOProxy(ITasksDAO tasksDAO) {
+        this(tasksDAO, BoundedCache.tinyLfu(DEFAULT_MAX_CACHED_TASKS), DEFAULT_MAX_SNAPSHOT_TASKS);
+    }
+
+    /**
+     * Constructs a new TasksDAOProxy instance with a caller-configured per-task cache, e.g.
+     * {@link BoundedCache#lru(int)}, a weight-bounded cache, or a
+     * {@link il.ac.hit.project.main.model.dao.cache.TwoTierTaskCache} that keeps the tasks it
+     * evicts from the heap in off-heap memory.
+     * @param tasksDAO The ITasksDAO instance to delegate queries to.
+     * @param cache The cache for individually fetched and written tasks.
+     * @param maxSnapshotTasks The largest number of tasks kept as a full-table snapshot; 0 disables the snapshot.
+     */
+    public TasksDAOProxy(ITasksDAO tasksDAO, ICache<Integer, ITask> cache, int maxSnapshotTasks) {
+        this.tasksDAO = tasksDAO;
+        this.cache = cache;
+        this.maxSnapshotTasks = maxSnapshotTasks;
+    }
+
+    /**
+     * Caps how many calls this proxy makes to the underlying DAO at the same time, by placing a
+     * {@link ConcurrencyLimitedTasksDAO} between the two. Reads answered from the caches never wait
+     * for a permit; only calls that reach the DAO do. Calling it again keeps the existing limiter.
+     *
+     * @param maxConcurrentCalls the maximum number of DAO calls running at once; must be positive
+     * @return the limiter in front of the underlying DAO
+     */
+    public synchronized ConcurrencyLimitedTasksDAO limitConcurrency(int maxConcurrentCalls) {
+        if (tasksDAO instanceof ConcurrencyLimitedTasksDAO existing) {
+            return existing;
+        }
+        ConcurrencyLimitedTasksDAO limited = new ConcurrencyLimitedTasksDAO(tasksDAO, maxConcurrentCalls);
+        tasksDAO = limited;
+        return limited;
+    }
+
+    /**
+     * @return the DAO this proxy delegates to; a {@link ConcurrencyLimitedTasksDAO} after
+     *         {@link #limitConcurrency(int)}
+     */
+    public ITasksDAO getDelegate() {return tasksDAO;}
 
     /**
      * Retrieves all tasks from the database or cache.
+     * <p>
+     * The array is shared with other callers (it is the snapshot itself), so it must be treated as
+     * read-only; copy it before sorting or changing it.
+     * </p>
      *
-     * @return {@code ITask[]} An array of all tasks in the database.
+     * @return {@code ITask[]} An array of all tasks in the database, ordered by id.
      * @throws TasksDAOException Occurs if there is a database access error when
      * retrieving tasks.
      */
     @Override
     public ITask[] getTasks() throws TasksDAOException {
         // Retrieve tasks from a cache
-        if (!allCache.isEmpty()) {
-            System.out.println("Returning tasks from cache.");
-            System.out.println(allCache);
-            return allCache.values().toArray(new ITask[0]);
+        TaskSnapshot current = currentSnapshot();
+        if (current != null) {
+            snapshotHits.increment();
+            return current.tasks();
         }
         // Retrieve tasks from a database and store them in a cache
-        System.out.println("Fetching all tasks from DB.");
+        snapshotMisses.increment();
+        return tableLoads.execute(FULL_TABLE, this::loadSnapshot).tasks();
+    }
+
+    /**
+     * Returns the snapshot if it may be served, scheduling a background reload when it is due.
+     *
+     * @return the current snapshot, or null if none is loaded or it has expired
+     */
+    private TaskSnapshot currentSnapshot() {
+        TaskSnapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        long age = System.nanoTime() - current.loadedAtNanos();
+        if (age >= expireAfterNanos) {
+            snapshotExpirations.increment();
+            return null;
+        }
+        if (age >= refreshAfterNanos) {
+            scheduleRefresh();
+        }
+        return current;
+    }
+
+    /**
+     * Reads the whole table and installs it as the new snapshot.
+     * <p>
+     * The result is only installed if none of this proxy's writes ran while the table was being
+     * read; otherwise it might miss that write, and the current snapshot (which the write did
+     * update) is kept until the next reload. Pending write-behind writes are flushed first, so
+     * the table read already contains them.
+     * </p>
+     *
+     * @return the tasks read from the table, whether installed or not
+     */
+    private TaskSnapshot loadSnapshot() throws TasksDAOException {
+        long epoch = currentWriteEpoch();
+        flush();
+        long start = System.nanoTime();
         ITask[] tasks = tasksDAO.getTasks();
-        for (ITask task : tasks) {
-            allCache.put(task.getId(), task);
+        long elapsed = System.nanoTime() - start;
+        snapshotDatabaseLoads.increment();
+        snapshotLoadNanos.add(elapsed);
+        LOG.fine(() -> "Loaded " + tasks.length + " tasks from the database in " + elapsed / 1_000_000 + " ms");
+        IdBitSet ids = IdBitSet.of(tasks);
+        boolean keep = tasks.length <= maxSnapshotTasks;
+        if (!keep) {
+            LOG.fine(() -> "Too many tasks to cache (" + tasks.length + "), snapshot not kept");
+        }
+        synchronized (snapshotLock) {
+            TaskSnapshot fresh = TaskSnapshot.of(tasks, keep ? nextSnapshotVersion() : 0);
+            if (writeEpoch == epoch) {
+                knownIds = ids != null ? new KnownIds(ids, fresh.loadedAtNanos()) : null;
+                if (keep) {
+                    installSnapshot(fresh);
+                }
+            }
+            return fresh;
         }
-        return tasks;
+    }
+
+    /**
+     * Starts a background reload of the snapshot unless one is already running.
+     */
+    private void scheduleRefresh() {
+        if (!refreshInFlight.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    tableLoads.execute(FULL_TABLE, this::loadSnapshot);
+                    snapshotRefreshes.increment();
+                } catch (TasksDAOException | RuntimeException e) {
+                    LOG.log(Level.WARNING, "Error refreshing task snapshot", e);
+                } finally {
+                    refreshInFlight.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshInFlight.set(false);
+            //After shutdown() the snapshot is simply served until it expires
+            if (!refreshExecutor.isShutdown()) {
+                LOG.log(Level.WARNING, "Could not schedule task snapshot refresh", e);
+            }
+        }
+    }
+
+    /**
+     * Sets how long the full-table snapshot is served before it is reloaded.
+     *
+     * @param refreshAfter age after which reads keep the snapshot but trigger a background reload
+     * @param expireAfter age after which the snapshot is no longer served; must not be shorter than {@code refreshAfter}
+     */
+    public void setSnapshotExpiry(Duration refreshAfter, Duration expireAfter) {
+        if (expireAfter.compareTo(refreshAfter) < 0) {
+            throw new IllegalArgumentException("expireAfter must not be shorter than refreshAfter");
+        }
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.expireAfterNanos = expireAfter.toNanos();
+    }
+
+    /**
+     * Streams all tasks from the cache when the full table is cached, otherwise straight
+     * from the underlying DAO. Streamed rows are not added to the cache, so streaming a large
+     * table keeps memory use constant.
+     *
+     * @return a stream of all tasks ordered by id; must be closed by the caller
+     * @throws TasksDAOException If the underlying stream cannot be opened.
+     */
+    @Override
+    public Stream<ITask> streamTasks() throws TasksDAOException {
+        TaskSnapshot current = currentSnapshot();
+        if (current != null) {
+            return current.stream();
+        }
+        flush();
+        return tasksDAO.streamTasks();
+    }
+
+    /**
+     * Retrieves a page of tasks from the full-table cache when available, otherwise from the
+     * database. Pages read from the database are added to the per-task cache only.
+     *
+     * @param afterId Only tasks with an id greater than this value are returned.
+     * @param limit Maximum number of tasks to return.
+     * @return {@code ITask[]} The page of tasks ordered by id.
+     * @throws TasksDAOException If there is a database access error when retrieving the page.
+     */
+    @Override
+    public ITask[] getTasksPage(int afterId, int limit) throws TasksDAOException {
+        TaskSnapshot current = currentSnapshot();
+        if (current != null) {
+            return current.page(afterId, limit);
+        }
+        long epoch = currentWriteEpoch();
+        flush();
+        ITask[] page = tasksDAO.getTasksPage(afterId, limit);
+        synchronized (snapshotLock) {
+            //A write of this proxy that ran meanwhile may be newer than the rows just read
+            if (writeEpoch == epoch) {
+                for (ITask task : page) {
+                    cache.put(task.getId(), task);
+                }
+            }
+        }
+        return page;
     }
 
     /**
      * Retrieves a task from the database or cache.
      *
      * @param id The id of the task to retrieve.
-     * @return The task with the given id, or null if the task does not exist.
-     * @throws TasksDAOException If there is a database access error when retrieving a task.
+     * @return A copy of the task with the given id.
+     * @throws TasksDAOException If there is a database access error when retrieving a task, or no
+     * task has the given id.
      */
     @Override
     public ITask getTask(int id) throws TasksDAOException {
+        ITask task = findTask(id);
+        if (task == null) {
+            throw new TasksDAOException("No task with id " + id);
+        }
+        return task;
+    }
+
+    /**
+     * Looks up a task in the caches, then in the database. Ids known to be missing are answered
+     * without reaching the database.
+     *
+     * @param id The id of the task to look up.
+     * @return A copy of the task with the given id, or null if the task does not exist.
+     * @throws TasksDAOException If there is a database access error when retrieving a task.
+     */
+    @Override
+    public ITask findTask(int id) throws TasksDAOException {
+        //Callers edit looked-up tasks before writing them; the cached task must not change with them
+        return copyOf(lookupTask(id));
+    }
+
+    /**
+     * @return the cached or loaded task with the given id, shared with the caches, or null
+     */
+    private ITask lookupTask(int id) throws TasksDAOException {
         //If we fetched all tasks once, no need to retrieve them again
-        if (allCache.containsKey(id)) {
-            System.out.println("Returning task from allCache: " + id);
-            return allCache.get(id);
+        TaskSnapshot current = currentSnapshot();
+        if (current != null) {
+            ITask task = current.get(id);
+            if (task != null) {
+                taskHits.increment();
+                return task;
+            }
+            //The snapshot holds the whole table
+            missingHits.increment();
+            return null;
         }
+        ITask task;
         // In cache:
-        if (cache.containsKey(id)) {
-            System.out.println("Returning task from cache: " + id);
-            return cache.get(id);
+        task = cache.get(id);
+        if (task != null) {
+            taskHits.increment();
+            return task;
+        }
+        // Written behind but evicted from the cache, or being flushed right now:
+        PendingWrite pending = pendingWrite(id);
+        if (pending != null) {
+            if (pending.isDelete()) {
+                missingHits.increment();
+                return null;
+            }
+            taskHits.increment();
+            return pending.task();
+        }
+        if (isKnownMissing(id)) {
+            missingHits.increment();
+            return null;
         }
 
-        System.out.println("Fetching task " + id + " from DB.");
-        ITask task = tasksDAO.getTask(id);
-        //This if statement it is useless when getTask throws an exception when not found, so we can remove this part.
-        if (task != null) {
-            allCache.put(task.getId(), task);
-            cache.put(task.getId(), task);
+        taskMisses.increment();
+        return taskLoads.execute(id, () -> {
+            long epoch = currentWriteEpoch();
+            long start = System.nanoTime();
+            ITask loaded = tasksDAO.findTask(id);
+            taskDatabaseLoads.increment();
+            taskLoadNanos.add(System.nanoTime() - start);
+            LOG.fine(() -> "Loaded task " + id + " from the database");
+            synchronized (snapshotLock) {
+                //A write of this proxy that ran meanwhile may be newer than the row just read,
+                //and has already put its own state in the caches
+                if (writeEpoch == epoch) {
+                    if (loaded != null) {
+                        //Only the per-task cache: a single task must not make the snapshot look loaded
+                        cache.put(loaded.getId(), loaded);
+                    } else {
+                        missingIds.put(id, System.nanoTime());
+                    }
+                }
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Tells whether an id is known not to exist, from the ids of the last table read or from
+     * the DAO's recent answers.
+     */
+    private boolean isKnownMissing(int id) {
+        KnownIds known = knownIds;
+        if (known != null && known.ids().covers(id) && !known.ids().contains(id)
+                && System.nanoTime() - known.loadedAtNanos() < expireAfterNanos) {
+            return true;
         }
-        return task;
+        Long missingSince = missingIds.get(id);
+        return missingSince != null && System.nanoTime() - missingSince < missingIdTtlNanos;
+    }
+
+    /**
+     * Sets how long an id the DAO reported missing is answered as missing without asking it again.
+     *
+     * @param ttl the time to remember a missing id; zero disables remembering
+     */
+    public void setMissingIdTtl(Duration ttl) {
+        this.missingIdTtlNanos = ttl.toNanos();
     }
 
     /**
@@ -92,11 +554,8 @@ public class TasksDAOProxy implements ITasksDAO {
     @Override
     public void addTask(ITask task) throws TasksDAOException {
         tasksDAO.addTask(task);
-        cache.put(task.getId(), task);
-        allCache.put(task.getId(), task);
-        System.out.println("Task added (cache): " + task.getId());
-        System.out.println(cache);
-        System.out.println(allCache);
+        addToSnapshot(List.of(copyOf(task)));
+        LOG.fine(() -> "Task added: " + task.getId());
     }
 
     /**
@@ -107,11 +566,13 @@ public class TasksDAOProxy implements ITasksDAO {
      */
     @Override
     public void deleteTask(int id) throws TasksDAOException {
-        tasksDAO.deleteTask(id);
+        if (!deferWrites(List.of(PendingWrite.delete(id)))) {
+            tasksDAO.deleteTask(id);
+        }
+        forgetIds(new int[]{id});
         //Remove from cache if exists
-        cache.remove(id);
-        allCache.remove(id);
-        System.out.println("Task removed (cache): " + id);
+        changeSnapshot(() -> cache.remove(id), current -> current.withRemoved(new int[]{id}, nextSnapshotVersion()));
+        LOG.fine(() -> "Task removed: " + id);
     }
 
     /**
@@ -122,9 +583,13 @@ public class TasksDAOProxy implements ITasksDAO {
      */
     @Override
     public void updateTask(ITask task) throws TasksDAOException {
-        tasksDAO.updateTask(task);
-        cache.put(task.getId(), task);
-        System.out.println("Task updated (cache): " + task.getId());
+        ITask stored = copyOf(task);
+        if (!deferWrites(List.of(PendingWrite.update(stored)))) {
+            tasksDAO.updateTask(task);
+        }
+        changeSnapshot(() -> cache.put(stored.getId(), stored),
+                current -> current.withReplaced(List.of(stored), nextSnapshotVersion()));
+        LOG.fine(() -> "Task updated: " + task.getId());
     }
 
     /**
@@ -134,8 +599,777 @@ public class TasksDAOProxy implements ITasksDAO {
      */
     @Override
     public void deleteTasks() throws TasksDAOException {
-        tasksDAO.deleteTasks();
-        cache.clear();
-        allCache.clear();
+        synchronized (flushLock) {
+            tasksDAO.deleteTasks();
+            //Every pending write targets a row that no longer exists
+            synchronized (pendingWrites) {
+                pendingWrites.clear();
+            }
+        }
+        synchronized (snapshotLock) {
+            writeEpoch++;
+            cache.clear();
+            snapshot = null;
+            knownIds = null;
+        }
+    }
+
+    /**
+     * Adds several tasks to the database and then to the cache in a single update.
+     *
+     * @param tasks The tasks to add.
+     * @return The generated ids, in the same order as {@code tasks}.
+     * @throws TasksDAOException If there is a database access error when adding the tasks.
+     */
+    @Override
+    public int[] addTasks(ITask... tasks) throws TasksDAOException {
+        int[] ids = tasksDAO.addTasks(tasks);
+        addToSnapshot(Arrays.stream(tasks).map(TasksDAOProxy::copyOf).toList());
+        LOG.fine(() -> "Tasks added: " + ids.length);
+        return ids;
+    }
+
+    /**
+     * Updates several tasks in the database and then in the cache in a single update.
+     *
+     * @param tasks The tasks to update.
+     * @throws TasksDAOException If there is a database access error when updating the tasks.
+     */
+    @Override
+    public void updateTasks(ITask... tasks) throws TasksDAOException {
+        List<ITask> stored = Arrays.stream(tasks).map(TasksDAOProxy::copyOf).toList();
+        if (!deferWrites(stored.stream().map(PendingWrite::update).toList())) {
+            tasksDAO.updateTasks(tasks);
+        }
+        //Only refresh entries of the full snapshot, never make a partial snapshot look complete
+        changeSnapshot(() -> {
+            for (ITask task : stored) {
+                cache.put(task.getId(), task);
+            }
+        }, current -> current.withReplaced(stored, nextSnapshotVersion()));
+        LOG.fine(() -> "Tasks updated: " + tasks.length);
+    }
+
+    /**
+     * Deletes several tasks from the database and the cache.
+     *
+     * @param ids The ids of the tasks to delete.
+     * @throws TasksDAOException If there is a database access error when deleting the tasks.
+     */
+    @Override
+    public void deleteTasks(int... ids) throws TasksDAOException {
+        if (!deferWrites(Arrays.stream(ids).mapToObj(PendingWrite::delete).toList())) {
+            tasksDAO.deleteTasks(ids);
+        }
+        forgetIds(ids);
+        changeSnapshot(() -> {
+            for (int id : ids) {
+                cache.remove(id);
+            }
+        }, current -> current.withRemoved(ids, nextSnapshotVersion()));
+        LOG.fine(() -> "Tasks removed: " + ids.length);
+    }
+
+    /**
+     * Caches new tasks, adds them to the full-table snapshot, if one is loaded, and marks their
+     * ids as existing. A snapshot that grows beyond {@code maxSnapshotTasks} is dropped; the next
+     * {@link #getTasks()} reads the table again.
+     */
+    private void addToSnapshot(Collection<ITask> added) {
+        synchronized (snapshotLock) {
+            writeEpoch++;
+            KnownIds known = knownIds;
+            for (ITask task : added) {
+                cache.put(task.getId(), task);
+                missingIds.remove(task.getId());
+                if (known != null) {
+                    known.ids().add(task.getId());
+                }
+            }
+            if (snapshot == null) {
+                return;
+            }
+            TaskSnapshot next = snapshot.withPut(added, nextSnapshotVersion());
+            if (next.size() > maxSnapshotTasks) {
+                snapshot = null;
+                snapshotDrops.increment();
+                LOG.fine(() -> "Task snapshot exceeded " + maxSnapshotTasks + " tasks, dropped");
+            } else {
+                installSnapshot(next);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of {@code task} that the caller cannot change through its own reference, or null
+     */
+    private static ITask copyOf(ITask task) {
+        return task == null ? null : new Task(task.getId(), task.getTitle(), task.getDescription(), task.getState());
+    }
+
+    /**
+     * Marks deleted ids as missing in the set of known ids.
+     */
+    private void forgetIds(int[] ids) {
+        KnownIds known = knownIds;
+        if (known != null) {
+            for (int id : ids) {
+                known.ids().remove(id);
+            }
+        }
+    }
+
+    /**
+     * Applies one of this proxy's writes to the per-task cache and replaces the current snapshot,
+     * if any, with the version that reflects it. Counting the write keeps an in-flight reload or
+     * task load, which may not have seen it, from replacing the snapshot or the cached task; the
+     * cache change runs under the same lock, so such a load either sees the count change or is
+     * overwritten by the write.
+     */
+    private void changeSnapshot(Runnable cacheChange, UnaryOperator<TaskSnapshot> change) {
+        synchronized (snapshotLock) {
+            writeEpoch++;
+            cacheChange.run();
+            if (snapshot != null) {
+                installSnapshot(change.apply(snapshot));
+            }
+        }
+    }
+
+    /**
+     * @return the number of this proxy's writes so far, to compare with once a load has finished
+     */
+    private long currentWriteEpoch() {
+        synchronized (snapshotLock) {
+            return writeEpoch;
+        }
+    }
+
+    /**
+     * Publishes a new snapshot; only called under {@code snapshotLock}.
+     */
+    private void installSnapshot(TaskSnapshot next) {
+        snapshot = next;
+        snapshotRebuilds.increment();
+    }
+
+    /**
+     * @return the version for the next snapshot; only called under {@code snapshotLock}
+     */
+    private long nextSnapshotVersion() {
+        return ++snapshotVersion;
+    }
+
+    /**
+     * Turns on write-behind: from now on updates and deletes only reach the underlying DAO when
+     * the pending writes are flushed.
+     * <p>
+     * A flush runs every {@code flushInterval}, as soon as {@code flushThreshold} tasks have
+     * pending writes, before reads that cannot be answered from the caches, and on
+     * {@link #shutdown()}. Writes not yet flushed are lost if the process dies, so callers must
+     * call {@link #shutdown()} when the application exits.
+     * </p>
+     *
+     * @param flushInterval time between two timed flushes; must be positive
+     * @param flushThreshold number of tasks with pending writes that triggers a flush; must be positive
+     * @throws IllegalStateException if write-behind is already on
+     */
+    public void enableWriteBehind(Duration flushInterval, int flushThreshold) {
+        if (flushInterval.isNegative() || flushInterval.isZero() || flushThreshold <= 0) {
+            throw new IllegalArgumentException("Flush interval and threshold must be positive");
+        }
+        synchronized (pendingWrites) {
+            if (writeBehind) {
+                throw new IllegalStateException("Write-behind is already enabled");
+            }
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(daemonThreads("tasks-write-behind"));
+            long intervalNanos = flushInterval.toNanos();
+            executor.scheduleWithFixedDelay(this::flushInBackground, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+            writeBehindExecutor = executor;
+            writeBehindThreshold = flushThreshold;
+            writeBehind = true;
+        }
+    }
+
+    /**
+     * Turns write-behind off and flushes every pending write to the underlying DAO, which commits
+     * them. Later writes go straight to the DAO again. Does nothing more than a flush if
+     * write-behind is off. Change polling, if on, is stopped as well, and so are background
+     * snapshot reloads and the warm-start check: a running one is waited for, and later reads
+     * no longer schedule any, so none can reach a DAO that is shut down after this.
+     *
+     * @throws TasksDAOException If the pending writes could not be written; they stay pending,
+     * and another {@link #flush()} may be attempted.
+     */
+    public void shutdown() throws TasksDAOException {
+        ScheduledExecutorService poller;
+        synchronized (changeLock) {
+            poller = changePollExecutor;
+            changePollExecutor = null;
+        }
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        refreshExecutor.shutdown();
+        try {
+            if (!refreshExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOG.warning("Background task snapshot reload still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ScheduledExecutorService executor;
+        synchronized (pendingWrites) {
+            writeBehind = false;
+            executor = writeBehindExecutor;
+            writeBehindExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes every pending write-behind write to the underlying DAO, in batches of at most
+     * {@value #MAX_FLUSH_BATCH} tasks: one {@link ITasksDAO#updateTasks(ITask...)} and one
+     * {@link ITasksDAO#deleteTasks(int...)} call per batch.
+     * <p>
+     * Writes stay visible as pending until they are written, and a write of the same task made
+     * during the flush stays pending for the next one.
+     * </p>
+     *
+     * @throws TasksDAOException If a batch could not be written; its writes stay pending.
+     */
+    public void flush() throws TasksDAOException {
+        synchronized (flushLock) {
+            List<PendingWrite> batch;
+            while (!(batch = nextFlushBatch()).isEmpty()) {
+                List<ITask> updates = new ArrayList<>();
+                List<Integer> deletes = new ArrayList<>();
+                for (PendingWrite write : batch) {
+                    if (write.isDelete()) {
+                        deletes.add(write.id());
+                    } else {
+                        updates.add(write.task());
+                    }
+                }
+                if (!updates.isEmpty()) {
+                    tasksDAO.updateTasks(updates.toArray(new ITask[0]));
+                }
+                if (!deletes.isEmpty()) {
+                    tasksDAO.deleteTasks(deletes.stream().mapToInt(Integer::intValue).toArray());
+                }
+                synchronized (pendingWrites) {
+                    //Only forget writes that were not replaced by a newer one meanwhile
+                    batch.forEach(write -> pendingWrites.remove(write.id(), write));
+                }
+                flushes.increment();
+                flushedWrites.add(batch.size());
+                int written = batch.size();
+                LOG.fine(() -> "Flushed " + written + " pending task writes");
+            }
+        }
+    }
+
+    /**
+     * @return up to {@value #MAX_FLUSH_BATCH} pending writes not yet written by the running flush
+     */
+    private List<PendingWrite> nextFlushBatch() {
+        synchronized (pendingWrites) {
+            List<PendingWrite> batch = new ArrayList<>();
+            for (PendingWrite write : pendingWrites.values()) {
+                if (batch.size() == MAX_FLUSH_BATCH) {
+                    break;
+                }
+                batch.add(write);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Queues writes when write-behind is on, replacing pending writes of the same tasks.
+     *
+     * @return {@code true} if the writes were queued; {@code false} if the caller must write them now
+     */
+    private boolean deferWrites(List<PendingWrite> writes) {
+        boolean flushDue;
+        synchronized (pendingWrites) {
+            if (!writeBehind) {
+                return false;
+            }
+            for (PendingWrite write : writes) {
+                if (pendingWrites.put(write.id(), write) != null) {
+                    coalescedWrites.increment();
+                }
+            }
+            flushDue = pendingWrites.size() >= writeBehindThreshold;
+        }
+        if (flushDue) {
+            scheduleFlush();
+        }
+        return true;
+    }
+
+    private PendingWrite pendingWrite(int id) {
+        synchronized (pendingWrites) {
+            return pendingWrites.get(id);
+        }
+    }
+
+    /**
+     * Starts a background flush unless one is already queued.
+     */
+    private void scheduleFlush() {
+        ScheduledExecutorService executor = writeBehindExecutor;
+        if (executor == null || !flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                flushScheduled.set(false);
+                flushInBackground();
+            });
+        } catch (RejectedExecutionException e) {
+            //Shutting down: shutdown() flushes instead
+            flushScheduled.set(false);
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (TasksDAOException | RuntimeException e) {
+            flushFailures.increment();
+            LOG.log(Level.WARNING, "Error flushing pending task writes", e);
+        }
+    }
+
+    /**
+     * Starts polling the underlying DAO's change log every {@code pollInterval} (see
+     * {@link #pollChanges()}), so tasks changed by other processes sharing the database stop
+     * being served from the caches. Changes made before polling starts are only picked up by the
+     * regular snapshot refresh.
+     *
+     * @param pollInterval time between two polls; must be positive
+     * @return whether polling started; {@code false} if the DAO does not track changes
+     * @throws TasksDAOException If the DAO's current change version cannot be read.
+     * @throws IllegalStateException if change polling is already on
+     */
+    public boolean enableChangePolling(Duration pollInterval) throws TasksDAOException {
+        if (pollInterval.isNegative() || pollInterval.isZero()) {
+            throw new IllegalArgumentException("Poll interval must be positive");
+        }
+        synchronized (changeLock) {
+            if (changePollExecutor != null) {
+                throw new IllegalStateException("Change polling is already enabled");
+            }
+            TaskChanges current = tasksDAO.getChangesSince(TaskChanges.UNKNOWN_VERSION);
+            if (current == null) {
+                return false;
+            }
+            changeVersion = current.version();
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(daemonThreads("tasks-change-poll"));
+            long intervalNanos = pollInterval.toNanos();
+            executor.scheduleWithFixedDelay(this::pollInBackground, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+            changePollExecutor = executor;
+            return true;
+        }
+    }
+
+    /**
+     * Reads the changes the underlying DAO logged since the previous poll and applies them.
+     * <p>
+     * Each changed task is removed from the per-task cache and from the ids known to be missing,
+     * and, if a snapshot is loaded, read again and replaced in (or removed from) the snapshot.
+     * Tasks with a pending write-behind write are left alone, since that write is newer than the
+     * database's row and will overwrite it. If the DAO cannot list every change, for example
+     * because more changes happened than it reports at once, every cache is dropped instead.
+     * This proxy's own writes appear in the log too; applying them again is harmless.
+     * </p>
+     *
+     * @return the number of tasks invalidated, or -1 if every cache was dropped
+     * @throws TasksDAOException If the changes or the changed tasks cannot be read; the same
+     * changes are reported again by the next poll.
+     */
+    public int pollChanges() throws TasksDAOException {
+        synchronized (changeLock) {
+            TaskChanges changes = tasksDAO.getChangesSince(changeVersion);
+            if (changes == null) {
+                return 0;
+            }
+            changePolls.increment();
+            int invalidated;
+            if (changes.complete()) {
+                invalidated = applyChanges(changes.ids());
+            } else {
+                invalidateAll();
+                invalidated = -1;
+            }
+            changeVersion = changes.version();
+            return invalidated;
+        }
+    }
+
+    /**
+     * Invalidates the given tasks in the per-task cache and re-reads them into the snapshot.
+     *
+     * @return the number of tasks invalidated
+     */
+    private int applyChanges(int[] ids) throws TasksDAOException {
+        //A write still pending here is newer than the database's row and will overwrite it
+        int[] changed = Arrays.stream(ids).filter(id -> pendingWrite(id) == null).toArray();
+        if (changed.length == 0) {
+            return 0;
+        }
+        long epoch;
+        synchronized (snapshotLock) {
+            //Counted like a write, so a task load that read the old row does not cache it
+            epoch = ++writeEpoch;
+            KnownIds known = knownIds;
+            for (int id : changed) {
+                cache.remove(id);
+                missingIds.remove(id);
+                //Possibly inserted by another process; an id marked as present is simply looked up
+                if (known != null) {
+                    known.ids().add(id);
+                }
+            }
+        }
+        changedTasks.add(changed.length);
+        LOG.fine(() -> "Tasks changed in the database: " + changed.length);
+        if (snapshot == null) {
+            return changed.length;
+        }
+        List<ITask> present = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        for (int id : changed) {
+            ITask task = tasksDAO.findTask(id);
+            if (task != null) {
+                present.add(task);
+            } else {
+                deleted.add(id);
+            }
+        }
+        synchronized (snapshotLock) {
+            if (snapshot == null) {
+                return changed.length;
+            }
+            if (writeEpoch != epoch) {
+                //One of this proxy's writes ran meanwhile and may be newer than the rows just read
+                snapshot = null;
+                LOG.fine("Task snapshot dropped, changed tasks were written here while being read");
+                return changed.length;
+            }
+            long version = nextSnapshotVersion();
+            TaskSnapshot next = snapshot.withPut(present, version)
+                    .withRemoved(deleted.stream().mapToInt(Integer::intValue).toArray(), version);
+            if (next.size() > maxSnapshotTasks) {
+                snapshot = null;
+                snapshotDrops.increment();
+                LOG.fine(() -> "Task snapshot exceeded " + maxSnapshotTasks + " tasks, dropped");
+            } else {
+                installSnapshot(next);
+            }
+        }
+        return changed.length;
+    }
+
+    /**
+     * Drops every cached task and what is known about missing ids; the next reads go to the DAO.
+     */
+    private void invalidateAll() {
+        synchronized (snapshotLock) {
+            writeEpoch++;
+            cache.clear();
+            missingIds.clear();
+            snapshot = null;
+            knownIds = null;
+        }
+        fullInvalidations.increment();
+        LOG.fine("Too many tasks changed in the database, every cache dropped");
+    }
+
+    private void pollInBackground() {
+        try {
+            pollChanges();
+        } catch (TasksDAOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Error polling task changes", e);
+        }
+    }
+
+    /**
+     * Installs the snapshot saved in {@code file} by {@link #saveSnapshot(Path)}, unless a
+     * snapshot is already loaded, and starts checking it against the database in the background.
+     * <p>
+     * The check compares the table's row count and highest id with the snapshot's (see
+     * {@link ITasksDAO#getSummary()}); if they differ the warm snapshot is dropped and the table
+     * reloaded, and the {@link #addWarmStartRejectionListener(Runnable) warm-start rejection
+     * listeners} are called. Changes to existing rows made by other processes are only picked
+     * up by the regular refresh, as for any snapshot.
+     * </p>
+     *
+     * @param file the snapshot file; a missing, unreadable or corrupt file is ignored
+     * @return whether a snapshot was installed from the file
+     */
+    public boolean warmStart(Path file) {
+        if (!Files.isReadable(file)) {
+            return false;
+        }
+        ITask[] tasks;
+        try {
+            tasks = TaskSnapshotFile.read(file);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Ignoring unreadable task snapshot file " + file, e);
+            return false;
+        }
+        if (tasks.length > maxSnapshotTasks) {
+            return false;
+        }
+        synchronized (snapshotLock) {
+            if (snapshot != null) {
+                return false;
+            }
+            installSnapshot(TaskSnapshot.of(tasks, nextSnapshotVersion()));
+        }
+        warmStarts.increment();
+        LOG.fine(() -> "Warm-started with " + tasks.length + " tasks from " + file);
+        try {
+            refreshExecutor.execute(this::validateWarmSnapshot);
+        } catch (RejectedExecutionException e) {
+            LOG.log(Level.WARNING, "Could not schedule the warm-start check", e);
+        }
+        return true;
+    }
+
+    /**
+     * Compares the current snapshot with the table's summary and reloads it if they differ.
+     */
+    private void validateWarmSnapshot() {
+        try {
+            flush();
+            TasksSummary summary = tasksDAO.getSummary();
+            TaskSnapshot current = snapshot;
+            if (current == null || (current.size() == summary.count() && current.maxId() == summary.maxId())) {
+                return;
+            }
+            LOG.info(() -> "Warm-start snapshot is stale (" + current.size() + " tasks up to id " + current.maxId()
+                    + ", database has " + summary.count() + " up to id " + summary.maxId() + "), reloading");
+            warmStartRejections.increment();
+            synchronized (snapshotLock) {
+                if (snapshot == current) {
+                    snapshot = null;
+                }
+            }
+            try {
+                tableLoads.execute(FULL_TABLE, this::loadSnapshot);
+            } finally {
+                //Even if the reload failed: the stale snapshot is gone, so a new read goes to the database
+                notifyWarmStartRejected();
+            }
+        } catch (TasksDAOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Could not check the warm-start snapshot", e);
+        }
+    }
+
+    /**
+     * Adds a listener called, on a background thread, when the background check finds the
+     * snapshot installed by {@link #warmStart(Path)} stale and has replaced it. Tasks read from
+     * this proxy before then may be outdated, so a listener typically reads them again. Add
+     * listeners before the first read, so a rejection cannot go unnoticed.
+     *
+     * @param listener the listener; must be quick or hand its work off to another thread
+     */
+    public void addWarmStartRejectionListener(Runnable listener) {
+        warmStartRejectionListeners.add(listener);
+    }
+
+    private void notifyWarmStartRejected() {
+        for (Runnable listener : warmStartRejectionListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Warm-start rejection listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Flushes pending writes and saves the full-table snapshot to {@code file} for
+     * {@link #warmStart(Path)}. If no snapshot is loaded, an existing file is deleted instead,
+     * so a later start never warms up from a copy older than this run.
+     *
+     * @param file the snapshot file; replaced atomically
+     * @return whether a snapshot was saved
+     * @throws TasksDAOException If pending writes could not be flushed or the file could not be written.
+     */
+    public boolean saveSnapshot(Path file) throws TasksDAOException {
+        flush();
+        TaskSnapshot current = snapshot;
+        try {
+            if (current == null) {
+                Files.deleteIfExists(file);
+                return false;
+            }
+            TaskSnapshotFile.write(file, current.tasks());
+        } catch (IOException e) {
+            throw new TasksDAOException("Error saving task snapshot to " + file, e);
+        }
+        LOG.fine(() -> "Saved " + current.size() + " tasks to " + file);
+        return true;
+    }
+
+    /**
+     * Copies the current values of every counter of this proxy and its caches.
+     *
+     * @return the statistics; never null
+     */
+    public CacheStats getStats() {
+        TaskSnapshot current = snapshot;
+        return new CacheStats(taskHits.sum(), taskMisses.sum(), missingHits.sum(), taskDatabaseLoads.sum(), taskLoadNanos.sum(),
+                cache.getEvictions(), cache.getRejections(), cache.size(),
+                snapshotHits.sum(), snapshotMisses.sum(), snapshotDatabaseLoads.sum(), snapshotLoadNanos.sum(),
+                snapshotRebuilds.sum(), snapshotRefreshes.sum(), snapshotExpirations.sum(),
+                snapshotDrops.sum(), current != null ? current.size() : -1,
+                taskLoads.getCoalesced() + tableLoads.getCoalesced(),
+                getPendingWrites(), flushes.sum(), flushedWrites.sum(), coalescedWrites.sum(), flushFailures.sum(),
+                changePolls.sum(), changedTasks.sum(), fullInvalidations.sum());
+    }
+
+    /**
+     * Returns the per-task cache, exposed for monitoring (size, evictions, rejections).
+     *
+     * @return the per-task cache; never null
+     */
+    public ICache<Integer, ITask> getTaskCache() {return cache;}
+
+    /**
+     * @return whether {@link #getTasks()} is currently answered from the full-table snapshot
+     */
+    public boolean isSnapshotLoaded() {return snapshot != null;}
+
+    /**
+     * @return the version of the full-table snapshot, or -1 while none is loaded; changes on
+     *         every reload and on every write of this proxy
+     */
+    public long getSnapshotVersion() {
+        TaskSnapshot current = snapshot;
+        return current != null ? current.version() : -1;
+    }
+
+    /**
+     * @return the number of {@link #getTasks()} calls answered from the snapshot
+     */
+    public long getSnapshotHits() {return snapshotHits.sum();}
+
+    /**
+     * @return the number of {@link #getTasks()} calls that read the whole table
+     */
+    public long getSnapshotMisses() {return snapshotMisses.sum();}
+
+    /**
+     * @return the number of times the snapshot was dropped for exceeding its size limit
+     */
+    public long getSnapshotDrops() {return snapshotDrops.sum();}
+
+    /**
+     * @return the number of background reloads of the snapshot that completed
+     */
+    public long getSnapshotRefreshes() {return snapshotRefreshes.sum();}
+
+    /**
+     * @return the number of reads that found the snapshot expired
+     */
+    public long getSnapshotExpirations() {return snapshotExpirations.sum();}
+
+    /**
+     * @return the coalescer of single-task misses, exposed for monitoring (loads, coalesced callers)
+     */
+    public SingleFlight<Integer, ITask> getTaskLoads() {return taskLoads;}
+
+    /**
+     * @return the coalescer of full-table loads, exposed for monitoring (loads, coalesced callers)
+     */
+    public SingleFlight<String, TaskSnapshot> getTableLoads() {return tableLoads;}
+
+    /**
+     * @return whether updates and deletes are currently written behind
+     */
+    public boolean isWriteBehindEnabled() {
+        synchronized (pendingWrites) {
+            return writeBehind;
+        }
+    }
+
+    /**
+     * @return the number of tasks with a write not yet flushed
+     */
+    public int getPendingWrites() {
+        synchronized (pendingWrites) {
+            return pendingWrites.size();
+        }
+    }
+
+    /**
+     * @return the number of snapshots installed from a warm-start file
+     */
+    public long getWarmStarts() {return warmStarts.sum();}
+
+    /**
+     * @return the number of warm-start snapshots found stale by the background check
+     */
+    public long getWarmStartRejections() {return warmStartRejections.sum();}
+
+    /**
+     * @return the number of batches written by flushes
+     */
+    public long getFlushes() {return flushes.sum();}
+
+    /**
+     * @return the number of writes that flushes sent to the underlying DAO
+     */
+    public long getFlushedWrites() {return flushedWrites.sum();}
+
+    /**
+     * @return the number of pending writes replaced by a later write of the same task, i.e. saved database writes
+     */
+    public long getCoalescedWrites() {return coalescedWrites.sum();}
+
+    /**
+     * @return the number of background flushes that failed and were left for a later flush
+     */
+    public long getFlushFailures() {return flushFailures.sum();}
+
+    /**
+     * @return whether {@link #enableChangePolling(Duration)} started polling and it was not shut down since
+     */
+    public boolean isChangePollingEnabled() {return changePollExecutor != null;}
+
+    /**
+     * @return the DAO change version this proxy is up to date with, or
+     *         {@link TaskChanges#UNKNOWN_VERSION} before the first poll
+     */
+    public long getChangeVersion() {
+        synchronized (changeLock) {
+            return changeVersion;
+        }
+    }
+
+    /**
+     * Creates daemon threads with the given name, so the proxy's background work never keeps
+     * the application alive.
+     */
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
@@ -0,0 +1,145 @@
+package il.ac.hit.project.main.model.dao;
+
+import il.ac.hit.project.main.model.dao.cache.CacheStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Publishes the statistics of a {@link TasksDAOProxy} as a JMX MXBean, so they can be watched
+ * with JConsole, VisualVM or any JMX client.
+ *
+ * <ul>
+ *   <li>proxy: The proxy whose {@link TasksDAOProxy#getStats()} every attribute reads.</li>
+ * </ul>
+ */
+public class TasksDAOProxyMonitor implements ITasksDAOProxyMXBean {
+
+    // Object name the application registers its proxy under
+    public static final String DEFAULT_OBJECT_NAME = "il.ac.hit.project:type=TasksDAOProxy,name=tasks";
+
+    private final TasksDAOProxy proxy;
+
+    /**
+     * @param proxy the proxy to monitor
+     */
+    public TasksDAOProxyMonitor(TasksDAOProxy proxy) {
+        this.proxy = proxy;
+    }
+
+    /**
+     * Registers a monitor of {@code proxy} with the platform MBean server.
+     *
+     * @param proxy      the proxy to monitor
+     * @param objectName the JMX object name, e.g. {@value #DEFAULT_OBJECT_NAME}
+     * @return the registered name, for {@link #unregister(ObjectName)}
+     * @throws JMException if the name is malformed or already registered
+     */
+    public static ObjectName register(TasksDAOProxy proxy, String objectName) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        return server.registerMBean(new TasksDAOProxyMonitor(proxy), new ObjectName(objectName)).getObjectName();
+    }
+
+    /**
+     * Removes a monitor registered by {@link #register(TasksDAOProxy, String)}.
+     *
+     * @throws JMException if nothing is registered under {@code objectName}
+     */
+    public static void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    private CacheStats stats() {return proxy.getStats();}
+
+    @Override
+    public long getTaskHits() {return stats().taskHits();}
+
+    @Override
+    public long getTaskMisses() {return stats().taskMisses();}
+
+    @Override
+    public long getMissingHits() {return stats().missingHits();}
+
+    @Override
+    public double getTaskHitRate() {return stats().taskHitRate();}
+
+    @Override
+    public long getTaskLoads() {return stats().taskLoads();}
+
+    @Override
+    public double getAverageTaskLoadMillis() {return stats().averageTaskLoadMillis();}
+
+    @Override
+    public long getTaskEvictions() {return stats().taskEvictions();}
+
+    @Override
+    public long getTaskRejections() {return stats().taskRejections();}
+
+    @Override
+    public int getCachedTasks() {return stats().cachedTasks();}
+
+    @Override
+    public long getSnapshotHits() {return stats().snapshotHits();}
+
+    @Override
+    public long getSnapshotMisses() {return stats().snapshotMisses();}
+
+    @Override
+    public double getSnapshotHitRate() {return stats().snapshotHitRate();}
+
+    @Override
+    public long getSnapshotLoads() {return stats().snapshotLoads();}
+
+    @Override
+    public double getAverageSnapshotLoadMillis() {return stats().averageSnapshotLoadMillis();}
+
+    @Override
+    public long getSnapshotRebuilds() {return stats().snapshotRebuilds();}
+
+    @Override
+    public long getSnapshotRefreshes() {return stats().snapshotRefreshes();}
+
+    @Override
+    public long getSnapshotExpirations() {return stats().snapshotExpirations();}
+
+    @Override
+    public long getSnapshotDrops() {return stats().snapshotDrops();}
+
+    @Override
+    public int getSnapshotSize() {return stats().snapshotSize();}
+
+    @Override
+    public long getCoalescedLoads() {return stats().coalescedLoads();}
+
+    @Override
+    public boolean isWriteBehindEnabled() {return proxy.isWriteBehindEnabled();}
+
+    @Override
+    public int getPendingWrites() {return stats().pendingWrites();}
+
+    @Override
+    public long getFlushes() {return stats().flushes();}
+
+    @Override
+    public long getFlushedWrites() {return stats().flushedWrites();}
+
+    @Override
+    public long getCoalescedWrites() {return stats().coalescedWrites();}
+
+    @Override
+    public long getFlushFailures() {return stats().flushFailures();}
+
+    @Override
+    public boolean isChangePollingEnabled() {return proxy.isChangePollingEnabled();}
+
+    @Override
+    public long getChangePolls() {return stats().changePolls();}
+
+    @Override
+    public long getChangedTasks() {return stats().changedTasks();}
+
+    @Override
+    public long getFullInvalidations() {return stats().fullInvalidations();}
+}
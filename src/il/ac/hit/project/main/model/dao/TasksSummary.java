@@ -0,0 +1,14 @@
+package il.ac.hit.project.main.model.dao;
+
+/**
+ * A cheap fingerprint of the tasks table: how many tasks it holds and the highest id.
+ * <p>
+ * Ids are generated in increasing order and never reused, so a cached copy of the table whose
+ * summary matches the store's has seen every insert and every delete; it may still have missed
+ * updates of existing rows.
+ *
+ * @param count the number of tasks
+ * @param maxId the highest task id, or 0 if there are no tasks
+ */
+public record TasksSummary(int count, int maxId) {
+}
@@ -0,0 +1,257 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread-safe map with a maximum total weight and a pluggable {@link IEvictionPolicy}.
+ * <p>
+ * Each entry weighs what the weigher says (1 by default, which turns the maximum weight into a
+ * maximum entry count). When an insert pushes the total weight over the maximum, the policy
+ * chooses entries to evict until the cache fits again; a policy may also reject the new entry.
+ * Putting a key always drops its old value first, so a rejected update never leaves a stale value behind.
+ * An optional eviction listener is told about every entry the cache gives up, evicted or rejected,
+ * so it can keep the entry somewhere cheaper.
+ * <p>
+ * All operations take the cache's monitor; policies therefore need no synchronization.
+ *
+ * <ul>
+ *   <li>entries: The cached values and their weights.</li>
+ *   <li>policy: Decides the eviction order and admission.</li>
+ *   <li>evictionListener: Receives the entries the cache gives up.</li>
+ *   <li>hits / misses / evictions / rejections: Counters exposed for monitoring.</li>
+ * </ul>
+ */
+public class BoundedCache<K, V> implements ICache<K, V> {
+
+    /**
+     * A cached value and the weight it was charged.
+     */
+    private record Entry<V>(V value, int weight) {}
+
+    private final Map<K, Entry<V>> entries = new HashMap<>();
+    private final IEvictionPolicy<K> policy;
+    private final long maxWeight;
+    private final ToIntFunction<? super V> weigher;
+    private BiConsumer<? super K, ? super V> evictionListener = (key, value) -> {};
+    private long totalWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * Creates a cache holding at most {@code maxEntries} entries.
+     *
+     * @param maxEntries the maximum number of entries; must be positive
+     * @param policy     the eviction policy
+     */
+    public BoundedCache(int maxEntries, IEvictionPolicy<K> policy) {
+        this(maxEntries, value -> 1, policy);
+    }
+
+    /**
+     * Creates a cache whose entries' weights add up to at most {@code maxWeight}.
+     *
+     * @param maxWeight the maximum total weight; must be positive
+     * @param weigher   computes the weight of a value; must return a non-negative number
+     * @param policy    the eviction policy
+     */
+    public BoundedCache(long maxWeight, ToIntFunction<? super V> weigher, IEvictionPolicy<K> policy) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.policy = policy;
+    }
+
+    /**
+     * Creates a least-recently-used cache of at most {@code maxEntries} entries.
+     */
+    public static <K, V> BoundedCache<K, V> lru(int maxEntries) {
+        return new BoundedCache<>(maxEntries, new LruPolicy<>());
+    }
+
+    /**
+     * Creates a frequency-aware (W-TinyLFU) cache of at most {@code maxEntries} entries.
+     */
+    public static <K, V> BoundedCache<K, V> tinyLfu(int maxEntries) {
+        return new BoundedCache<>(maxEntries, new TinyLfuPolicy<>(maxEntries));
+    }
+
+    /**
+     * Sets the listener called with every entry that is evicted or rejected. It runs while the
+     * cache's monitor is held, so it must be quick and must not call back into this cache.
+     */
+    public synchronized void setEvictionListener(BiConsumer<? super K, ? super V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Looks up a value, counting a hit or a miss.
+     *
+     * @return the cached value, or null if {@code key} is not cached
+     */
+    @Override
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            policy.onMiss(key);
+            return null;
+        }
+        hits++;
+        policy.onHit(key);
+        return entry.value();
+    }
+
+    /**
+     * Checks whether a key is cached, without counting a hit or a miss.
+     */
+    public synchronized boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Caches a value, evicting other entries if needed.
+     *
+     * @return {@code true} if the value is cached afterwards; {@code false} if it was rejected by
+     *         the policy or weighs more than the whole cache. Other entries the policy refuses
+     *         admission while making room count as rejections, but do not change the result.
+     */
+    @Override
+    public synchronized boolean put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            totalWeight -= previous.weight();
+            policy.onRemove(key);
+        }
+        if (weight > maxWeight) {
+            rejections++;
+            evictionListener.accept(key, value);
+            return false;
+        }
+        entries.put(key, new Entry<>(value, weight));
+        totalWeight += weight;
+        policy.onInsert(key);
+        boolean admitted = true;
+        while (totalWeight > maxWeight) {
+            K victim = policy.selectVictim();
+            Entry<V> evicted = entries.remove(victim);
+            totalWeight -= evicted.weight();
+            if (victim.equals(key)) {
+                rejections++;
+                admitted = false;
+            } else if (policy.isLastVictimRejected()) {
+                //An earlier entry lost its admission check; the value just put stays cached
+                rejections++;
+            } else {
+                evictions++;
+            }
+            evictionListener.accept(victim, evicted.value());
+        }
+        return admitted;
+    }
+
+    /**
+     * Caches every value of {@code values}, as {@link #put(Object, Object)} would.
+     */
+    public synchronized void putAll(Map<? extends K, ? extends V> values) {
+        values.forEach(this::put);
+    }
+
+    /**
+     * Replaces the value of a key only if it is already cached.
+     *
+     * @return {@code true} if the key was cached and is still cached with the new value
+     */
+    public synchronized boolean replace(K key, V value) {
+        return entries.containsKey(key) && put(key, value);
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @return the removed value, or null if {@code key} was not cached
+     */
+    @Override
+    public synchronized V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        totalWeight -= entry.weight();
+        policy.onRemove(key);
+        return entry.value();
+    }
+
+    /**
+     * Removes every entry. Counters are kept.
+     */
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+        policy.clear();
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    @Override
+    public synchronized int size() {return entries.size();}
+
+    /**
+     * @return the total weight of the cached entries
+     */
+    public synchronized long weight() {return totalWeight;}
+
+    /**
+     * @return the maximum total weight
+     */
+    public long getMaxWeight() {return maxWeight;}
+
+    /**
+     * @return the number of lookups that found their key
+     */
+    public synchronized long getHits() {return hits;}
+
+    /**
+     * @return the number of lookups that did not find their key
+     */
+    public synchronized long getMisses() {return misses;}
+
+    /**
+     * @return the number of established entries evicted to make room for others
+     */
+    @Override
+    public synchronized long getEvictions() {return evictions;}
+
+    /**
+     * @return the number of new entries refused, either by the policy's admission check or for
+     *         weighing more than the whole cache
+     */
+    @Override
+    public synchronized long getRejections() {return rejections;}
+
+    /**
+     * Fraction of lookups that found their key.
+     *
+     * @return a value between 0 and 1; 0 when no lookups were made yet
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("BoundedCache[%s, size=%d, weight=%d/%d, hits=%d, misses=%d, evictions=%d, rejections=%d]",
+                policy, entries.size(), totalWeight, maxWeight, hits, misses, evictions, rejections);
+    }
+}
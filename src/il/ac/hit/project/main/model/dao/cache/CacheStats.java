@@ -0,0 +1,90 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+/**
+ * A point-in-time copy of the counters of a caching DAO proxy.
+ * <p>
+ * Counters only grow, so the difference between two copies describes what happened in between.
+ * Load times cover the calls to the underlying DAO only, not the time spent waiting for them.
+ *
+ * <ul>
+ *   <li>task*: Single-task reads; a hit is answered by the snapshot, the per-task cache or a pending write.</li>
+ *   <li>missingHits: Single-task reads of ids known not to exist, answered without the database.</li>
+ *   <li>snapshot*: Full-table reads and the life cycle of the full-table snapshot.</li>
+ *   <li>coalescedLoads: Reads that joined another caller's database load instead of starting one.</li>
+ *   <li>pendingWrites / flush*: The write-behind queue, when write-behind is used.</li>
+ *   <li>changePolls / changedTasks / fullInvalidations: Changes made by other processes, when change polling is used.</li>
+ * </ul>
+ *
+ * @param taskHits            single-task reads answered without the database
+ * @param taskMisses          single-task reads that needed the database
+ * @param missingHits         single-task reads of missing ids answered without the database
+ * @param taskLoads           single-task database loads
+ * @param taskLoadNanos       total time of the single-task database loads
+ * @param taskEvictions       entries evicted from the per-task cache
+ * @param taskRejections      entries refused by the per-task cache
+ * @param cachedTasks         entries currently in the per-task cache
+ * @param snapshotHits        full-table reads answered by the snapshot
+ * @param snapshotMisses      full-table reads that needed the database
+ * @param snapshotLoads       full-table database loads
+ * @param snapshotLoadNanos   total time of the full-table database loads
+ * @param snapshotRebuilds    snapshots installed, by reloads or by this proxy's writes
+ * @param snapshotRefreshes   background reloads that completed
+ * @param snapshotExpirations reads that found the snapshot expired
+ * @param snapshotDrops       snapshots dropped for exceeding the size limit
+ * @param snapshotSize        tasks in the current snapshot; -1 if none is loaded
+ * @param coalescedLoads      reads that shared another caller's load
+ * @param pendingWrites       tasks with a write not yet flushed
+ * @param flushes             batches written by write-behind flushes
+ * @param flushedWrites       writes sent to the database by flushes
+ * @param coalescedWrites     pending writes replaced by a later write of the same task
+ * @param flushFailures       background flushes that failed
+ * @param changePolls         polls of the database's change log
+ * @param changedTasks        tasks invalidated because the change log reported them
+ * @param fullInvalidations   polls that dropped every cache because the change log was incomplete
+ */
+public record CacheStats(long taskHits, long taskMisses, long missingHits, long taskLoads, long taskLoadNanos,
+                         long taskEvictions, long taskRejections, int cachedTasks,
+                         long snapshotHits, long snapshotMisses, long snapshotLoads, long snapshotLoadNanos,
+                         long snapshotRebuilds, long snapshotRefreshes, long snapshotExpirations,
+                         long snapshotDrops, int snapshotSize, long coalescedLoads,
+                         int pendingWrites, long flushes, long flushedWrites, long coalescedWrites,
+                         long flushFailures, long changePolls, long changedTasks, long fullInvalidations) {
+
+    /**
+     * @return the fraction of single-task reads answered without the database, whether the task
+     *         exists or not; 0 before any read
+     */
+    public double taskHitRate() {
+        return rate(taskHits + missingHits, taskMisses);
+    }
+
+    /**
+     * @return the fraction of full-table reads answered by the snapshot; 0 before any read
+     */
+    public double snapshotHitRate() {
+        return rate(snapshotHits, snapshotMisses);
+    }
+
+    /**
+     * @return the average duration of a single-task database load in milliseconds; 0 before any load
+     */
+    public double averageTaskLoadMillis() {
+        return averageMillis(taskLoadNanos, taskLoads);
+    }
+
+    /**
+     * @return the average duration of a full-table database load in milliseconds; 0 before any load
+     */
+    public double averageSnapshotLoadMillis() {
+        return averageMillis(snapshotLoadNanos, snapshotLoads);
+    }
+
+    private static double rate(long hits, long misses) {
+        long reads = hits + misses;
+        return reads == 0 ? 0.0 : (double) hits / reads;
+    }
+
+    private static double averageMillis(long totalNanos, long count) {
+        return count == 0 ? 0.0 : totalNanos / 1_000_000.0 / count;
+    }
+}
@@ -0,0 +1,51 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+/**
+ * A bounded key-value cache, as used by {@link il.ac.hit.project.main.model.dao.TasksDAOProxy}
+ * for individually fetched tasks.
+ * <p>
+ * Implementations decide what to give up when they are full and must be thread-safe.
+ */
+public interface ICache<K, V> {
+
+    /**
+     * Looks up a value, counting a hit or a miss.
+     *
+     * @return the cached value, or null if {@code key} is not cached
+     */
+    V get(K key);
+
+    /**
+     * Caches a value, replacing any value cached for the same key.
+     *
+     * @return {@code true} if the value is cached afterwards
+     */
+    boolean put(K key, V value);
+
+    /**
+     * Removes a key.
+     *
+     * @return the removed value, or null if {@code key} was not cached
+     */
+    V remove(K key);
+
+    /**
+     * Removes every entry. Counters are kept.
+     */
+    void clear();
+
+    /**
+     * @return the number of cached entries
+     */
+    int size();
+
+    /**
+     * @return the number of entries given up to make room for others
+     */
+    long getEvictions();
+
+    /**
+     * @return the number of new entries refused
+     */
+    long getRejections();
+}
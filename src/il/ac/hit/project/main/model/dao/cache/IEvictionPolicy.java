@@ -0,0 +1,55 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+/**
+ * Strategy contract deciding which entry a {@link BoundedCache} gives up when it is over budget.
+ * <p>
+ * The cache reports every access and membership change; when the cache exceeds its maximum
+ * weight it repeatedly asks for a victim until it fits again. A policy may return the key that
+ * was just inserted, which rejects it (admission control).
+ * <p>
+ * Implementations need not be thread-safe: the owning cache calls them under its own lock.
+ */
+public interface IEvictionPolicy<K> {
+
+    /**
+     * Records a lookup that found {@code key} in the cache.
+     */
+    void onHit(K key);
+
+    /**
+     * Records a lookup that did not find {@code key} in the cache.
+     */
+    void onMiss(K key);
+
+    /**
+     * Records that {@code key} was added to the cache.
+     */
+    void onInsert(K key);
+
+    /**
+     * Records that {@code key} was removed from the cache by the caller (not evicted).
+     */
+    void onRemove(K key);
+
+    /**
+     * Chooses the next entry to evict and stops tracking it.
+     *
+     * @return a key currently tracked by the policy; never null while any key is tracked
+     */
+    K selectVictim();
+
+    /**
+     * Tells whether the last key returned by {@link #selectVictim()} was a new entry refused
+     * admission, as opposed to an established entry making room.
+     *
+     * @return {@code true} for an admission rejection; always {@code false} for policies that admit every entry
+     */
+    default boolean isLastVictimRejected() {
+        return false;
+    }
+
+    /**
+     * Forgets every tracked key. Access statistics may be kept.
+     */
+    void clear();
+}
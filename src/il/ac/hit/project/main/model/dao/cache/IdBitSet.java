@@ -0,0 +1,100 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The set of task ids present in the table when it was read, one bit per id from 0 up to the
+ * highest id read.
+ * <p>
+ * Task ids are generated in increasing order and never reused, so an id in the covered range
+ * whose bit is clear was not in the table and will not appear later (short of a concurrent
+ * insert that had not committed yet when the table was read). Ids above the range are unknown.
+ * <p>
+ * Bits can be set and cleared concurrently without locking; the range is fixed when the set is built.
+ *
+ * <ul>
+ *   <li>maxId: The highest covered id.</li>
+ *   <li>words: The bits, 64 ids per word.</li>
+ * </ul>
+ */
+public final class IdBitSet {
+
+    // Ranges up to this many ids are always accepted, however few tasks they hold
+    private static final int MIN_RANGE = 1 << 16;
+    // Otherwise the range may be at most this many ids per task, i.e. 8 bytes per task
+    private static final int MAX_IDS_PER_TASK = 64;
+
+    private final int maxId;
+    private final AtomicLongArray words;
+
+    private IdBitSet(int maxId) {
+        this.maxId = maxId;
+        this.words = new AtomicLongArray((maxId >>> 6) + 1);
+    }
+
+    /**
+     * Builds the set of the ids of {@code tasks}.
+     *
+     * @param tasks every task of the table
+     * @return the set, or null if the ids are so sparse that the bits would cost more than
+     *         {@value #MAX_IDS_PER_TASK} bits per task
+     */
+    public static IdBitSet of(ITask[] tasks) {
+        int maxId = 0;
+        for (ITask task : tasks) {
+            maxId = Math.max(maxId, task.getId());
+        }
+        if (maxId > Math.max(MIN_RANGE, (long) MAX_IDS_PER_TASK * tasks.length)) {
+            return null;
+        }
+        IdBitSet ids = new IdBitSet(maxId);
+        for (ITask task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * @return whether {@code id} is in the covered range, i.e. whether {@link #contains(int)} is authoritative
+     */
+    public boolean covers(int id) {
+        return id <= maxId;
+    }
+
+    /**
+     * @return whether {@code id} is in the covered range and its bit is set
+     */
+    public boolean contains(int id) {
+        return id >= 0 && id <= maxId && (words.get(id >>> 6) & (1L << id)) != 0;
+    }
+
+    /**
+     * Sets the bit of {@code id}; ids outside the covered range are ignored.
+     */
+    public void add(int id) {
+        if (id >= 0 && id <= maxId) {
+            words.getAndAccumulate(id >>> 6, 1L << id, (word, bit) -> word | bit);
+        }
+    }
+
+    /**
+     * Clears the bit of {@code id}; ids outside the covered range are ignored.
+     */
+    public void remove(int id) {
+        if (id >= 0 && id <= maxId) {
+            words.getAndAccumulate(id >>> 6, ~(1L << id), (word, mask) -> word & mask);
+        }
+    }
+
+    /**
+     * @return the highest covered id
+     */
+    public int maxId() {return maxId;}
+
+    @Override
+    public String toString() {
+        return "IdBitSet[maxId=" + maxId + "]";
+    }
+}
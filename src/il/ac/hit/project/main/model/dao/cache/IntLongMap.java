@@ -0,0 +1,182 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import java.util.Arrays;
+
+/**
+ * A map from {@code int} keys to {@code long} values without boxing, for indexes over many task ids.
+ * <p>
+ * Open addressing with linear probing in power-of-two arrays kept at most half full; removals
+ * shift later entries of the probe run back instead of leaving tombstones, so lookups stay short
+ * however many entries come and go. {@link Integer#MIN_VALUE} marks free slots and cannot be a key.
+ * <p>
+ * Not thread-safe.
+ *
+ * <ul>
+ *   <li>keys / values: The slots; a slot is free when its key is {@link #FREE}.</li>
+ *   <li>size: The number of entries.</li>
+ * </ul>
+ */
+public final class IntLongMap {
+
+    /**
+     * Receives the entries of {@link #forEach(IntLongConsumer)}.
+     */
+    @FunctionalInterface
+    public interface IntLongConsumer {
+        void accept(int key, long value);
+    }
+
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntLongMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Creates an empty map with room for {@code expectedSize} entries before it grows.
+     */
+    public IntLongMap(int expectedSize) {
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    /**
+     * @return the value of {@code key}, or {@code absentValue} if it has none
+     */
+    public long get(int key, long absentValue) {
+        int slot = find(key);
+        return slot < 0 ? absentValue : values[slot];
+    }
+
+    /**
+     * @return whether {@code key} has a value
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Sets the value of {@code key}.
+     *
+     * @return the previous value, or {@code absentValue} if it had none
+     * @throws IllegalArgumentException if {@code key} is {@link Integer#MIN_VALUE}
+     */
+    public long put(int key, long value, long absentValue) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Key not supported: " + key);
+        }
+        int slot = home(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            rehash(keys.length * 2);
+        }
+        return absentValue;
+    }
+
+    /**
+     * Removes {@code key}.
+     *
+     * @return the removed value, or {@code absentValue} if it had none
+     */
+    public long remove(int key, long absentValue) {
+        int slot = find(key);
+        if (slot < 0) {
+            return absentValue;
+        }
+        long removed = values[slot];
+        // Move later entries of the probe run into the gap when it lies between them and their home slot
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Calls {@code action} with every entry, in no particular order.
+     */
+    public void forEach(IntLongConsumer action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry, keeping the allocated capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {return size;}
+
+    private int find(int key) {
+        if (key == FREE) {
+            return -1;
+        }
+        for (int slot = home(key); keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int home(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, FREE);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = home(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
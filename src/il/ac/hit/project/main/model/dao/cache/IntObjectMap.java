@@ -0,0 +1,181 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A map from {@code int} keys to objects without boxing the keys, for tables keyed by task id.
+ * <p>
+ * Same layout as {@link IntLongMap}: open addressing with linear probing in power-of-two arrays
+ * kept at most half full, and removals that shift later entries back instead of leaving
+ * tombstones. {@link Integer#MIN_VALUE} marks free slots and cannot be a key; values cannot be null.
+ * <p>
+ * Not thread-safe.
+ *
+ * <ul>
+ *   <li>keys / values: The slots; a slot is free when its key is {@link #FREE}.</li>
+ *   <li>size: The number of entries.</li>
+ * </ul>
+ */
+public final class IntObjectMap<V> {
+
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    public IntObjectMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Creates an empty map with room for {@code expectedSize} entries before it grows.
+     */
+    public IntObjectMap(int expectedSize) {
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    /**
+     * @return the value of {@code key}, or null if it has none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * @return whether {@code key} has a value
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Sets the value of {@code key}.
+     *
+     * @return the previous value, or null if it had none
+     * @throws IllegalArgumentException if {@code key} is {@link Integer#MIN_VALUE} or {@code value} is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == FREE || value == null) {
+            throw new IllegalArgumentException("Key or value not supported: " + key + " -> " + value);
+        }
+        int slot = home(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes {@code key}.
+     *
+     * @return the removed value, or null if it had none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        // Move later entries of the probe run into the gap when it lies between them and their home slot
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Calls {@code action} with every value, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                action.accept((V) values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Removes every entry, keeping the allocated capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {return size;}
+
+    private int find(int key) {
+        if (key == FREE) {
+            return -1;
+        }
+        for (int slot = home(key); keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int home(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, FREE);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = home(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least-recently-used eviction: the entry not read or written for the longest time is evicted,
+ * and every new entry is admitted.
+ */
+public class LruPolicy<K> implements IEvictionPolicy<K> {
+
+    // Keys ordered from least to most recently used
+    private final LinkedHashMap<K, Boolean> order = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Override
+    public void onHit(K key) {
+        order.get(key);
+    }
+
+    @Override
+    public void onMiss(K key) {
+        // Recency only tracks cached keys
+    }
+
+    @Override
+    public void onInsert(K key) {
+        order.put(key, Boolean.TRUE);
+    }
+
+    @Override
+    public void onRemove(K key) {
+        order.remove(key);
+    }
+
+    @Override
+    public K selectVictim() {
+        Iterator<K> oldest = order.keySet().iterator();
+        if (!oldest.hasNext()) {
+            return null;
+        }
+        K victim = oldest.next();
+        oldest.remove();
+        return victim;
+    }
+
+    @Override
+    public void clear() {
+        order.clear();
+    }
+
+    @Override
+    public String toString() {return "LRU";}
+}
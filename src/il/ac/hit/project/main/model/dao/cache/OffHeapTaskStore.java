@@ -0,0 +1,208 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serialized tasks kept outside the Java heap, in direct {@link ByteBuffer} segments, so a large
+ * number of tasks can be cached without adding to the garbage collector's work.
+ * <p>
+ * Tasks are appended to the newest segment as {@code [int length][TaskCodec encoding]} and found
+ * through an id index. Replaced and removed tasks leave their bytes behind until their segment is
+ * reclaimed: when a new segment is needed and all {@code maxBytes / segmentBytes} are in use, the
+ * oldest segment is emptied, the tasks still stored in it are evicted, and its buffer is reused.
+ * Eviction is therefore first in, first out by segment, which suits a cold tier that is filled
+ * with whatever the hot tier gave up. A task whose encoding does not fit in one segment is rejected.
+ * <p>
+ * All operations take the store's monitor.
+ *
+ * <ul>
+ *   <li>segments: Ring of buffers; {@code oldest} and {@code used} delimit the ones in use.</li>
+ *   <li>index: Task id to location, {@code segment slot << 32 | offset}.</li>
+ *   <li>liveBytes: Bytes of the records the index still points to.</li>
+ * </ul>
+ */
+public final class OffHeapTaskStore {
+
+    // Size of the buffers the store allocates, unless configured otherwise
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+
+    private static final long ABSENT = -1L;
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final int segmentBytes;
+    private final ByteBuffer[] segments;
+    private final IntLongMap index = new IntLongMap();
+    private int oldest;
+    private int used;
+    private long liveBytes;
+
+    private long evictions;
+    private long rejections;
+
+    /**
+     * Creates a store of {@link #DEFAULT_SEGMENT_BYTES}-byte segments.
+     *
+     * @param maxBytes the most off-heap memory the store may allocate
+     */
+    public OffHeapTaskStore(long maxBytes) {
+        this(maxBytes, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Creates a store. Segments are allocated when first needed.
+     *
+     * @param maxBytes     the most off-heap memory the store may allocate; at least two segments
+     * @param segmentBytes the size of each segment, which is also the largest storable record
+     */
+    public OffHeapTaskStore(long maxBytes, int segmentBytes) {
+        if (segmentBytes <= LENGTH_BYTES || maxBytes / segmentBytes < 2) {
+            throw new IllegalArgumentException("Need at least two segments of more than " + LENGTH_BYTES
+                    + " bytes: maxBytes=" + maxBytes + ", segmentBytes=" + segmentBytes);
+        }
+        this.segmentBytes = segmentBytes;
+        this.segments = new ByteBuffer[(int) Math.min(Integer.MAX_VALUE, maxBytes / segmentBytes)];
+    }
+
+    /**
+     * Stores {@code task}, replacing any task stored under its id.
+     *
+     * @return {@code true} if it was stored; {@code false} if its encoding is larger than a segment
+     */
+    public synchronized boolean put(ITask task) {
+        byte[] encoded = TaskCodec.encode(task);
+        remove(task.getId());
+        int recordBytes = LENGTH_BYTES + encoded.length;
+        if (recordBytes > segmentBytes) {
+            rejections++;
+            return false;
+        }
+        if (used == 0 || newest().remaining() < recordBytes) {
+            addSegment();
+        }
+        int slot = (oldest + used - 1) % segments.length;
+        ByteBuffer segment = segments[slot];
+        int offset = segment.position();
+        segment.putInt(encoded.length).put(encoded);
+        index.put(task.getId(), (long) slot << 32 | offset, ABSENT);
+        liveBytes += recordBytes;
+        return true;
+    }
+
+    /**
+     * @return the task stored under {@code id}, decoded into a new object, or null if none is
+     */
+    public synchronized ITask get(int id) {
+        long location = index.get(id, ABSENT);
+        if (location == ABSENT) {
+            return null;
+        }
+        ByteBuffer segment = segments[(int) (location >>> 32)];
+        return TaskCodec.decode(segment.duplicate().position((int) location + LENGTH_BYTES));
+    }
+
+    /**
+     * @return whether a task is stored under {@code id}
+     */
+    public synchronized boolean contains(int id) {
+        return index.containsKey(id);
+    }
+
+    /**
+     * Removes the task stored under {@code id}. Its bytes are reclaimed with its segment.
+     *
+     * @return {@code true} if a task was stored under {@code id}
+     */
+    public synchronized boolean remove(int id) {
+        long location = index.remove(id, ABSENT);
+        if (location == ABSENT) {
+            return false;
+        }
+        liveBytes -= LENGTH_BYTES + segments[(int) (location >>> 32)].getInt((int) location);
+        return true;
+    }
+
+    /**
+     * Removes every task. Allocated segments are kept for reuse.
+     */
+    public synchronized void clear() {
+        index.clear();
+        for (int i = 0; i < used; i++) {
+            segments[(oldest + i) % segments.length].clear();
+        }
+        used = 0;
+        liveBytes = 0;
+    }
+
+    /**
+     * @return the number of stored tasks
+     */
+    public synchronized int size() {return index.size();}
+
+    /**
+     * @return the bytes of the stored tasks, excluding space left by replaced and removed ones
+     */
+    public synchronized long liveBytes() {return liveBytes;}
+
+    /**
+     * @return the off-heap memory allocated so far
+     */
+    public synchronized long allocatedBytes() {
+        long allocated = 0;
+        for (ByteBuffer segment : segments) {
+            allocated += segment == null ? 0 : segment.capacity();
+        }
+        return allocated;
+    }
+
+    /**
+     * @return the number of tasks dropped when their segment was reclaimed
+     */
+    public synchronized long getEvictions() {return evictions;}
+
+    /**
+     * @return the number of tasks too large to store
+     */
+    public synchronized long getRejections() {return rejections;}
+
+    private ByteBuffer newest() {
+        return segments[(oldest + used - 1) % segments.length];
+    }
+
+    private void addSegment() {
+        if (used == segments.length) {
+            reclaimOldest();
+        }
+        int slot = (oldest + used) % segments.length;
+        if (segments[slot] == null) {
+            segments[slot] = ByteBuffer.allocateDirect(segmentBytes);
+        }
+        segments[slot].clear();
+        used++;
+    }
+
+    private void reclaimOldest() {
+        ByteBuffer segment = segments[oldest];
+        int end = segment.position();
+        for (int offset = 0; offset < end; ) {
+            int length = segment.getInt(offset);
+            int id = segment.getInt(offset + LENGTH_BYTES);
+            // Only the latest record of a task is indexed; older copies are already dead
+            if (index.get(id, ABSENT) == ((long) oldest << 32 | offset)) {
+                index.remove(id, ABSENT);
+                liveBytes -= LENGTH_BYTES + length;
+                evictions++;
+            }
+            offset += LENGTH_BYTES + length;
+        }
+        oldest = (oldest + 1) % segments.length;
+        used--;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("OffHeapTaskStore[size=%d, liveBytes=%d, segments=%d/%d, evictions=%d, rejections=%d]",
+                index.size(), liveBytes, used, segments.length, evictions, rejections);
+    }
+}
@@ -0,0 +1,103 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import il.ac.hit.project.main.model.dao.TasksDAOException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses concurrent loads of the same key into one call.
+ * <p>
+ * The first caller for a key (the leader) runs the loader; callers arriving while it runs wait
+ * for and share its result, or whatever it threw. Once the load finishes the key is forgotten, so
+ * the next caller loads again: this class coalesces, it does not cache.
+ *
+ * <ul>
+ *   <li>inFlight: The pending load of every key currently being loaded.</li>
+ *   <li>loads / coalesced: Counters of loader calls and of callers that joined a running load.</li>
+ * </ul>
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * Loads the value of one key from the data store.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws TasksDAOException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Loads the value of {@code key}, joining a load of the same key that is already running.
+     *
+     * @param key    identifies the load
+     * @param loader runs the load if no load of {@code key} is running
+     * @return the loaded value, shared with every caller that joined the same load
+     * @throws TasksDAOException if the load failed
+     */
+    public V execute(K key, Loader<V> loader) throws TasksDAOException {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running);
+        }
+        loads.incrementAndGet();
+        try {
+            V value = loader.load();
+            mine.complete(value);
+            return value;
+        } catch (Throwable e) {
+            //Errors too: a follower waiting on a future nobody completes would block forever
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Waits for another caller's load and rethrows its failure as this caller's own.
+     */
+    private V await(CompletableFuture<V> running) throws TasksDAOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TasksDAOException("Interrupted while waiting for a shared load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TasksDAOException daoException) {
+                throw new TasksDAOException(daoException.getMessage(), daoException);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new TasksDAOException("Shared load failed", cause);
+        }
+    }
+
+    /**
+     * @return the number of loads that actually ran
+     */
+    public long getLoads() {return loads.get();}
+
+    /**
+     * @return the number of callers served by a load another caller started
+     */
+    public long getCoalesced() {return coalesced.get();}
+
+    /**
+     * @return the number of keys being loaded right now
+     */
+    public int getInFlight() {return inFlight.size();}
+}
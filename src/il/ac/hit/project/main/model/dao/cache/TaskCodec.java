@@ -0,0 +1,75 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of one task, shared by the snapshot file, the off-heap cache tier and the
+ * log-structured DAO.
+ * <p>
+ * Layout, big-endian: int id, byte state ordinal, int title length, title UTF-8 bytes,
+ * int description length (-1 for null), description UTF-8 bytes.
+ */
+public final class TaskCodec {
+
+    private TaskCodec() {}
+
+    /**
+     * @return the encoded task
+     */
+    public static byte[] encode(ITask task) {
+        byte[] title = utf8(task.getTitle());
+        byte[] description = utf8(task.getDescription());
+        ByteBuffer out = ByteBuffer.allocate(Integer.BYTES + 1 + encodedSize(title) + encodedSize(description));
+        out.putInt(task.getId());
+        out.put((byte) task.getState().getOrdinal());
+        putString(out, title);
+        putString(out, description);
+        return out.array();
+    }
+
+    /**
+     * Decodes one task from the position of {@code in}, advancing it past the task.
+     *
+     * @throws java.nio.BufferUnderflowException if the buffer ends inside the task
+     * @throws IllegalArgumentException if the state ordinal is unknown
+     */
+    public static ITask decode(ByteBuffer in) {
+        int id = in.getInt();
+        int ordinal = in.get();
+        String title = getString(in);
+        String description = getString(in);
+        return new Task(id, title, description, TaskStateFactory.fromOrdinal(ordinal));
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int encodedSize(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        if (bytes == null) {
+            out.putInt(-1);
+            return;
+        }
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
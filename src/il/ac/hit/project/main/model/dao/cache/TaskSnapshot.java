@@ -0,0 +1,241 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * An immutable copy of the whole tasks table, ordered by id.
+ * <p>
+ * A snapshot is never modified once built: a write produces a new snapshot with the next
+ * version, so readers can share one without locking or copying. Lookups by id and keyset pages
+ * use binary search over the sorted array.
+ * <p>
+ * Only the array is immutable: the tasks in it are stored as given, not copied. The array
+ * returned by {@link #tasks()} and the tasks in it are shared by every reader and must not be
+ * modified; writers hand in tasks nobody else changes.
+ *
+ * <ul>
+ *   <li>tasks: The tasks of the table, sorted by ascending id, without duplicate ids.</li>
+ *   <li>version: Increases with every snapshot derived from this one.</li>
+ *   <li>loadedAtNanos: {@link System#nanoTime()} when the table was read; kept by derived snapshots.</li>
+ * </ul>
+ */
+public final class TaskSnapshot {
+
+    private static final Comparator<ITask> BY_ID = Comparator.comparingInt(ITask::getId);
+    private static final ITask[] NO_TASKS = new ITask[0];
+
+    private final ITask[] tasks;
+    private final long version;
+    private final long loadedAtNanos;
+
+    private TaskSnapshot(ITask[] tasks, long version, long loadedAtNanos) {
+        this.tasks = tasks;
+        this.version = version;
+        this.loadedAtNanos = loadedAtNanos;
+    }
+
+    /**
+     * Builds a snapshot of a table just read from the data store.
+     * <p>
+     * An array already in id order (as the Derby DAO returns it) is kept without copying, so the
+     * caller must not modify it afterwards; any other array is copied and sorted.
+     *
+     * @param tasks   every task of the table
+     * @param version the version of the new snapshot
+     * @return the snapshot, loaded now
+     */
+    public static TaskSnapshot of(ITask[] tasks, long version) {
+        if (!isSortedById(tasks)) {
+            tasks = tasks.clone();
+            Arrays.sort(tasks, BY_ID);
+        }
+        return new TaskSnapshot(tasks, version, System.nanoTime());
+    }
+
+    /**
+     * @return every task, ordered by id; shared, must not be modified
+     */
+    public ITask[] tasks() {return tasks;}
+
+    /**
+     * @return the version of this snapshot
+     */
+    public long version() {return version;}
+
+    /**
+     * @return {@link System#nanoTime()} when the table behind this snapshot was read
+     */
+    public long loadedAtNanos() {return loadedAtNanos;}
+
+    /**
+     * @return the number of tasks
+     */
+    public int size() {return tasks.length;}
+
+    /**
+     * @return the highest task id, or 0 if the snapshot is empty
+     */
+    public int maxId() {return tasks.length == 0 ? 0 : tasks[tasks.length - 1].getId();}
+
+    /**
+     * Looks up a task by id.
+     *
+     * @return the task, or null if the table has no task with this id
+     */
+    public ITask get(int id) {
+        int index = indexOf(id);
+        return index >= 0 ? tasks[index] : null;
+    }
+
+    /**
+     * Returns the first {@code limit} tasks whose id is greater than {@code afterId}.
+     *
+     * @return a new array of at most {@code limit} tasks ordered by id
+     */
+    public ITask[] page(int afterId, int limit) {
+        int index = indexOf(afterId);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        int to = (int) Math.min((long) from + limit, tasks.length);
+        return from >= to ? NO_TASKS : Arrays.copyOfRange(tasks, from, to);
+    }
+
+    /**
+     * @return a stream of every task, ordered by id
+     */
+    public Stream<ITask> stream() {
+        return Arrays.stream(tasks);
+    }
+
+    /**
+     * Builds the snapshot that results from adding new tasks, or overwriting tasks with the same id.
+     * <p>
+     * Each added task is placed by binary search and the existing tasks between two of them are
+     * moved with {@link System#arraycopy}, so adding k tasks costs one array copy plus
+     * O(k log n) comparisons; appending a new highest id copies the array once.
+     * </p>
+     *
+     * @param added   the tasks to add; if several share an id, the last one wins
+     * @param version the version of the new snapshot
+     * @return the new snapshot; this one is unchanged
+     */
+    public TaskSnapshot withPut(Collection<ITask> added, long version) {
+        ITask[] sorted = added.toArray(NO_TASKS);
+        if (sorted.length > 1) {
+            //Stable, so of several tasks with one id the last stays last
+            Arrays.sort(sorted, BY_ID);
+        }
+        ITask[] merged = new ITask[tasks.length + sorted.length];
+        int size = 0;
+        int from = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            ITask task = sorted[i];
+            if (i + 1 < sorted.length && sorted[i + 1].getId() == task.getId()) {
+                continue;
+            }
+            int index = indexOf(task.getId(), from);
+            int to = index >= 0 ? index : -index - 1;
+            System.arraycopy(tasks, from, merged, size, to - from);
+            size += to - from;
+            merged[size++] = task;
+            //An existing task with the same id is replaced, not kept
+            from = index >= 0 ? index + 1 : to;
+        }
+        System.arraycopy(tasks, from, merged, size, tasks.length - from);
+        size += tasks.length - from;
+        return new TaskSnapshot(size == merged.length ? merged : Arrays.copyOf(merged, size), version, loadedAtNanos);
+    }
+
+    /**
+     * Builds the snapshot that results from replacing tasks already in the table. Tasks whose id
+     * is not in the table are ignored.
+     *
+     * @param updated the new versions of the tasks
+     * @param version the version of the new snapshot
+     * @return the new snapshot; this one is unchanged
+     */
+    public TaskSnapshot withReplaced(Collection<ITask> updated, long version) {
+        ITask[] copy = tasks.clone();
+        for (ITask task : updated) {
+            int index = indexOf(task.getId());
+            if (index >= 0) {
+                copy[index] = task;
+            }
+        }
+        return new TaskSnapshot(copy, version, loadedAtNanos);
+    }
+
+    /**
+     * Builds the snapshot that results from deleting tasks. Ids not in the table are ignored.
+     *
+     * @param ids     the ids of the tasks to delete
+     * @param version the version of the new snapshot
+     * @return the new snapshot; this one is unchanged
+     */
+    public TaskSnapshot withRemoved(int[] ids, long version) {
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        ITask[] remaining = new ITask[tasks.length];
+        int size = 0;
+        int from = 0;
+        for (int id : sorted) {
+            int index = indexOf(id, from);
+            if (index < 0) {
+                continue;
+            }
+            System.arraycopy(tasks, from, remaining, size, index - from);
+            size += index - from;
+            from = index + 1;
+        }
+        if (from == 0) {
+            //Nothing removed: the array is immutable, so it can be shared
+            return new TaskSnapshot(tasks, version, loadedAtNanos);
+        }
+        System.arraycopy(tasks, from, remaining, size, tasks.length - from);
+        size += tasks.length - from;
+        return new TaskSnapshot(Arrays.copyOf(remaining, size), version, loadedAtNanos);
+    }
+
+    private int indexOf(int id) {
+        return indexOf(id, 0);
+    }
+
+    /**
+     * Binary search for {@code id} among the tasks from index {@code low} on.
+     *
+     * @return the index of the task, or {@code -(insertion point + 1)} if there is none
+     */
+    private int indexOf(int id, int low) {
+        int high = tasks.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = tasks[middle].getId();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static boolean isSortedById(ITask[] tasks) {
+        for (int i = 1; i < tasks.length; i++) {
+            if (tasks[i - 1].getId() >= tasks[i].getId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskSnapshot[version=" + version + ", size=" + tasks.length + "]";
+    }
+}
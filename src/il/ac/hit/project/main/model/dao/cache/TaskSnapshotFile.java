@@ -0,0 +1,105 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves the tasks of a {@link TaskSnapshot} to a compact binary file and maps them back into
+ * memory, so an application can show its tasks before it has queried the database.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ *   int  magic ('TSK1')   int  format version   int  task count
+ *   per task: the task's {@link TaskCodec} encoding
+ *   long CRC-32 of everything before it
+ * </pre>
+ * Files are written to a temporary file first and then moved into place, so a crash while
+ * saving leaves the previous file intact. A file that is truncated, corrupt or of another
+ * format version is rejected with an {@link IOException}.
+ */
+public final class TaskSnapshotFile {
+
+    private static final int MAGIC = 0x54534B31;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int TRAILER_BYTES = Long.BYTES;
+
+    private TaskSnapshotFile() {}
+
+    /**
+     * Writes {@code tasks} to {@code file}, replacing it atomically.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, ITask[] tasks) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream fileOut = Files.newOutputStream(temporary);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(tasks.length);
+                for (ITask task : tasks) {
+                    out.write(TaskCodec.encode(task));
+                }
+                out.flush();
+                // The checksum itself is not part of what it covers
+                new DataOutputStream(fileOut).writeLong(crc.getValue());
+                fileOut.flush();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps {@code file} into memory and decodes it.
+     *
+     * @return the tasks of the file, in the order they were written
+     * @throws IOException if the file cannot be read or is not a valid snapshot file
+     */
+    public static ITask[] read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a task snapshot file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int bodyBytes = (int) size - TRAILER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, bodyBytes));
+            if (crc.getValue() != buffer.getLong(bodyBytes)) {
+                throw new IOException("Corrupt task snapshot file: " + file);
+            }
+            ByteBuffer body = buffer.slice(0, bodyBytes);
+            if (body.getInt() != MAGIC || body.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported task snapshot file: " + file);
+            }
+            ITask[] tasks = new ITask[body.getInt()];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = TaskCodec.decode(body);
+            }
+            return tasks;
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt task snapshot file: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * Frequency-aware eviction in the style of W-TinyLFU.
+ * <p>
+ * New entries first go to a small LRU <em>window</em> (about 1% of the capacity), so bursts of
+ * fresh keys get a chance to prove themselves. Entries leaving the window move to the
+ * <em>main</em> LRU region as admission candidates. When the cache has to evict, a candidate
+ * only stays if it was accessed more often than main's least recently used entry; otherwise the
+ * candidate itself is evicted. Access frequencies come from a small count-min sketch that is
+ * halved periodically, so popularity fades over time.
+ * <p>
+ * Compared with {@link LruPolicy}, one-off scans (for example a full page walk) cannot flush
+ * frequently used tasks out of the cache.
+ */
+public class TinyLfuPolicy<K> implements IEvictionPolicy<K> {
+
+    // Share of the capacity used by the admission window, in percent
+    private static final int WINDOW_PERCENT = 1;
+
+    private final int windowCapacity;
+    private final FrequencySketch sketch;
+    // Both regions are ordered from least to most recently used
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> main = new LinkedHashMap<>(16, 0.75f, true);
+    // Keys moved from the window to main that have not yet competed against a main entry
+    private final LinkedHashSet<K> candidates = new LinkedHashSet<>();
+    private boolean lastVictimRejected;
+
+    /**
+     * @param expectedEntries the number of entries the cache is expected to hold when full;
+     *                        sizes the window and the frequency sketch
+     */
+    public TinyLfuPolicy(int expectedEntries) {
+        if (expectedEntries <= 0) {
+            throw new IllegalArgumentException("Expected entries must be positive: " + expectedEntries);
+        }
+        this.windowCapacity = Math.max(1, expectedEntries * WINDOW_PERCENT / 100);
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    @Override
+    public void onHit(K key) {
+        sketch.increment(key);
+        if (window.get(key) == null) {
+            main.get(key);
+        }
+    }
+
+    @Override
+    public void onMiss(K key) {
+        sketch.increment(key);
+    }
+
+    @Override
+    public void onInsert(K key) {
+        window.put(key, Boolean.TRUE);
+        if (window.size() > windowCapacity) {
+            K oldest = pollOldest(window);
+            main.put(oldest, Boolean.TRUE);
+            candidates.add(oldest);
+            // Candidates that never had to compete (the cache had room) become regular main entries
+            if (candidates.size() > windowCapacity) {
+                candidates.remove(candidates.iterator().next());
+            }
+        }
+    }
+
+    @Override
+    public void onRemove(K key) {
+        if (window.remove(key) == null) {
+            main.remove(key);
+            candidates.remove(key);
+        }
+    }
+
+    @Override
+    public K selectVictim() {
+        K candidate = newestCandidate();
+        K victim = oldestExcept(main, candidate);
+        lastVictimRejected = false;
+        if (candidate == null || victim == null) {
+            // Nothing to compare: fall back to plain LRU, main region first
+            K oldest = main.isEmpty() ? pollOldest(window) : pollOldest(main);
+            candidates.remove(oldest);
+            return oldest;
+        }
+        candidates.remove(candidate);
+        K loser = sketch.frequency(candidate) > sketch.frequency(victim) ? victim : candidate;
+        main.remove(loser);
+        candidates.remove(loser);
+        lastVictimRejected = loser.equals(candidate);
+        return loser;
+    }
+
+    @Override
+    public boolean isLastVictimRejected() {
+        return lastVictimRejected;
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        main.clear();
+        candidates.clear();
+    }
+
+    /**
+     * @return the most recently promoted candidate, or null if there is none
+     */
+    private K newestCandidate() {
+        K newest = null;
+        for (K key : candidates) {
+            newest = key;
+        }
+        return newest;
+    }
+
+    private static <K> K pollOldest(LinkedHashMap<K, Boolean> region) {
+        Iterator<K> oldest = region.keySet().iterator();
+        if (!oldest.hasNext()) {
+            return null;
+        }
+        K key = oldest.next();
+        oldest.remove();
+        return key;
+    }
+
+    private static <K> K oldestExcept(LinkedHashMap<K, Boolean> region, K excluded) {
+        for (K key : region.keySet()) {
+            if (!key.equals(excluded)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Estimated access frequency of {@code key}; exposed for tests and diagnostics.
+     *
+     * @return a value between 0 and 15
+     */
+    public int frequency(K key) {return sketch.frequency(key);}
+
+    @Override
+    public String toString() {return "W-TinyLFU";}
+
+    /**
+     * Count-min sketch of 4-bit-style counters (capped at 15) with periodic halving.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x97cb3127, 0x7fb5ca5b, 0x3c6ef372, 0xa54ff53a};
+
+        private final byte[][] counters;
+        private final int indexShift;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            // About four counters per entry and row keeps collisions between rare keys low
+            int width = Integer.highestOneBit(Math.max(16, expectedEntries * 4 - 1) * 2);
+            this.counters = new byte[DEPTH][width];
+            this.indexShift = 32 - Integer.numberOfTrailingZeros(width);
+            this.sampleSize = 10 * width;
+        }
+
+        private int index(int hash, int row) {
+            return (hash * SEEDS[row]) >>> indexShift;
+        }
+
+        private static int spread(Object key) {
+            int hash = key.hashCode() * 0x9e3779b9;
+            return hash ^ (hash >>> 16);
+        }
+
+        void increment(Object key) {
+            int hash = spread(key);
+            for (int row = 0; row < DEPTH; row++) {
+                int i = index(hash, row);
+                if (counters[row][i] < MAX_COUNT) {
+                    counters[row][i]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                halve();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key);
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, counters[row][index(hash, row)]);
+            }
+            return min;
+        }
+
+        /**
+         * Ages every counter so that past popularity does not outweigh recent accesses forever.
+         */
+        private void halve() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package il.ac.hit.project.main.model.dao.cache;
+
+import il.ac.hit.project.main.model.task.ITask;
+
+/**
+ * A per-task cache in two tiers: a small on-heap {@link BoundedCache} of recently used task
+ * objects in front of a large {@link OffHeapTaskStore} of serialized tasks.
+ * <p>
+ * Entries move between the tiers on their own. Whatever the hot tier evicts or rejects is
+ * demoted, i.e. serialized into the cold tier; a lookup that misses the hot tier but hits the
+ * cold tier promotes the task, which moves it back to the hot tier (possibly demoting another).
+ * A task is in at most one tier at a time. Only the cold tier drops tasks for good.
+ * <p>
+ * All operations take the cache's monitor, so a promotion cannot race a concurrent write of the
+ * same task.
+ *
+ * <ul>
+ *   <li>hot: Deserialized tasks, bounded by entry count or weight.</li>
+ *   <li>cold: Serialized tasks, bounded by off-heap bytes.</li>
+ *   <li>hotHits / coldHits / misses / promotions: Counters exposed for monitoring.</li>
+ * </ul>
+ */
+public class TwoTierTaskCache implements ICache<Integer, ITask> {
+
+    private final BoundedCache<Integer, ITask> hot;
+    private final OffHeapTaskStore cold;
+
+    private long hotHits;
+    private long coldHits;
+    private long misses;
+    private long promotions;
+
+    /**
+     * Creates a cache of an LRU hot tier and an off-heap cold tier of default-sized segments.
+     *
+     * @param maxHotTasks  the most tasks kept on the heap
+     * @param maxColdBytes the most off-heap memory for the cold tier
+     */
+    public TwoTierTaskCache(int maxHotTasks, long maxColdBytes) {
+        this(BoundedCache.lru(maxHotTasks), new OffHeapTaskStore(maxColdBytes));
+    }
+
+    /**
+     * Creates a cache of the given tiers. The hot tier's eviction listener is replaced by one
+     * that demotes to the cold tier, and both tiers should be empty and used only through this cache.
+     *
+     * @param hot  the on-heap tier
+     * @param cold the off-heap tier
+     */
+    public TwoTierTaskCache(BoundedCache<Integer, ITask> hot, OffHeapTaskStore cold) {
+        this.hot = hot;
+        this.cold = cold;
+        hot.setEvictionListener((id, task) -> cold.put(task));
+    }
+
+    /**
+     * Looks up a task in the hot tier, then in the cold tier, promoting it if found there.
+     *
+     * @return the cached task, or null if neither tier holds {@code id}
+     */
+    @Override
+    public synchronized ITask get(Integer id) {
+        ITask task = hot.get(id);
+        if (task != null) {
+            hotHits++;
+            return task;
+        }
+        task = cold.get(id);
+        if (task == null) {
+            misses++;
+            return null;
+        }
+        coldHits++;
+        cold.remove(id);
+        hot.put(id, task);
+        promotions++;
+        return task;
+    }
+
+    /**
+     * Caches a task in the hot tier, dropping any cold copy.
+     *
+     * @return {@code true} if the task is cached afterwards in either tier
+     */
+    @Override
+    public synchronized boolean put(Integer id, ITask task) {
+        cold.remove(id);
+        // A task the hot tier refuses is demoted straight away
+        return hot.put(id, task) || cold.contains(id);
+    }
+
+    @Override
+    public synchronized ITask remove(Integer id) {
+        ITask task = hot.remove(id);
+        if (task == null) {
+            task = cold.get(id);
+            cold.remove(id);
+        }
+        return task;
+    }
+
+    @Override
+    public synchronized void clear() {
+        hot.clear();
+        cold.clear();
+    }
+
+    /**
+     * @return the number of tasks in both tiers
+     */
+    @Override
+    public synchronized int size() {return hot.size() + cold.size();}
+
+    /**
+     * @return the number of tasks dropped from the cold tier to make room
+     */
+    @Override
+    public synchronized long getEvictions() {return cold.getEvictions();}
+
+    /**
+     * @return the number of tasks too large for the cold tier, and so not cached at all
+     */
+    @Override
+    public synchronized long getRejections() {return cold.getRejections();}
+
+    /**
+     * @return the on-heap tier
+     */
+    public BoundedCache<Integer, ITask> getHotTier() {return hot;}
+
+    /**
+     * @return the off-heap tier
+     */
+    public OffHeapTaskStore getColdTier() {return cold;}
+
+    /**
+     * @return the number of lookups answered by the hot tier
+     */
+    public synchronized long getHotHits() {return hotHits;}
+
+    /**
+     * @return the number of lookups answered by the cold tier
+     */
+    public synchronized long getColdHits() {return coldHits;}
+
+    /**
+     * @return the number of lookups neither tier could answer
+     */
+    public synchronized long getMisses() {return misses;}
+
+    /**
+     * @return the number of tasks moved from the cold tier to the hot tier
+     */
+    public synchronized long getPromotions() {return promotions;}
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TwoTierTaskCache[hot=%s, cold=%s, hotHits=%d, coldHits=%d, misses=%d, promotions=%d]",
+                hot, cold, hotHits, coldHits, misses, promotions);
+    }
+}
@@ -12,7 +12,7 @@ import java.util.List;
  * specific object types, rather than relying on a common visitor interface
  * in the visited objects. This design improves decoupling and scalability.
  * <p>
- * To use this visitor, pass it instances of {@link Task} directly.
+ * To use this visitor, pass it instances of {@link ITask} directly.
  * After visiting all desired tasks, call {@link #getReport()} to
  * retrieve an immutable summary of the counts.
  */
@@ -35,7 +35,7 @@ public class ReportVisitor {
      * @see #getReport()
      * @throws IllegalStateException if the task state is null or not recognized
      */
-    public void visit(Task task) {
+    public void visit(ITask task) {
         TaskState state = task.getState();
         switch (state) {
             case CompletedState _ -> {completedTasks++; completedTasksBucket.add(task);}
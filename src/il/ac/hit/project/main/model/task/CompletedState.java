@@ -30,6 +30,16 @@ public class CompletedState implements TaskState {
         this.inProgressState = inProgressState;
     }
 
+    /**
+     * Position of this state in the workflow.
+     *
+     * @return 2
+     */
+    @Override
+    public int getOrdinal() {
+        return 2;
+    }
+
     /**
      * Human-readable name of this state.
      *
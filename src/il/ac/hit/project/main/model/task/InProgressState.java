@@ -41,6 +41,16 @@ public class InProgressState implements TaskState {
         return "InProgressState";
     }
 
+    /**
+     * Position of this state in the workflow.
+     *
+     * @return 1
+     */
+    @Override
+    public int getOrdinal() {
+        return 1;
+    }
+
     /**
      * Human-readable name of this state.
      *
@@ -10,6 +10,12 @@ public interface TaskState {
      */
     String getDisplayName();
 
+    /**
+     * Position of this state in the workflow: 0 for "To Do", 1 for "In Progress", 2 for "Completed".
+     * Allows cheap comparisons and array lookups without comparing names or classes.
+     */
+    int getOrdinal();
+
     /**
      * Next state in the workflow; return this if no forward transition.
      */
@@ -0,0 +1,97 @@
+package il.ac.hit.project.main.model.task;
+
+/**
+ * Flyweight factory for the workflow states.
+ * <p>
+ * States carry no per-task data, so a single immutable state graph
+ * (To Do -> In Progress -> Completed) is shared by every task. Assigning a state
+ * through this factory costs no allocation, and since {@code next()}/{@code previous()}
+ * on a shared state return shared states, tasks never leave the canonical graph.
+ * <p>
+ * Because the instances are canonical, states obtained here may be compared by identity;
+ * states that may come from elsewhere should be compared by {@link TaskState#getOrdinal()}.
+ */
+public final class TaskStateFactory {
+
+    /**
+     * The shared "To Do" state; the root of the canonical graph.
+     */
+    private static final TaskState TO_DO = new ToDoState();
+
+    /**
+     * The shared "In Progress" state, reached from {@link #TO_DO}.
+     */
+    private static final TaskState IN_PROGRESS = TO_DO.next();
+
+    /**
+     * The shared "Completed" state, reached from {@link #IN_PROGRESS}.
+     */
+    private static final TaskState COMPLETED = IN_PROGRESS.next();
+
+    /**
+     * Shared states indexed by {@link TaskState#getOrdinal()}.
+     */
+    private static final TaskState[] BY_ORDINAL = {TO_DO, IN_PROGRESS, COMPLETED};
+
+    private TaskStateFactory() {}
+
+    /**
+     * @return the shared "To Do" state
+     */
+    public static TaskState toDo() {return TO_DO;}
+
+    /**
+     * @return the shared "In Progress" state
+     */
+    public static TaskState inProgress() {return IN_PROGRESS;}
+
+    /**
+     * @return the shared "Completed" state
+     */
+    public static TaskState completed() {return COMPLETED;}
+
+    /**
+     * Looks up a shared state by its position in the workflow.
+     *
+     * @param ordinal 0 for "To Do", 1 for "In Progress", 2 for "Completed"
+     * @return the shared state with the given ordinal
+     * @throws IllegalArgumentException if {@code ordinal} is out of range
+     */
+    public static TaskState fromOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= BY_ORDINAL.length) {
+            throw new IllegalArgumentException("Unknown state ordinal: " + ordinal);
+        }
+        return BY_ORDINAL[ordinal];
+    }
+
+    /**
+     * Looks up a shared state by its display name.
+     *
+     * @param displayName one of "To Do", "In Progress", "Completed"
+     * @return the shared state with the given display name
+     * @throws IllegalArgumentException if {@code displayName} is not recognized
+     */
+    public static TaskState fromDisplayName(String displayName) {
+        return switch (displayName) {
+            case "To Do" -> TO_DO;
+            case "In Progress" -> IN_PROGRESS;
+            case "Completed" -> COMPLETED;
+            default -> throw new IllegalArgumentException("Unknown state: " + displayName);
+        };
+    }
+
+    /**
+     * Maps any state instance, canonical or not, to its shared equivalent.
+     *
+     * @param state a non-null state
+     * @return the shared state with the same ordinal
+     */
+    public static TaskState canonical(TaskState state) {
+        return fromOrdinal(state.getOrdinal());
+    }
+
+    /**
+     * @return the number of workflow states
+     */
+    public static int count() {return BY_ORDINAL.length;}
+}
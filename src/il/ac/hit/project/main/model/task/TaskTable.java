@@ -0,0 +1,430 @@
+package il.ac.hit.project.main.model.task;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A list of tasks stored as primitive columns instead of one {@link Task} object per task, for
+ * working sets of millions of tasks.
+ * <p>
+ * Every task takes a slot in parallel arrays (id, state ordinal, and offset and length of the
+ * title and description), and the strings are packed as UTF-8 into one buffer, which may be
+ * off-heap. That is about 30 bytes per task plus its text, against 150 and more for a
+ * {@code Task} with two {@code String}s, and leaves the garbage collector a handful of arrays
+ * to trace however many tasks are stored. The list order is kept separately, as an array of
+ * slots, so removing a task only moves ints.
+ * <p>
+ * Elements are returned as flyweight views of their slot; a view allocates nothing but itself
+ * and decodes its strings on each call. A view sees later {@link #set(int, ITask)}s of its task
+ * and throws {@link IllegalStateException} once the task has been removed. Adding a task copies
+ * its values, so a stored {@code Task} may be changed or dropped by the caller afterwards.
+ * Replaced and removed strings stay in the buffer until more than half of it is dead and it is
+ * compacted.
+ * <p>
+ * Like {@link java.util.ArrayList} the table is not thread-safe.
+ *
+ * <ul>
+ *   <li>order / size: The slot of each list position.</li>
+ *   <li>ids / states / *Offsets / *Lengths: The columns, indexed by slot; a null string has length -1.</li>
+ *   <li>versions: Bumped whenever a slot is freed, so views of the removed task can tell.</li>
+ *   <li>freeSlots: Slots of removed tasks, reused by later adds.</li>
+ * </ul>
+ */
+public final class TaskTable extends AbstractList<ITask> implements RandomAccess {
+
+    private static final int INITIAL_SLOTS = 16;
+    private static final int INITIAL_STRING_BYTES = 1 << 10;
+    // Dead string bytes tolerated before compaction, however few bytes are live
+    private static final int COMPACTION_MIN_DEAD_BYTES = 1 << 16;
+
+    private final boolean offHeap;
+    private int[] order = new int[INITIAL_SLOTS];
+    private int size;
+
+    private int[] ids = new int[INITIAL_SLOTS];
+    private byte[] states = new byte[INITIAL_SLOTS];
+    private int[] titleOffsets = new int[INITIAL_SLOTS];
+    private int[] titleLengths = new int[INITIAL_SLOTS];
+    private int[] descriptionOffsets = new int[INITIAL_SLOTS];
+    private int[] descriptionLengths = new int[INITIAL_SLOTS];
+    private int[] versions = new int[INITIAL_SLOTS];
+    private int slots;
+
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeCount;
+
+    private ByteBuffer strings;
+    private int stringBytes;
+    private int deadStringBytes;
+
+    /**
+     * A task read through its slot in a table.
+     */
+    private final class View implements ITask {
+        private final int slot;
+        private final int version;
+
+        View(int slot) {
+            this.slot = slot;
+            this.version = versions[slot];
+        }
+
+        TaskTable owner() {return TaskTable.this;}
+
+        private int slot() {
+            if (versions[slot] != version) {
+                throw new IllegalStateException("Task was removed from the table");
+            }
+            return slot;
+        }
+
+        @Override
+        public int getId() {return ids[slot()];}
+
+        @Override
+        public String getTitle() {
+            int current = slot();
+            return decode(titleOffsets[current], titleLengths[current]);
+        }
+
+        @Override
+        public String getDescription() {
+            int current = slot();
+            return decode(descriptionOffsets[current], descriptionLengths[current]);
+        }
+
+        @Override
+        public TaskState getState() {return TaskStateFactory.fromOrdinal(states[slot()]);}
+
+        /**
+         * Same format as {@link Task#toString()}.
+         */
+        @Override
+        public String toString() {
+            return "ID: " + getId() + " | Title: " + getTitle() + " | State: " + getState().toString();
+        }
+    }
+
+    /**
+     * Creates an empty table keeping its strings on the Java heap.
+     */
+    public TaskTable() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty table.
+     *
+     * @param offHeap {@code true} to keep the strings in a direct buffer outside the Java heap
+     */
+    public TaskTable(boolean offHeap) {
+        this.offHeap = offHeap;
+        this.strings = allocate(INITIAL_STRING_BYTES);
+    }
+
+    /**
+     * Creates a table holding copies of {@code tasks}, in their order.
+     *
+     * @param tasks   the tasks to copy
+     * @param offHeap {@code true} to keep the strings in a direct buffer outside the Java heap
+     */
+    public TaskTable(Collection<? extends ITask> tasks, boolean offHeap) {
+        this(offHeap);
+        addAll(tasks);
+    }
+
+    /**
+     * @return {@code true} if the strings are kept outside the Java heap
+     */
+    public boolean isOffHeap() {return offHeap;}
+
+    @Override
+    public int size() {return size;}
+
+    /**
+     * @return a view of the task at {@code index}
+     */
+    @Override
+    public ITask get(int index) {
+        Objects.checkIndex(index, size);
+        return new View(order[index]);
+    }
+
+    /**
+     * Finds a task by id without creating views.
+     *
+     * @return the position of the first task with the given id, or -1
+     */
+    public int indexOfId(int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[order[i]] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the tasks in each state without creating views.
+     *
+     * @return the number of tasks indexed by {@link TaskState#getOrdinal()}
+     */
+    public int[] countByState() {
+        int[] counts = new int[TaskStateFactory.count()];
+        for (int i = 0; i < size; i++) {
+            counts[states[order[i]]]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Stores a copy of {@code task} at {@code index}, in the same slot, so views of the replaced
+     * task see the new values.
+     *
+     * @return a detached copy of the replaced task
+     */
+    @Override
+    public ITask set(int index, ITask task) {
+        Objects.checkIndex(index, size);
+        int slot = order[index];
+        ITask previous = copy(slot);
+        if (!isViewOf(task, slot)) {
+            write(slot, task);
+            compactIfDue();
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, ITask task) {
+        Objects.checkIndex(index, size + 1);
+        int slot = allocateSlot();
+        write(slot, task);
+        if (size == order.length) {
+            order = Arrays.copyOf(order, size * 2);
+        }
+        System.arraycopy(order, index, order, index + 1, size - index);
+        order[index] = slot;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * @return a detached copy of the removed task
+     */
+    @Override
+    public ITask remove(int index) {
+        Objects.checkIndex(index, size);
+        int slot = order[index];
+        ITask removed = copy(slot);
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+        freeSlot(slot);
+        modCount++;
+        compactIfDue();
+        return removed;
+    }
+
+    /**
+     * Removes the matching tasks in one pass over the slot order. Every task is tested before any
+     * is removed, so a filter that throws leaves the table unchanged.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super ITask> filter) {
+        Objects.requireNonNull(filter);
+        int expectedModCount = modCount;
+        BitSet matches = new BitSet();
+        for (int i = 0; i < size; i++) {
+            if (filter.test(new View(order[i]))) {
+                matches.set(i);
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (matches.isEmpty()) {
+            return false;
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = order[i];
+            if (matches.get(i)) {
+                freeSlot(slot);
+            } else {
+                order[kept++] = slot;
+            }
+        }
+        size = kept;
+        modCount++;
+        compactIfDue();
+        return true;
+    }
+
+    /**
+     * Replaces tasks in place, rewriting only the slots for which {@code operator} returned
+     * something other than the view it was given.
+     */
+    @Override
+    public void replaceAll(UnaryOperator<ITask> operator) {
+        Objects.requireNonNull(operator);
+        for (int i = 0; i < size; i++) {
+            int slot = order[i];
+            ITask replacement = operator.apply(new View(slot));
+            if (!isViewOf(replacement, slot)) {
+                write(slot, replacement);
+            }
+        }
+        compactIfDue();
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            versions[order[i]]++;
+        }
+        size = 0;
+        slots = 0;
+        freeCount = 0;
+        stringBytes = 0;
+        deadStringBytes = 0;
+        modCount++;
+    }
+
+    /**
+     * @return bytes of the string buffer taken by the strings of the stored tasks
+     */
+    public int getStringBytes() {return stringBytes - deadStringBytes;}
+
+    // ---------------------------------------------------------------- slots
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slots == ids.length) {
+            int capacity = slots * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            states = Arrays.copyOf(states, capacity);
+            titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+            descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+            descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        // Fresh slots start without strings, so write() has nothing to count as dead
+        titleLengths[slots] = -1;
+        descriptionLengths[slots] = -1;
+        return slots++;
+    }
+
+    private void freeSlot(int slot) {
+        deadStringBytes += Math.max(0, titleLengths[slot]) + Math.max(0, descriptionLengths[slot]);
+        titleLengths[slot] = -1;
+        descriptionLengths[slot] = -1;
+        versions[slot]++;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void write(int slot, ITask task) {
+        // Read everything first: task may be a view of this table
+        int id = task.getId();
+        byte state = (byte) task.getState().getOrdinal();
+        byte[] title = utf8(task.getTitle());
+        byte[] description = utf8(task.getDescription());
+        deadStringBytes += Math.max(0, titleLengths[slot]) + Math.max(0, descriptionLengths[slot]);
+        ids[slot] = id;
+        states[slot] = state;
+        titleOffsets[slot] = append(title);
+        titleLengths[slot] = title == null ? -1 : title.length;
+        descriptionOffsets[slot] = append(description);
+        descriptionLengths[slot] = description == null ? -1 : description.length;
+    }
+
+    private boolean isViewOf(ITask task, int slot) {
+        return task instanceof TaskTable.View view && view.owner() == this && view.slot == slot
+                && view.version == versions[slot];
+    }
+
+    private Task copy(int slot) {
+        return new Task(ids[slot], decode(titleOffsets[slot], titleLengths[slot]),
+                decode(descriptionOffsets[slot], descriptionLengths[slot]), TaskStateFactory.fromOrdinal(states[slot]));
+    }
+
+    // ---------------------------------------------------------------- strings
+
+    private ByteBuffer allocate(int bytes) {
+        return offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String decode(int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        strings.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the offset of {@code bytes} in the string buffer, or 0 for a null string
+     */
+    private int append(byte[] bytes) {
+        if (bytes == null) {
+            return 0;
+        }
+        if ((long) stringBytes + bytes.length > strings.capacity()) {
+            long needed = (long) stringBytes + bytes.length;
+            if (needed > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Task table strings exceed 2 GB");
+            }
+            ByteBuffer grown = allocate((int) Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * strings.capacity())));
+            grown.put(0, strings, 0, stringBytes);
+            strings = grown;
+        }
+        strings.put(stringBytes, bytes);
+        int offset = stringBytes;
+        stringBytes += bytes.length;
+        return offset;
+    }
+
+    private void compactIfDue() {
+        if (deadStringBytes < COMPACTION_MIN_DEAD_BYTES || deadStringBytes <= stringBytes - deadStringBytes) {
+            return;
+        }
+        ByteBuffer compacted = allocate(Math.max(INITIAL_STRING_BYTES, 2 * (stringBytes - deadStringBytes)));
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = order[i];
+            // Empty strings move too: their old offset may lie past the end of the compacted buffer
+            if (titleLengths[slot] >= 0) {
+                compacted.put(position, strings, titleOffsets[slot], titleLengths[slot]);
+                titleOffsets[slot] = position;
+                position += titleLengths[slot];
+            }
+            if (descriptionLengths[slot] >= 0) {
+                compacted.put(position, strings, descriptionOffsets[slot], descriptionLengths[slot]);
+                descriptionOffsets[slot] = position;
+                position += descriptionLengths[slot];
+            }
+        }
+        strings = compacted;
+        stringBytes = position;
+        deadStringBytes = 0;
+    }
+}
@@ -10,6 +10,8 @@ import java.util.Objects;
  * - previous(): returns {@code this} (there is no state before "To Do").
  * <p>
  * This class is immutable and thread-safe.
+ * <p>
+ * Every instance builds its own state graph; use {@link TaskStateFactory#toDo()} to share one.
  */
 public class ToDoState implements TaskState {
 
@@ -19,6 +21,16 @@ public class ToDoState implements TaskState {
      */
     private final InProgressState inProgressState = new InProgressState(this);
 
+    /**
+     * Position of this state in the workflow.
+     *
+     * @return 0
+     */
+    @Override
+    public int getOrdinal() {
+        return 0;
+    }
+
     /**
      * Human-readable name of this state.
      *
@@ -100,7 +100,7 @@ public class TaskManagerView extends JPanel implements IView {
     /**
      * The initial "To Do" state for a new task.
      */
-    private final TaskState selectedTaskState = new ToDoState();
+    private final TaskState selectedTaskState = TaskStateFactory.toDo();
     /**
      * The visual list component displaying tasks.
      */
@@ -109,6 +109,10 @@ public class TaskManagerView extends JPanel implements IView {
      * The model for the task list.
      */
     private DefaultListModel<ITask> listModel;
+    /**
+     * Distance in pixels from the end of the task list at which the next page is requested.
+     */
+    private static final int SCROLL_LOAD_THRESHOLD_PX = 100;
     /**
      * Text field for searching by title.
      */
@@ -374,7 +378,8 @@ public class TaskManagerView extends JPanel implements IView {
         // Center panel for the task list
         JPanel taskListPanel = new JPanel(new BorderLayout());
         taskListPanel.setBorder(BorderFactory.createTitledBorder("Task List"));
-        taskListPanel.add(new JScrollPane(taskList), BorderLayout.CENTER);
+        JScrollPane taskListScrollPane = new JScrollPane(taskList);
+        taskListPanel.add(taskListScrollPane, BorderLayout.CENTER);
 
         // Bottom panel for action buttons
         JPanel actionsPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
@@ -495,6 +500,15 @@ public class TaskManagerView extends JPanel implements IView {
             }
         });
 
+        // Load the next page of tasks once the list is scrolled close to its end.
+        taskListScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            BoundedRangeModel scroll = taskListScrollPane.getVerticalScrollBar().getModel();
+            int remaining = scroll.getMaximum() - (scroll.getValue() + scroll.getExtent());
+            if (!e.getValueIsAdjusting() && remaining <= SCROLL_LOAD_THRESHOLD_PX) {
+                viewModel.loadNextPage();
+            }
+        });
+
         // Re-apply filters whenever any of the filter controls trigger an action (state or search fields).
         stateFilterComboBox.addActionListener(e -> applyAllFilters());
         searchTitleInput.addActionListener(e -> applyAllFilters());
@@ -0,0 +1,83 @@
+package il.ac.hit.project.main.viewmodel;
+
+import il.ac.hit.project.main.model.dao.ConcurrencyLimitedTasksDAO;
+import il.ac.hit.project.main.model.dao.ITasksDAO;
+import il.ac.hit.project.main.model.dao.TasksDAOProxy;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How {@link TasksViewModel} runs its background work.
+ * <ul>
+ *   <li>{@link #FIXED_POOL}: a fixed pool of {@value #FIXED_POOL_THREADS} platform threads; work
+ *       beyond that queues until a thread is free.</li>
+ *   <li>{@link #VIRTUAL_THREADS}: one virtual thread per submitted task, so blocking JDBC calls do
+ *       not hold up other work. DAO calls are capped at {@value #VIRTUAL_THREADS_DAO_CONCURRENCY}
+ *       at a time by a {@link ConcurrencyLimitedTasksDAO}, so bursts cannot flood the data store.
+ *       Behind a {@link TasksDAOProxy} only the calls that miss its caches are capped.</li>
+ * </ul>
+ * The mode used by the two-argument {@link TasksViewModel} constructor is read from the
+ * {@value #PROPERTY} system property, e.g. {@code -Dtasks.executionMode=virtual_threads}.
+ */
+public enum ExecutionMode {
+    FIXED_POOL,
+    VIRTUAL_THREADS;
+
+    // System property selecting the mode; defaults to FIXED_POOL
+    public static final String PROPERTY = "tasks.executionMode";
+    // Platform threads of the FIXED_POOL mode
+    public static final int FIXED_POOL_THREADS = 8;
+    // DAO calls running at once in VIRTUAL_THREADS mode; matches the DAO's connection pool
+    public static final int VIRTUAL_THREADS_DAO_CONCURRENCY = 8;
+
+    /**
+     * @return a new executor for this mode
+     */
+    public ExecutorService newExecutor() {
+        return switch (this) {
+            case FIXED_POOL -> Executors.newFixedThreadPool(FIXED_POOL_THREADS);
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+    }
+
+    /**
+     * Wraps the DAO as required by this mode.
+     *
+     * @param tasksDAO the DAO the view model will use
+     * @return {@code tasksDAO} itself for {@link #FIXED_POOL}, whose thread count already bounds
+     *         DAO concurrency; for {@link #VIRTUAL_THREADS}, a {@link TasksDAOProxy} itself with its
+     *         underlying DAO {@link TasksDAOProxy#limitConcurrency(int) limited}, or any other DAO
+     *         wrapped in a {@link ConcurrencyLimitedTasksDAO}
+     */
+    public ITasksDAO limit(ITasksDAO tasksDAO) {
+        if (this == FIXED_POOL || tasksDAO instanceof ConcurrencyLimitedTasksDAO) {
+            return tasksDAO;
+        }
+        if (tasksDAO instanceof TasksDAOProxy proxy) {
+            //Cache hits must not wait for a permit, so the limit goes below the proxy
+            proxy.limitConcurrency(VIRTUAL_THREADS_DAO_CONCURRENCY);
+            return proxy;
+        }
+        return new ConcurrencyLimitedTasksDAO(tasksDAO, VIRTUAL_THREADS_DAO_CONCURRENCY);
+    }
+
+    /**
+     * Reads the configured mode from the {@value #PROPERTY} system property.
+     *
+     * @return the configured mode, or {@link #FIXED_POOL} if the property is unset or unknown
+     */
+    public static ExecutionMode configured() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.isBlank()) {
+            return FIXED_POOL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + PROPERTY + " '" + value + "', using " + FIXED_POOL);
+            return FIXED_POOL;
+        }
+    }
+}
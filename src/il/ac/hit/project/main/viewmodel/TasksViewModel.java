@@ -2,11 +2,13 @@ package il.ac.hit.project.main.viewmodel;
 
 import il.ac.hit.project.main.model.dao.ITasksDAO;
 import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.dao.TasksDAOProxy;
 import il.ac.hit.project.main.model.report.*;
 import il.ac.hit.project.main.model.task.ITask;
 import il.ac.hit.project.main.model.task.Task;
 import il.ac.hit.project.main.model.task.TaskState;
-import il.ac.hit.project.main.model.task.ToDoState;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import il.ac.hit.project.main.model.task.TaskTable;
 import il.ac.hit.project.main.view.MessageType;
 import il.ac.hit.project.main.view.ObservableProperty.IObservableCollection;
 import il.ac.hit.project.main.view.ObservableProperty.IPropertyObserver;
@@ -25,8 +27,10 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static il.ac.hit.project.main.view.MessageType.ERROR;
 
@@ -78,6 +82,12 @@ public class TasksViewModel implements IViewModel {
     // The complete in-memory set of tasks last loaded from the DAO.
     private List<ITask> allTasks = new ArrayList<>();
 
+    // System property choosing the list loaded tasks are kept in: "list" (the default), "table" or "offheap"
+    public static final String TASK_STORAGE_PROPERTY = "tasks.listStorage";
+
+    // Creates the list that loaded tasks are copied into; see setTaskListFactory.
+    private volatile Supplier<List<ITask>> taskListFactory = configuredTaskListFactory();
+
     // Registry of report exporters keyed by human-readable format (e.g., "PDF", "CSV").
     private final Map<String, IReportExporter> exporters = new HashMap<>();
 
@@ -87,35 +97,81 @@ public class TasksViewModel implements IViewModel {
     // Executor used to perform DAO operations and other background work.
     private final ExecutorService service;
 
+    // How the executor was created; null when it was injected.
+    private final ExecutionMode executionMode;
+
     //Selected task data-bound
     private final IObservableProperty<ITask> selectedTask = new ObservableProperty<>(null);
 
     //Task list data-bound
     private final IObservableCollection<ITask> tasksList = new ObservableCollection<>();
 
+    // Number of tasks requested per page by the UI constructor.
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    // Tasks fetched per page; 0 disables paging and makes loadTasks() fetch the whole table.
+    private volatile int pageSize = 0;
+
+    // Keyset cursor: the highest task id loaded so far through paging.
+    private volatile int lastLoadedId = 0;
+
+    // Whether the DAO may still hold tasks after lastLoadedId; only set once a page was read.
+    private volatile boolean morePages = false;
+
+    // Guards against scheduling the same page twice while a page load is in flight.
+    private final AtomicBoolean pageLoadPending = new AtomicBoolean(false);
+
+    // Serializes page fetches so pages are appended in id order.
+    private final Object pageLock = new Object();
+
     /**
-     * Creates a new TasksViewModel, wires the DAO and the View, registers default exporters,
-     * sets the default sorting strategy, and triggers an initial asynchronous load of tasks.
+     * Creates a new TasksViewModel using the {@link ExecutionMode#configured() configured}
+     * execution mode.
      *
      * @param tasksDAO the DAO used for persistence; must not be null
      * @param view     the il.ac.hit.project.main.view to associate; must not be null
+     * @see #TasksViewModel(ITasksDAO, IView, ExecutionMode)
      */
     public TasksViewModel(ITasksDAO tasksDAO, IView view) {
-        setModel(tasksDAO);
+        this(tasksDAO, view, ExecutionMode.configured());
+    }
+
+    /**
+     * Creates a new TasksViewModel, wires the DAO and the View, registers default exporters,
+     * sets the default sorting strategy, and triggers an initial asynchronous load of tasks.
+     *
+     * @param tasksDAO      the DAO used for persistence; must not be null. In
+     *                      {@link ExecutionMode#VIRTUAL_THREADS} mode its calls are capped by a concurrency
+     *                      limiter (see {@link ExecutionMode#limit(ITasksDAO)}), placed under a caching proxy
+     *                      or else around the DAO, which {@link #getModel()} then returns. When it is a
+     *                      {@link TasksDAOProxy}, the tasks are loaded again if its warm-start
+     *                      snapshot turns out to be stale.
+     * @param view          the il.ac.hit.project.main.view to associate; must not be null
+     * @param executionMode how background work is run; must not be null
+     */
+    public TasksViewModel(ITasksDAO tasksDAO, IView view, ExecutionMode executionMode) {
+        setModel(executionMode.limit(tasksDAO));
         setView(view);
         exporters.put("Terminal", new ReportAdapter());
         exporters.put("PDF", new PDFReportAdapter());
         exporters.put("CSV", new CSVReportAdapter());
         exporters.put("JSON", new JSONReportAdapter());
         setSortingStrategy(new SortByIDStrategy());
-        this.service = Executors.newFixedThreadPool(8);
+        this.executionMode = executionMode;
+        this.service = executionMode.newExecutor();
+        setPageSize(DEFAULT_PAGE_SIZE);
         setPropertyListeners();
-        loadTasks(); // Initial load
+        if (tasksDAO instanceof TasksDAOProxy proxy) {
+            // A warm-start snapshot found stale after being shown is replaced by the proxy; show its replacement
+            proxy.addWarmStartRejectionListener(this::loadTasks);
+        }
+        loadTasks(); // Initial load (first page)
     }
 
     public TasksViewModel(ITasksDAO dao, IView view, ExecutorService executorService) {
         setModel(dao);
         setView(view);
+        this.executionMode = null;
         this.service = executorService;
     }
 
@@ -183,10 +239,18 @@ public class TasksViewModel implements IViewModel {
     }
 
     /**
-     * Asynchronously loads all tasks from the DAO, replaces the in-memory lists,
+     * Asynchronously loads tasks from the DAO, replaces the in-memory lists,
      * and notifies observers. Errors are logged to stderr.
+     * <p>
+     * When paging is enabled (see {@link #setPageSize(int)}) only the first page is loaded;
+     * further pages are fetched by {@link #loadNextPage()} as the list is scrolled.
+     * </p>
      */
     public void loadTasks() {
+        if (isPagingEnabled()) {
+            loadFirstPage();
+            return;
+        }
         //Wrap DB calls with our service executor
         getService().submit(() -> {
             try {
@@ -194,10 +258,10 @@ public class TasksViewModel implements IViewModel {
                 if(tasksArray.length == 0) {
                     System.out.println("No tasks found on DB");
                 }
-                // Convert the array to an ArrayList for mutable operations
-                setAllTasks( new ArrayList<>(Arrays.asList(tasksArray)));
-                //Use the observer to update the list in the UI
-                getTasksList().setValue(new ArrayList<>(getAllTasks()));
+                // Convert the array to a list for mutable operations
+                setAllTasks(newTaskList(tasksArray));
+                //Use the observer to update the list in the UI; it keeps the loaded tasks, not views of a TaskTable
+                getTasksList().setValue(new ArrayList<>(Arrays.asList(tasksArray)));
                 getView().setTasks(Arrays.asList(tasksArray));
                 System.out.println( "Task List:" +getTasksList().toString());
             } catch (TasksDAOException e){
@@ -207,6 +271,136 @@ public class TasksViewModel implements IViewModel {
         });
     }
 
+    /**
+     * Asynchronously loads the first page of tasks, replacing the in-memory lists
+     * and restarting the keyset cursor.
+     */
+    private void loadFirstPage() {
+        getService().submit(() -> fetchPage(true));
+    }
+
+    /**
+     * Asynchronously loads the next page of tasks, if any, and appends it to the in-memory lists.
+     * Calls made while a page is already being loaded are ignored, so the View may call this
+     * freely from scroll events. No-op when paging is disabled or all pages are loaded.
+     */
+    public void loadNextPage() {
+        if (!hasMorePages() || !pageLoadPending.compareAndSet(false, true)) {
+            return;
+        }
+        getService().submit(() -> {
+            try {
+                fetchPage(false);
+            } finally {
+                pageLoadPending.set(false);
+            }
+        });
+    }
+
+    /**
+     * Fetches one page through the DAO, merges it into the in-memory lists and notifies observers.
+     * The in-memory lists are only touched once the page has been read. Runs on a worker thread.
+     *
+     * @param first {@code true} to restart from the first page and replace the loaded tasks,
+     *              {@code false} to append the page after {@link #lastLoadedId}
+     * @return {@code true} if more pages may follow
+     */
+    private boolean fetchPage(boolean first) {
+        synchronized (pageLock) {
+            if (!first && !morePages) {
+                return false;
+            }
+            int afterId = first ? 0 : lastLoadedId;
+            boolean more = false;
+            try {
+                ITask[] page = getModel().getTasksPage(afterId, pageSize);
+                // A short page is the last one
+                more = page.length == pageSize;
+                int to = page.length > 0 ? page[page.length - 1].getId() : afterId;
+                if (first) {
+                    setAllTasks(newTaskList(page));
+                    //Use the observer to update the list in the UI; it keeps the loaded tasks, not views of a TaskTable
+                    getTasksList().setValue(new ArrayList<>(Arrays.asList(page)));
+                } else {
+                    // Tasks added locally since the last page may fall in this range; keep the DB copies
+                    Predicate<ITask> inPage = task -> task.getId() > afterId && task.getId() <= to;
+                    getAllTasks().removeIf(inPage);
+                    getAllTasks().addAll(Arrays.asList(page));
+                    getTasksList().get().removeIf(inPage);
+                    getTasksList().get().addAll(Arrays.asList(page));
+                    getTasksList().notifyListeners();
+                }
+                lastLoadedId = to;
+                sortTasks();
+            } catch (TasksDAOException e) {
+                System.err.println("Error loading tasks page: " + e.getMessage() + (e.getCause() != null ? "\nCause: " + e.getCause() : ""));
+                getView().showMessage("Error loading tasks: " + e.getMessage(), ERROR);
+            } finally {
+                morePages = more;
+            }
+            return more;
+        }
+    }
+
+    /**
+     * Enables keyset paging with the given page size, or disables it with 0.
+     * Takes effect on the next {@link #loadTasks()}.
+     *
+     * @param pageSize tasks per page; 0 to always load the whole table
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize < 0) {
+            throw new IllegalArgumentException("Page size must not be negative: " + pageSize);
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Chooses the list that {@link #loadTasks()} copies loaded tasks into, e.g. a
+     * {@link TaskTable} to hold millions of tasks without one object per task.
+     * Takes effect on the next {@link #loadTasks()}.
+     *
+     * @param taskListFactory creates an empty, mutable list; must not be null
+     */
+    public void setTaskListFactory(Supplier<List<ITask>> taskListFactory) {
+        this.taskListFactory = taskListFactory;
+    }
+
+    /**
+     * Reads the list storage from the {@value #TASK_STORAGE_PROPERTY} system property.
+     *
+     * @return a factory of {@link TaskTable}s for "table" or "offheap", and of {@link ArrayList}s otherwise
+     */
+    private static Supplier<List<ITask>> configuredTaskListFactory() {
+        String value = System.getProperty(TASK_STORAGE_PROPERTY, "list");
+        return switch (value.toLowerCase()) {
+            case "table" -> () -> new TaskTable(false);
+            case "offheap" -> () -> new TaskTable(true);
+            default -> ArrayList::new;
+        };
+    }
+
+    private List<ITask> newTaskList(ITask[] tasks) {
+        List<ITask> list = taskListFactory.get();
+        list.addAll(Arrays.asList(tasks));
+        return list;
+    }
+
+    /**
+     * @return the number of tasks fetched per page; 0 when paging is disabled
+     */
+    public int getPageSize() {return pageSize;}
+
+    /**
+     * @return {@code true} if tasks are loaded page by page
+     */
+    public boolean isPagingEnabled() {return pageSize > 0;}
+
+    /**
+     * @return {@code true} if paging is enabled and not every page has been loaded yet
+     */
+    public boolean hasMorePages() {return isPagingEnabled() && morePages;}
+
     /**
      * Asynchronously creates a new task and persists it via the DAO.
      * On success, updates the in-memory lists and notifies observers.
@@ -220,7 +414,7 @@ public class TasksViewModel implements IViewModel {
             try {
                 //Invoke DB and refresh UI
                 System.out.println("Attempting to add task: " + title + "\nDesc: " + description);
-                ITask newTask = new Task(0,title, description, new ToDoState());
+                ITask newTask = new Task(0,title, description, TaskStateFactory.toDo());
                 getModel().addTask(newTask);
                 getAllTasks().add(newTask);
                 getTasksList().appendValue(newTask);
@@ -338,7 +532,14 @@ public class TasksViewModel implements IViewModel {
         getModel().updateTask(task);
         getAllTasks().replaceAll(t -> t.getId() == task.getId() ? task : t);
         //Invoke UI refresh
-        getTasksList().setValue(new ArrayList<>(getAllTasks()));
+        List<ITask> visible = getTasksList().get();
+        int index = indexOfId(visible, task.getId());
+        if (index >= 0) {
+            visible.set(index, task);
+        } else {
+            visible.add(task);
+        }
+        getTasksList().notifyListeners();
         // Success message: Task updated successfully
         getView().showMessage("Task \"" + task.getTitle() + "\" updated successfully!", MessageType.SUCCESS);
     }
@@ -362,12 +563,14 @@ public class TasksViewModel implements IViewModel {
          * update the task state, we obviously have the task in memory, so we don't
          * need to refetch it.
          * */
-        Task task = (Task) getAllTasks()
+        ITask current = getAllTasks()
                 .stream()
                 .filter(t -> t.getId() == taskId)
                 .findFirst()
                 .orElse(null);
-        if (task != null) {
+        if (current != null) {
+            // Edit a copy: the listed task may be the one the DAO's cache holds
+            Task task = copyOf(current);
             task.setState(task.getState().next());
             updateTask(task);
         }
@@ -392,12 +595,14 @@ public class TasksViewModel implements IViewModel {
          * update the task state, we obviously have the task in memory, so we don't
          * need to refetch it.
          * */
-        Task task = (Task) getAllTasks()
+        ITask current = getAllTasks()
                 .stream()
                 .filter(t -> t.getId() == taskId)
                 .findFirst()
                 .orElse(null);
-        if (task != null) {
+        if (current != null) {
+            // Edit a copy: the listed task may be the one the DAO's cache holds
+            Task task = copyOf(current);
             task.setState(task.getState().previous());
             updateTask(task);
         }
@@ -424,7 +629,8 @@ public class TasksViewModel implements IViewModel {
                 getAllTasks().removeIf(task -> task.getId() == id);
                 getTasks().removeIf(task -> task.getId() == id);
                 //Invoke UI refresh
-                getTasksList().setValue(new ArrayList<>(getAllTasks()));
+                getTasksList().get().removeIf(task -> task.getId() == id);
+                getTasksList().notifyListeners();
                 getView().showMessage("Task with ID " + id + " deleted successfully.", MessageType.SUCCESS);
             } catch (TasksDAOException e) {
                 System.err.println("Error deleting task: " + e.getMessage());
@@ -449,6 +655,7 @@ public class TasksViewModel implements IViewModel {
             try {
                 //Mess clear of all tasks lists in DB and memory
                 getModel().deleteTasks();
+                morePages = false;
                 getAllTasks().clear();
                 getTasks().clear();
                 //Invoke UI refresh
@@ -464,6 +671,7 @@ public class TasksViewModel implements IViewModel {
     /**
      * Asynchronously generates a report of all tasks.
      * Uses {@link ReportVisitor} to collect data and an {@link IReportExporter} chosen by the format key.
+     * When paging is enabled, the pages not loaded yet are fetched first.
      *
      * <p>Supported format keys are those present in {@link #exporters}, such as "Terminal", "PDF", "CSV", "JSON".</p>
      * <p>For file-based exporters, the output path is "report.&lt;format-lowercase&gt;".</p>
@@ -474,16 +682,16 @@ public class TasksViewModel implements IViewModel {
         //Wrap DB calls with our service executor
         getService().submit(() -> {
             try {
+                //Reports must cover every task: load the remaining pages first
+                while (fetchPage(false)) {
+                    // keep fetching until the last page
+                }
                 /*
                 Use a visitor to collect data and create a
                 record data object we can use to generate a report
                 */
                 ReportVisitor visitor = new ReportVisitor();
-                getAllTasks().forEach(task -> {
-                    if (task instanceof Task t) {
-                        visitor.visit(t);
-                    }
-                });
+                getAllTasks().forEach(visitor::visit);
                 //Retrieve the record object
                 ReportData reportData = visitor.getReport();
                 //Chosen exporter
@@ -531,6 +739,17 @@ public class TasksViewModel implements IViewModel {
             return;
         }
 
+        //Filters must see every task: load the remaining pages first, then filter on the worker
+        if (hasMorePages()) {
+            getService().submit(() -> {
+                while (fetchPage(false)) {
+                    // keep fetching until the last page
+                }
+                filterTasks(state, titleTerm, descriptionTerm, idTerm);
+            });
+            return;
+        }
+
         //Compose combinator filter
         TaskFilter combinedFilter = tasks -> tasks;
 
@@ -565,10 +784,42 @@ public class TasksViewModel implements IViewModel {
             }
         }
 
-        getTasksList().setValue(new ArrayList<>(combinedFilter.filter(getAllTasks())));
+        //Views of a TaskTable stop working once their task is removed, so the UI gets copies
+        List<ITask> filtered = new ArrayList<>();
+        for (ITask task : combinedFilter.filter(getAllTasks())) {
+            filtered.add(detached(task));
+        }
+        getTasksList().setValue(filtered);
         sortTasks();
     }
 
+    /**
+     * Returns {@code task} itself if it is a {@link Task}, and a detached copy otherwise, e.g.
+     * for a view of a {@link TaskTable}, which throws once its task is removed from the table.
+     */
+    private static Task detached(ITask task) {
+        return task instanceof Task loaded ? loaded : copyOf(task);
+    }
+
+    /**
+     * Returns a copy of {@code task} that can be edited without changing the original.
+     */
+    private static Task copyOf(ITask task) {
+        return new Task(task.getId(), task.getTitle(), task.getDescription(), task.getState());
+    }
+
+    /**
+     * @return the position of the task with the given id in {@code tasks}, or -1
+     */
+    private static int indexOfId(List<ITask> tasks, int id) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public void setPropertyListeners(){
         //Selected Task UI update
         selectedTask.addListener(new IPropertyObserver<ITask>() {
@@ -668,6 +919,13 @@ public class TasksViewModel implements IViewModel {
      */
     public ExecutorService getService() {return service;}
 
+    /**
+     * Returns the mode the executor was created with.
+     *
+     * @return the execution mode, or null if the executor was supplied by the caller
+     */
+    public ExecutionMode getExecutionMode() {return executionMode;}
+
     /**
      * Initiates an orderly shutdown of the background executor, waiting up to 60 seconds
      * for tasks to complete. If tasks do not complete in time, a forced shutdown is attempted.
@@ -79,17 +79,11 @@ public interface TaskFilter {
             return tasks -> tasks;
         }
 
-        TaskState taskState;
-        switch (state) {
-            //Use the linking of object instances to save in memory (at most 3 states instances)
-            case "To Do" -> taskState = new ToDoState();
-            case "In Progress" -> taskState = new InProgressState(new ToDoState());
-            case "Completed" -> taskState = new CompletedState(new InProgressState(new ToDoState()));
-            default -> throw new IllegalArgumentException("Unknown state: " + state);
-        }
+        //Shared flyweight state, compared by ordinal so tasks holding non-shared instances still match
+        int ordinal = TaskStateFactory.fromDisplayName(state).getOrdinal();
 
         return tasks -> tasks.stream()
-                .filter(task -> task.getState().getDisplayName().equals(taskState.getDisplayName()))
+                .filter(task -> task.getState().getOrdinal() == ordinal)
                 .collect(Collectors.toList());
     }
 
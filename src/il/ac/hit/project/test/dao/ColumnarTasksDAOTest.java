@@ -0,0 +1,155 @@
+package il.ac.hit.project.test.dao;
+
+import il.ac.hit.project.main.model.dao.ColumnarTasksDAO;
+import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ColumnarTasksDAO}: the DAO contract across reopening, column scans,
+ * growth of the mapped files and compaction.
+ */
+class ColumnarTasksDAOTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that adds, updates and deletes are kept across reopening, including null descriptions,
+     * and that ids keep increasing afterwards.
+     */
+    @Test
+    void testReopen_keepsTasks() throws TasksDAOException {
+        try (ColumnarTasksDAO tasksDAO = new ColumnarTasksDAO(directory)) {
+            tasksDAO.addTasks(new Task(0, "First", "Description", TaskStateFactory.toDo()),
+                    new Task(0, "Second", null, TaskStateFactory.toDo()),
+                    new Task(0, "Third", "Description", TaskStateFactory.toDo()));
+            tasksDAO.updateTask(new Task(2, "Second updated", "Now described", TaskStateFactory.completed()));
+            tasksDAO.updateTask(new Task(99, "Missing", null, TaskStateFactory.toDo()));
+            tasksDAO.deleteTask(3);
+            assertThrows(TasksDAOException.class, () -> tasksDAO.deleteTask(3));
+            assertThrows(TasksDAOException.class, () -> tasksDAO.getTask(3));
+        }
+
+        try (ColumnarTasksDAO tasksDAO = new ColumnarTasksDAO(directory)) {
+            ITask[] tasks = tasksDAO.getTasks();
+            assertEquals(2, tasks.length);
+            assertEquals("First", tasks[0].getTitle());
+            assertEquals("Second updated", tasks[1].getTitle());
+            assertEquals("Now described", tasks[1].getDescription());
+            assertEquals("Completed", tasks[1].getState().getDisplayName());
+            assertEquals(2, tasksDAO.getSummary().maxId());
+            assertEquals(1, tasksDAO.getTasksPage(1, 10).length);
+
+            Task fourth = new Task(0, "Fourth", null, TaskStateFactory.toDo());
+            tasksDAO.addTask(fourth);
+            assertEquals(4, fourth.getId());
+            assertNull(tasksDAO.getTask(4).getDescription());
+        }
+    }
+
+    /**
+     * Tests that the state filter and counts agree with the tasks, across growth of the columns
+     * beyond their initial size.
+     */
+    @Test
+    void testStateScans_afterGrowth() throws TasksDAOException {
+        try (ColumnarTasksDAO tasksDAO = new ColumnarTasksDAO(directory)) {
+            int count = 10_000;
+            Task[] tasks = new Task[count];
+            for (int i = 0; i < count; i++) {
+                tasks[i] = new Task(0, "Task " + i, "Description of task " + i,
+                        TaskStateFactory.fromOrdinal(i % 3));
+            }
+            tasksDAO.addTasks(tasks);
+
+            assertArrayEquals(new int[] {3334, 3333, 3333}, tasksDAO.countByState());
+            ITask[] completed = tasksDAO.getTasksByState(TaskStateFactory.completed());
+            assertEquals(3333, completed.length);
+            assertEquals(3, completed[0].getId());
+            assertEquals("Task 9998", completed[completed.length - 1].getTitle());
+            assertEquals("Description of task 5000", tasksDAO.getTask(5001).getDescription());
+            assertEquals(count, tasksDAO.getSummary().count());
+        }
+    }
+
+    /**
+     * Tests that compaction moves the live rows to a new generation of column files, and that
+     * deleting every task keeps the ids from being reused.
+     */
+    @Test
+    void testCompact_dropsDeadRows() throws TasksDAOException, IOException {
+        try (ColumnarTasksDAO tasksDAO = new ColumnarTasksDAO(directory)) {
+            for (int i = 0; i < 10; i++) {
+                tasksDAO.addTask(new Task(0, "Task " + i, null, TaskStateFactory.toDo()));
+            }
+            tasksDAO.deleteTasks(1, 2, 3, 4, 5, 42);
+            tasksDAO.updateTask(new Task(6, "Task 6 updated", "Description", TaskStateFactory.inProgress()));
+
+            tasksDAO.compact();
+
+            assertTrue(columnFiles().allMatch(name -> name.contains("-2.")));
+            assertEquals(5, tasksDAO.getTasks().length);
+            assertEquals("Task 6 updated", tasksDAO.getTask(6).getTitle());
+            assertNull(tasksDAO.findTask(5));
+        }
+        try (ColumnarTasksDAO tasksDAO = new ColumnarTasksDAO(directory)) {
+            assertEquals(5, tasksDAO.getSummary().count());
+            assertEquals("In Progress", tasksDAO.getTask(6).getState().getDisplayName());
+            tasksDAO.deleteTasks();
+            Task next = new Task(0, "After clear", null, TaskStateFactory.toDo());
+            tasksDAO.addTask(next);
+            assertEquals(11, next.getId());
+        }
+    }
+
+    /**
+     * Tests that writes made after the last flush are not visible after reopening without close,
+     * while flushed ones are.
+     */
+    @Test
+    void testFlush_makesWritesDurable() throws TasksDAOException {
+        ColumnarTasksDAO crashed = new ColumnarTasksDAO(directory);
+        crashed.addTask(new Task(0, "Flushed", null, TaskStateFactory.toDo()));
+        crashed.flush();
+        crashed.addTask(new Task(0, "Not flushed", null, TaskStateFactory.toDo()));
+
+        try (ColumnarTasksDAO tasksDAO = new ColumnarTasksDAO(directory)) {
+            assertEquals(1, tasksDAO.getTasks().length);
+            assertEquals("Flushed", tasksDAO.getTask(1).getTitle());
+        }
+    }
+
+    /**
+     * Tests that reopening without close after an update of a flushed row, whose new strings
+     * were never flushed, reports the columns as corrupt instead of failing on a later read.
+     */
+    @Test
+    void testReopen_rejectsRowsUpdatedAfterFlush() throws TasksDAOException {
+        ColumnarTasksDAO crashed = new ColumnarTasksDAO(directory);
+        crashed.addTask(new Task(0, "Flushed", null, TaskStateFactory.toDo()));
+        crashed.flush();
+        crashed.updateTask(new Task(1, "Updated after the flush", "Not flushed", TaskStateFactory.completed()));
+
+        TasksDAOException e = assertThrows(TasksDAOException.class, () -> new ColumnarTasksDAO(directory));
+        assertTrue(e.getCause().getMessage().contains("corrupt"), e.getCause().getMessage());
+    }
+
+    private Stream<String> columnFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> !name.equals("columns.meta"))
+                    .toList().stream();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package il.ac.hit.project.test.dao;
+
+import il.ac.hit.project.main.model.dao.InMemoryTasksDAO;
+import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.dao.TasksSummary;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.ToDoState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link InMemoryTasksDAO}.
+ * <p>
+ * The first tests repeat the scenarios of {@link TasksDAODerbyUnitTest}, so both DAOs are held
+ * to the same contract; the last one checks that concurrent readers always see consistent snapshots.
+ * </p>
+ */
+class InMemoryTasksDAOTest {
+
+    private InMemoryTasksDAO tasksDAO;
+
+    @BeforeEach
+    void setUp() {
+        tasksDAO = new InMemoryTasksDAO();
+    }
+
+    /**
+     * Tests that addTask generates increasing ids, sets them on the task, and that the stored
+     * task is not affected by later changes to the caller's object.
+     */
+    @Test
+    void testAddTask_successful() throws TasksDAOException {
+        Task first = new Task(0, "New Task", "Description", new ToDoState());
+        Task second = new Task(0, "Other Task", "Description", new ToDoState());
+        tasksDAO.addTask(first);
+        tasksDAO.addTask(second);
+
+        assertEquals(1, first.getId());
+        assertEquals(2, second.getId());
+        first.setTitle("Changed without updateTask");
+        assertEquals("New Task", tasksDAO.getTask(1).getTitle());
+    }
+
+    /**
+     * Tests that getTask returns the stored task for a valid id and throws for a missing one,
+     * while findTask reports the missing task with null.
+     */
+    @Test
+    void testGetTask_validId_returnsTask() throws TasksDAOException {
+        tasksDAO.addTask(new Task(0, "Test Task", "Test Description", new ToDoState()));
+
+        ITask result = tasksDAO.getTask(1);
+        assertEquals(1, result.getId());
+        assertEquals("Test Task", result.getTitle());
+        assertEquals("To Do", result.getState().getDisplayName());
+        assertThrows(TasksDAOException.class, () -> tasksDAO.getTask(2));
+        assertNull(tasksDAO.findTask(2));
+    }
+
+    /**
+     * Tests that updateTask replaces an existing task and ignores a task that does not exist.
+     */
+    @Test
+    void testUpdateTask_successful() throws TasksDAOException {
+        Task task = new Task(0, "Title", "Description", new ToDoState());
+        tasksDAO.addTask(task);
+
+        tasksDAO.updateTask(new Task(task.getId(), "Updated Title", "Updated Description", task.getState().next()));
+        tasksDAO.updateTask(new Task(99, "Missing", null, new ToDoState()));
+
+        assertEquals("Updated Title", tasksDAO.getTask(task.getId()).getTitle());
+        assertEquals("In Progress", tasksDAO.getTask(task.getId()).getState().getDisplayName());
+        assertEquals(1, tasksDAO.getTasks().length);
+    }
+
+    /**
+     * Tests that deleting a task that does not exist throws, while a batch delete skips it.
+     */
+    @Test
+    void testDeleteTask_nonExistentId_throwsException() throws TasksDAOException {
+        tasksDAO.addTasks(new Task(0, "First", null, new ToDoState()), new Task(0, "Second", null, new ToDoState()));
+
+        assertThrows(TasksDAOException.class, () -> tasksDAO.deleteTask(999));
+        tasksDAO.deleteTasks(1, 999);
+        assertEquals(new TasksSummary(1, 2), tasksDAO.getSummary());
+    }
+
+    /**
+     * Tests that full reads and pages are ordered by id and that ids are not reused after deleteTasks().
+     */
+    @Test
+    void testGetTasksAndPages_areOrderedById() throws TasksDAOException {
+        for (int i = 0; i < 10; i++) {
+            tasksDAO.addTask(new Task(0, "Task " + i, null, new ToDoState()));
+        }
+        tasksDAO.deleteTask(4);
+
+        ITask[] page = tasksDAO.getTasksPage(3, 3);
+        assertArrayEquals(new int[] {5, 6, 7}, Arrays.stream(page).mapToInt(ITask::getId).toArray());
+        assertEquals(0, tasksDAO.getTasksPage(10, 5).length);
+        assertEquals(9, tasksDAO.getTasks().length);
+        tasksDAO.getTasks()[0] = null;
+        assertNotNull(tasksDAO.getTasks()[0]);
+
+        tasksDAO.deleteTasks();
+        Task next = new Task(0, "After clear", null, new ToDoState());
+        tasksDAO.addTask(next);
+        assertEquals(11, next.getId());
+    }
+
+    /**
+     * Tests that readers running alongside writers always see a snapshot ordered by id in which
+     * each batch insert is either entirely present or entirely absent.
+     */
+    @Test
+    void testConcurrentReads_seeConsistentSnapshots() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < 2; writer++) {
+                writers.add(executor.submit(() -> {
+                    for (int batch = 0; batch < 200; batch++) {
+                        tasksDAO.addTasks(new Task(0, "a", null, new ToDoState()), new Task(0, "b", null, new ToDoState()));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int reader = 0; reader < 2; reader++) {
+                readers.add(executor.submit(() -> {
+                    for (int read = 0; read < 500; read++) {
+                        ITask[] tasks = tasksDAO.getTasks();
+                        assertEquals(0, tasks.length % 2);
+                        for (int i = 1; i < tasks.length; i++) {
+                            assertTrue(tasks[i - 1].getId() < tasks[i].getId());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : writers) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+            for (Future<?> future : readers) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(new TasksSummary(800, 800), tasksDAO.getSummary());
+    }
+}
@@ -0,0 +1,202 @@
+package il.ac.hit.project.test.dao;
+
+import il.ac.hit.project.main.model.dao.LogStructuredTasksDAO;
+import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.ToDoState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LogStructuredTasksDAO}: recovery of the index from the log, handling of a
+ * torn tail, compaction and group commit.
+ */
+class LogStructuredTasksDAOTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that adds, updates and deletes survive reopening the log, and that ids keep increasing
+     * afterwards.
+     */
+    @Test
+    void testReopen_rebuildsIndex() throws TasksDAOException {
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            tasksDAO.addTasks(new Task(0, "First", "Description", new ToDoState()),
+                    new Task(0, "Second", null, new ToDoState()),
+                    new Task(0, "Third", "Description", new ToDoState()));
+            ITask second = tasksDAO.getTask(2);
+            tasksDAO.updateTask(new Task(2, "Second updated", null, second.getState().next()));
+            tasksDAO.deleteTask(3);
+            tasksDAO.updateTask(new Task(99, "Missing", null, new ToDoState()));
+            assertThrows(TasksDAOException.class, () -> tasksDAO.deleteTask(3));
+        }
+
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            ITask[] tasks = tasksDAO.getTasks();
+            assertEquals(2, tasks.length);
+            assertEquals("First", tasks[0].getTitle());
+            assertEquals("Second updated", tasks[1].getTitle());
+            assertNull(tasks[1].getDescription());
+            assertEquals("In Progress", tasks[1].getState().getDisplayName());
+            assertNull(tasksDAO.findTask(3));
+            assertEquals(2, tasksDAO.getSummary().maxId());
+
+            Task fourth = new Task(0, "Fourth", "Description", new ToDoState());
+            tasksDAO.addTask(fourth);
+            assertEquals(4, fourth.getId());
+            assertArrayEquals(new int[] {2, 4}, ids(tasksDAO.getTasksPage(1, 5)));
+        }
+    }
+
+    /**
+     * Tests that a record cut off by a crash is dropped when the log is reopened, keeping every
+     * record before it.
+     */
+    @Test
+    void testReopen_truncatesTornTail() throws TasksDAOException, IOException {
+        long intactBytes;
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            tasksDAO.addTask(new Task(0, "Kept", "Description", new ToDoState()));
+            intactBytes = tasksDAO.getLogBytes();
+            tasksDAO.addTask(new Task(0, "Torn", "Description", new ToDoState()));
+        }
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            assertArrayEquals(new int[] {1}, ids(tasksDAO.getTasks()));
+            assertEquals(intactBytes, Files.size(segment));
+            Task next = new Task(0, "After recovery", null, new ToDoState());
+            tasksDAO.addTask(next);
+            assertEquals(2, next.getId());
+        }
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            assertEquals("After recovery", tasksDAO.getTask(2).getTitle());
+        }
+    }
+
+    /**
+     * Tests that compaction keeps only the latest records of live tasks, moves to a new segment,
+     * and keeps ids from being reused after everything was deleted.
+     */
+    @Test
+    void testCompact_keepsLiveRecordsOnly() throws TasksDAOException, IOException {
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory, Long.MAX_VALUE)) {
+            Task task = new Task(0, "Version 0", null, new ToDoState());
+            tasksDAO.addTask(task);
+            tasksDAO.addTask(new Task(0, "Deleted", null, new ToDoState()));
+            for (int i = 1; i <= 100; i++) {
+                tasksDAO.updateTask(new Task(task.getId(), "Version " + i, null, new ToDoState()));
+            }
+            tasksDAO.deleteTask(2);
+            long before = tasksDAO.getLogBytes();
+
+            tasksDAO.compact();
+
+            assertEquals(1, tasksDAO.getCompactions());
+            assertTrue(tasksDAO.getLogBytes() < before / 50);
+            assertEquals(tasksDAO.getLiveBytes(), tasksDAO.getLogBytes() - 12);
+            assertEquals("Version 100", tasksDAO.getTask(1).getTitle());
+            assertNull(tasksDAO.findTask(2));
+            assertTrue(onlySegment().getFileName().toString().startsWith("tasks-000002"));
+
+            tasksDAO.deleteTasks();
+            tasksDAO.compact();
+        }
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            assertEquals(0, tasksDAO.getTasks().length);
+            Task next = new Task(0, "Fresh", null, new ToDoState());
+            tasksDAO.addTask(next);
+            assertEquals(3, next.getId());
+        }
+    }
+
+    /**
+     * Tests that a log over the threshold compacts itself in the background while writes go on.
+     */
+    @Test
+    void testBackgroundCompaction() throws Exception {
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory, 4096)) {
+            Task task = new Task(0, "Version 0", "Description", new ToDoState());
+            tasksDAO.addTask(task);
+            for (int i = 1; i <= 500; i++) {
+                tasksDAO.updateTask(new Task(task.getId(), "Version " + i, "Description", new ToDoState()));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (tasksDAO.getCompactions() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(tasksDAO.getCompactions() > 0);
+            assertEquals("Version 500", tasksDAO.getTask(1).getTitle());
+        }
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            assertEquals("Version 500", tasksDAO.getTask(1).getTitle());
+        }
+    }
+
+    /**
+     * Tests that concurrent writers all get unique ids and share disk flushes.
+     */
+    @Test
+    void testConcurrentAdds_shareFlushes() throws Exception {
+        int threads = 8;
+        int perThread = 50;
+        try (LogStructuredTasksDAO tasksDAO = new LogStructuredTasksDAO(directory)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        tasksDAO.addTask(new Task(0, "Concurrent", null, new ToDoState()));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            assertEquals(threads * perThread, tasksDAO.getAppendedRecords());
+            assertTrue(tasksDAO.getSyncs() <= tasksDAO.getAppendedRecords());
+            assertEquals(threads * perThread, tasksDAO.getSummary().count());
+            assertEquals(threads * perThread, tasksDAO.getSummary().maxId());
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private static int[] ids(ITask[] tasks) {
+        int[] ids = new int[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            ids[i] = tasks[i].getId();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,168 @@
+package il.ac.hit.project.test.dao;
+
+import il.ac.hit.project.main.model.dao.InMemoryTasksDAO;
+import il.ac.hit.project.main.model.dao.ShardedTasksDAO;
+import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ShardedTasksDAO} over in-memory shards, and one round trip over real
+ * Derby shards.
+ */
+class ShardedTasksDAOTest {
+
+    private static final int SHARDS = 3;
+
+    private List<InMemoryTasksDAO> shards;
+    private ShardedTasksDAO tasksDAO;
+
+    @BeforeEach
+    void setUp() {
+        shards = List.of(new InMemoryTasksDAO(), new InMemoryTasksDAO(), new InMemoryTasksDAO());
+        tasksDAO = new ShardedTasksDAO(shards);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tasksDAO.close();
+    }
+
+    /**
+     * Tests that new tasks are spread over the shards, with the shard encoded in their ids, and
+     * that single-id operations reach the right shard.
+     */
+    @Test
+    void testSingleTaskOperations_routeByShard() throws TasksDAOException {
+        Task[] tasks = new Task[6];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task(0, "Task " + i, null, TaskStateFactory.toDo());
+            tasksDAO.addTask(tasks[i]);
+        }
+
+        for (InMemoryTasksDAO shard : shards) {
+            assertEquals(2, shard.getSummary().count());
+        }
+        for (Task task : tasks) {
+            assertEquals(task.getTitle(), tasksDAO.getTask(task.getId()).getTitle());
+        }
+        int id = tasks[4].getId();
+        assertNotNull(shards.get(tasksDAO.shardOf(id)).findTask(id / SHARDS));
+
+        tasksDAO.updateTask(new Task(id, "Updated", "Description", TaskStateFactory.completed()));
+        assertEquals("Updated", tasksDAO.getTask(id).getTitle());
+        assertEquals(id, tasksDAO.getTask(id).getId());
+
+        tasksDAO.deleteTask(id);
+        assertNull(tasksDAO.findTask(id));
+        assertThrows(TasksDAOException.class, () -> tasksDAO.deleteTask(id));
+        assertNull(tasksDAO.findTask(-7));
+    }
+
+    /**
+     * Tests that full reads and pages merge the shards in id order, and that the summary adds
+     * them up.
+     */
+    @Test
+    void testScatterGather_mergesInIdOrder() throws TasksDAOException {
+        Task[] tasks = new Task[20];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task(0, "Task " + i, null, TaskStateFactory.fromOrdinal(i % 3));
+        }
+        int[] ids = tasksDAO.addTasks(tasks);
+        tasksDAO.deleteTasks(ids[3], ids[7], 999_999);
+
+        int[] expected = Arrays.stream(ids).filter(id -> id != ids[3] && id != ids[7]).sorted().toArray();
+        assertArrayEquals(expected, Arrays.stream(tasksDAO.getTasks()).mapToInt(ITask::getId).toArray());
+        assertEquals(18, tasksDAO.getSummary().count());
+        assertEquals(expected[expected.length - 1], tasksDAO.getSummary().maxId());
+
+        int[] paged = new int[0];
+        int afterId = 0;
+        ITask[] page;
+        while ((page = tasksDAO.getTasksPage(afterId, 5)).length > 0) {
+            int[] pageIds = Arrays.stream(page).mapToInt(ITask::getId).toArray();
+            paged = Arrays.copyOf(paged, paged.length + pageIds.length);
+            System.arraycopy(pageIds, 0, paged, paged.length - pageIds.length, pageIds.length);
+            afterId = pageIds[pageIds.length - 1];
+        }
+        assertArrayEquals(expected, paged);
+
+        tasksDAO.updateTasks(new Task(ids[0], "Batch updated", null, TaskStateFactory.toDo()),
+                new Task(ids[1], "Batch updated", null, TaskStateFactory.toDo()));
+        assertEquals("Batch updated", tasksDAO.getTask(ids[1]).getTitle());
+
+        tasksDAO.deleteTasks();
+        assertEquals(0, tasksDAO.getTasks().length);
+    }
+
+    /**
+     * Tests that when one shard fails a batch add, the tasks added to the other shards still get
+     * their global ids.
+     */
+    @Test
+    void testAddTasks_partialFailureTranslatesAddedIds() throws TasksDAOException {
+        InMemoryTasksDAO failing = new InMemoryTasksDAO() {
+            @Override
+            public int[] addTasks(ITask... tasks) {
+                throw new IllegalStateException("Shard unavailable");
+            }
+        };
+        try (ShardedTasksDAO partialDAO = new ShardedTasksDAO(List.of(shards.get(0), failing, shards.get(2)))) {
+            Task[] tasks = new Task[6];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new Task(0, "Task " + i, null, TaskStateFactory.toDo());
+            }
+
+            assertThrows(TasksDAOException.class, () -> partialDAO.addTasks(tasks));
+
+            for (Task task : tasks) {
+                if (task.getId() != 0) {
+                    assertEquals(task.getTitle(), partialDAO.findTask(task.getId()).getTitle());
+                }
+            }
+            assertEquals(4, Arrays.stream(tasks).filter(task -> task.getId() != 0).count());
+        }
+    }
+
+    /**
+     * Tests a round trip over real Derby shards, including reopening them.
+     */
+    @Test
+    void testOpenDerby_roundTrip(@TempDir Path directory) throws TasksDAOException {
+        int[] ids;
+        try (ShardedTasksDAO derbyDAO = ShardedTasksDAO.openDerby(directory, 2)) {
+            ids = derbyDAO.addTasks(new Task(0, "First", "Description", TaskStateFactory.toDo()),
+                    new Task(0, "Second", null, TaskStateFactory.inProgress()),
+                    new Task(0, "Third", null, TaskStateFactory.completed()));
+            assertEquals(2, Arrays.stream(ids).map(derbyDAO::shardOf).distinct().count());
+        }
+        try (ShardedTasksDAO derbyDAO = ShardedTasksDAO.openDerby(directory, 2)) {
+            ITask[] tasks = derbyDAO.getTasks();
+            assertArrayEquals(Arrays.stream(ids).sorted().toArray(), Arrays.stream(tasks).mapToInt(ITask::getId).toArray());
+            assertEquals("Second", derbyDAO.getTask(ids[1]).getTitle());
+        } finally {
+            for (int shard = 0; shard < 2; shard++) {
+                try {
+                    DriverManager.getConnection("jdbc:derby:" + directory.resolve("shard-" + shard) + ";shutdown=true");
+                } catch (SQLException e) {
+                    // Derby reports a successful shutdown with SQLState 08006
+                    assertEquals("08006", e.getSQLState());
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package il.ac.hit.project.test.dao;
 
+import il.ac.hit.project.main.model.dao.AsyncTasksDAOAdapter;
+import il.ac.hit.project.main.model.dao.AsyncTasksDAODerby;
+import il.ac.hit.project.main.model.dao.ConnectionPool;
+import il.ac.hit.project.main.model.dao.SchemaMigrator;
+import il.ac.hit.project.main.model.dao.TaskChanges;
 import il.ac.hit.project.main.model.dao.TasksDAODerby;
 import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.dao.TasksDAOProxy;
+import il.ac.hit.project.main.model.dao.TasksSummary;
 import il.ac.hit.project.main.model.task.ITask;
 import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
 import il.ac.hit.project.main.model.task.ToDoState;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,9 +21,21 @@ import java.io.File;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -131,6 +151,9 @@ class TasksDAODerbyIntegrationTest {
         assertEquals(2, tasks.length);
         assertEquals("Task 1", tasks[0].getTitle());
         assertEquals("Task 2", tasks[1].getTitle());
+        // Rows share the flyweight state instead of allocating one per row
+        assertSame(TaskStateFactory.toDo(), tasks[0].getState());
+        assertSame(tasks[0].getState(), tasks[1].getState());
     }
 
     /**
@@ -147,4 +170,309 @@ class TasksDAODerbyIntegrationTest {
         assertNotNull(tasks);
         assertEquals(0, tasks.length);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that the summary counts the rows and reports the highest id, and 0 for an empty table,
+     * and that findTask() reports a deleted task with null.
+     *
+     * @throws TasksDAOException if an error occurs while adding, deleting or summarizing tasks
+     */
+    @Test
+    void testGetSummary() throws TasksDAOException {
+        assertEquals(new TasksSummary(0, 0), tasksDAODerby.getSummary());
+        ITask first = new Task(0, "First", "Description", new ToDoState());
+        ITask second = new Task(0, "Second", "Description", new ToDoState());
+        ITask third = new Task(0, "Third", "Description", new ToDoState());
+        tasksDAODerby.addTasks(first, second, third);
+        tasksDAODerby.deleteTask(first.getId());
+
+        assertEquals(new TasksSummary(2, third.getId()), tasksDAODerby.getSummary());
+        assertNull(tasksDAODerby.findTask(first.getId()));
+        assertEquals("Second", tasksDAODerby.findTask(second.getId()).getTitle());
+    }
+
+    /**
+     * Tests that the triggers log every insert, update and delete in the change log, and that a
+     * proxy polling it picks up a change made through another proxy on the same database.
+     *
+     * @throws TasksDAOException if an error occurs while writing or reading tasks or changes
+     */
+    @Test
+    void testGetChangesSince() throws TasksDAOException {
+        TaskChanges start = tasksDAODerby.getChangesSince(TaskChanges.UNKNOWN_VERSION);
+        assertFalse(start.complete());
+        ITask first = new Task(0, "First", "Description", new ToDoState());
+        ITask second = new Task(0, "Second", "Description", new ToDoState());
+        tasksDAODerby.addTasks(first, second);
+        tasksDAODerby.updateTask(first);
+        tasksDAODerby.deleteTask(second.getId());
+
+        TaskChanges changes = tasksDAODerby.getChangesSince(start.version());
+        assertTrue(changes.complete());
+        assertArrayEquals(new int[] {first.getId(), second.getId()}, changes.ids());
+        assertEquals(start.version() + 4, changes.version());
+        assertEquals(0, tasksDAODerby.getChangesSince(changes.version()).ids().length);
+
+        TasksDAOProxy reader = new TasksDAOProxy(tasksDAODerby);
+        TasksDAOProxy writer = new TasksDAOProxy(tasksDAODerby);
+        assertTrue(reader.enableChangePolling(Duration.ofHours(1)));
+        assertEquals("First", reader.getTasks()[0].getTitle());
+        Task renamed = new Task(first.getId(), "Renamed", "Description", new ToDoState());
+        writer.updateTask(renamed);
+
+        assertEquals(1, reader.pollChanges());
+        assertEquals("Renamed", reader.getTasks()[0].getTitle());
+        reader.shutdown();
+    }
+
+    /**
+     * Tests that writes prune the change log down to the retained rows while polling only reads
+     * it, so a poller far behind gets an incomplete result and a recent one a complete result.
+     *
+     * @throws TasksDAOException if an error occurs while writing tasks or reading changes
+     */
+    @Test
+    void testChangeLog_prunedByWrites() throws TasksDAOException {
+        long start = tasksDAODerby.getChangesSince(TaskChanges.UNKNOWN_VERSION).version();
+        ITask[] tasks = new ITask[TasksDAODerby.CHANGE_LOG_RETENTION + 1000];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task(0, "Task " + i, null, new ToDoState());
+        }
+        tasksDAODerby.addTasks(tasks);
+
+        TaskChanges behind = tasksDAODerby.getChangesSince(start);
+        assertFalse(behind.complete());
+        assertEquals(start + tasks.length, behind.version());
+        TaskChanges recent = tasksDAODerby.getChangesSince(behind.version() - 10);
+        assertTrue(recent.complete());
+        assertEquals(10, recent.ids().length);
+        assertEquals(0, tasksDAODerby.pruneChangeLog());
+    }
+
+    /**
+     * Tests that titles and descriptions containing quotes round-trip unchanged through the
+     * bound parameters of the prepared statements.
+     *
+     * @throws TasksDAOException if an error occurs while adding, updating or fetching tasks
+     */
+    @Test
+    void testAddAndUpdateTask_withQuotes_roundTrips() throws TasksDAOException {
+        Task task = new Task(0, "It's a task", "Say \"hi\" to O'Brien", new ToDoState());
+        tasksDAODerby.addTask(task);
+
+        task.setTitle("Don't panic");
+        task.setState(task.getState().next());
+        tasksDAODerby.updateTask(task);
+
+        ITask stored = tasksDAODerby.getTask(task.getId());
+        assertEquals("Don't panic", stored.getTitle());
+        assertEquals("Say \"hi\" to O'Brien", stored.getDescription());
+        assertEquals("In Progress", stored.getState().getDisplayName());
+        assertEquals(3, tasksDAODerby.getStatementCache().getCompiles());
+    }
+
+    /**
+     * Tests that a batch insert spanning several chunks returns the generated ids in input order,
+     * and that batch updates and deletes affect exactly the given tasks.
+     *
+     * @throws TasksDAOException if an error occurs during the batch operations
+     */
+    @Test
+    void testBatchOperations() throws TasksDAOException {
+        ITask[] batch = new ITask[1200];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new Task(0, "Task " + i, "Description " + i, new ToDoState());
+        }
+
+        int[] ids = tasksDAODerby.addTasks(batch);
+
+        assertEquals(batch.length, ids.length);
+        for (int i = 0; i < batch.length; i++) {
+            assertEquals(ids[i], batch[i].getId());
+            if (i > 0) {
+                assertTrue(ids[i] > ids[i - 1]);
+            }
+        }
+
+        ((Task) batch[0]).setTitle("Renamed");
+        ((Task) batch[1]).setState(batch[1].getState().next());
+        tasksDAODerby.updateTasks(batch[0], batch[1]);
+        assertEquals("Renamed", tasksDAODerby.getTask(ids[0]).getTitle());
+        assertEquals("In Progress", tasksDAODerby.getTask(ids[1]).getState().getDisplayName());
+
+        // Unknown ids are skipped
+        tasksDAODerby.deleteTasks(ids[0], ids[1], -1);
+        ITask[] remaining = tasksDAODerby.getTasks();
+        assertEquals(batch.length - 2, remaining.length);
+        assertEquals(ids[2], remaining[0].getId());
+    }
+
+    /**
+     * Tests that streaming tasks yields every row in id order and that the cursor
+     * can be closed before it is exhausted.
+     *
+     * @throws TasksDAOException if an error occurs while adding or streaming tasks
+     */
+    @Test
+    void testStreamTasks() throws TasksDAOException {
+        for (int i = 0; i < 25; i++) {
+            tasksDAODerby.addTask(new Task(0, "Task " + i, "Description " + i, new ToDoState()));
+        }
+
+        try (Stream<ITask> stream = tasksDAODerby.streamTasks(4)) {
+            List<String> titles = stream.map(ITask::getTitle).toList();
+            assertEquals(25, titles.size());
+            assertEquals("Task 0", titles.get(0));
+            assertEquals("Task 24", titles.get(24));
+        }
+
+        try (Stream<ITask> stream = tasksDAODerby.streamTasks()) {
+            assertEquals(3, stream.limit(3).count());
+        }
+        // The connection stays usable after a partially consumed cursor is closed
+        assertEquals(25, tasksDAODerby.getTasks().length);
+    }
+
+    /**
+     * Tests that keyset pages cover all tasks exactly once, in id order, and that the last
+     * page is shorter than the limit.
+     *
+     * @throws TasksDAOException if an error occurs while adding or paging tasks
+     */
+    @Test
+    void testGetTasksPage() throws TasksDAOException {
+        for (int i = 0; i < 7; i++) {
+            tasksDAODerby.addTask(new Task(0, "Task " + i, "Description " + i, new ToDoState()));
+        }
+
+        ITask[] first = tasksDAODerby.getTasksPage(0, 3);
+        ITask[] second = tasksDAODerby.getTasksPage(first[2].getId(), 3);
+        ITask[] last = tasksDAODerby.getTasksPage(second[2].getId(), 3);
+
+        assertEquals(3, first.length);
+        assertEquals(3, second.length);
+        assertEquals(1, last.length);
+        assertEquals("Task 0", first[0].getTitle());
+        assertEquals("Task 3", second[0].getTitle());
+        assertEquals("Task 6", last[0].getTitle());
+        assertEquals(0, tasksDAODerby.getTasksPage(last[0].getId(), 3).length);
+    }
+
+    /**
+     * Tests that the schema migrations are applied once, and that state and title queries
+     * are answered through the secondary indexes.
+     *
+     * @throws Exception if an error occurs while migrating, adding tasks or reading the report
+     */
+    @Test
+    void testSchemaMigration_indexesUsed() throws Exception {
+        ITask[] batch = new ITask[300];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new Task(0, "Task " + i, "Description " + i, new ToDoState());
+            // Spread the tasks across the three states so the state indexes are selective
+            for (int step = 0; step < i % 3; step++) {
+                ((Task) batch[i]).setState(batch[i].getState().next());
+            }
+        }
+        tasksDAODerby.addTasks(batch);
+
+        // Re-opening the DAO on a migrated database must not re-apply migrations
+        try (Connection reopenedConnection = DriverManager.getConnection(TEST_DB_URL);
+             Connection migratorConnection = DriverManager.getConnection(TEST_DB_URL)) {
+            TasksDAODerby reopened = new TasksDAODerby(reopenedConnection);
+            assertEquals(batch.length, reopened.getTasks().length);
+            assertEquals(SchemaMigrator.getLatestVersion(),
+                    new SchemaMigrator(migratorConnection).getCurrentVersion());
+        }
+
+        Map<String, String> report = tasksDAODerby.getIndexUsageReport();
+        assertEquals(6, report.size());
+        assertTrue(report.containsValue("IDX_TASKS_TITLE_LOWER"), report.toString());
+        assertTrue(report.values().stream().anyMatch(index -> index.startsWith("IDX_TASKS_STATE")), report.toString());
+    }
+
+    /**
+     * Tests that concurrent readers lease separate pooled connections, that nested leases on
+     * one thread share a connection, and that every lease is given back afterwards.
+     *
+     * @throws Exception if an error occurs while adding or reading tasks
+     */
+    @Test
+    void testConnectionPool_concurrentReads() throws Exception {
+        ConnectionPool pool = new ConnectionPool(() -> DriverManager.getConnection(TEST_DB_URL), 4);
+        TasksDAODerby pooled = new TasksDAODerby(pool);
+        for (int i = 0; i < 20; i++) {
+            pooled.addTask(new Task(0, "Task " + i, "Description " + i, new ToDoState()));
+        }
+
+        int readers = 4;
+        CountDownLatch streamsOpen = new CountDownLatch(readers);
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                results.add(executor.submit(() -> {
+                    // An open stream keeps its connection leased; getTasks() nests on the same lease
+                    try (Stream<ITask> stream = pooled.streamTasks()) {
+                        streamsOpen.countDown();
+                        streamsOpen.await();
+                        return (int) stream.count() + pooled.getTasks().length;
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(40, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(readers, pool.getPeakActiveCount());
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(readers, pool.getIdleCount());
+        assertTrue(pool.getReentrantLeaseCount() >= readers, pool.toString());
+        assertEquals(0, pool.getTimeoutCount());
+        pool.close();
+    }
+
+    /**
+     * Tests that pipelined async inserts all receive ids, that async calls compose, and that a
+     * persistence failure completes the future exceptionally with a {@link TasksDAOException}.
+     *
+     * @throws Exception if an error occurs while running the async calls
+     */
+    @Test
+    void testAsyncDAO() throws Exception {
+        try (AsyncTasksDAODerby async = new AsyncTasksDAODerby(tasksDAODerby)) {
+            List<CompletableFuture<ITask>> added = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                added.add(async.addTask(new Task(0, "Task " + i, "Description " + i, new ToDoState())));
+            }
+            CompletableFuture.allOf(added.toArray(CompletableFuture[]::new)).join();
+            assertTrue(added.stream().allMatch(future -> future.join().getId() > 0));
+            assertEquals(50, async.getPipelinedInsertCount());
+            assertTrue(async.getInsertBatchCount() <= 50);
+
+            String title = async.getTasksPage(0, 1)
+                    .thenCompose(page -> async.getTask(page[0].getId()))
+                    .thenApply(ITask::getTitle)
+                    .join();
+            assertEquals("Task 0", title);
+
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> async.getTask(-1).join());
+            assertInstanceOf(TasksDAOException.class, failure.getCause());
+        }
+
+        // The adapter works over any blocking DAO
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncTasksDAOAdapter adapter = new AsyncTasksDAOAdapter(tasksDAODerby, executor);
+            assertEquals(50, adapter.getTasks().join().length);
+            adapter.deleteTasks().join();
+            assertEquals(0, adapter.getTasks().join().length);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import il.ac.hit.project.main.model.task.ToDoState;
 import org.junit.jupiter.api.Test;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -22,6 +23,24 @@ import static org.mockito.Mockito.*;
  */
 class TasksDAODerbyUnitTest {
 
+    /**
+     * Creates a mocked connection whose DDL statements (table creation and schema migration,
+     * run by the DAO constructor) succeed.
+     *
+     * @return a connection mock ready to have its prepared statements stubbed
+     */
+    private Connection mockConnection() throws SQLException {
+        Connection mockedConnection = mock(Connection.class);
+        Statement setupStatement = mock(Statement.class);
+        ResultSet emptySchemaVersion = mock(ResultSet.class);
+        when(mockedConnection.createStatement()).thenReturn(setupStatement);
+        when(setupStatement.executeUpdate(anyString())).thenReturn(0);
+        // No migration applied yet
+        when(setupStatement.executeQuery(anyString())).thenReturn(emptySchemaVersion);
+        when(emptySchemaVersion.next()).thenReturn(false);
+        return mockedConnection;
+    }
+
     /**
      * Tests that the {@link TasksDAODerby#getTasks()} method throws a {@link TasksDAOException}
      * when an underlying {@link SQLException} occurs.
@@ -29,20 +48,20 @@ class TasksDAODerbyUnitTest {
     @Test
     void testGetTasks_withInvalidDatabase_throwsException() throws SQLException, TasksDAOException {
         // Arrange
-        Connection mockedConnection = mock(Connection.class);
-        Statement mockedStatement = mock(Statement.class);
+        Connection mockedConnection = mockConnection();
+        PreparedStatement mockedStatement = mock(PreparedStatement.class);
 
         // Mock the statement creation
-        when(mockedConnection.createStatement()).thenReturn(mockedStatement);
+        when(mockedConnection.prepareStatement(anyString())).thenReturn(mockedStatement);
         // Mock the query execution to throw an exception
-        when(mockedStatement.executeQuery(anyString()))
+        when(mockedStatement.executeQuery())
                 .thenThrow(new SQLException("Simulated database query failure"));
 
         TasksDAODerby tasksDAODerby = new TasksDAODerby(mockedConnection);
 
         // Act & Assert
         assertThrows(TasksDAOException.class, tasksDAODerby::getTasks);
-        verify(mockedStatement).executeQuery(anyString());
+        verify(mockedStatement).executeQuery();
     }
 
     /**
@@ -52,14 +71,15 @@ class TasksDAODerbyUnitTest {
     @Test
     void testAddTask_successful() throws Exception {
         // Arrange
-        Connection mockedConnection = mock(Connection.class);
-        Statement mockedStatement = mock(Statement.class);
+        Connection mockedConnection = mockConnection();
+        PreparedStatement mockedStatement = mock(PreparedStatement.class);
         ResultSet mockedResultSet = mock(ResultSet.class);
         ITask task = new Task(0, "New Task", "Description", new ToDoState());
 
-        when(mockedConnection.createStatement()).thenReturn(mockedStatement);
+        when(mockedConnection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS)))
+                .thenReturn(mockedStatement);
         // Mock executeUpdate to return 1 (for 1 affected row)
-        when(mockedStatement.executeUpdate(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(1);
+        when(mockedStatement.executeUpdate()).thenReturn(1);
         // Mock the ResultSet for generated keys
         when(mockedStatement.getGeneratedKeys()).thenReturn(mockedResultSet);
         when(mockedResultSet.next()).thenReturn(true, false); // Return true once, then false
@@ -71,7 +91,8 @@ class TasksDAODerbyUnitTest {
         assertDoesNotThrow(() -> tasksDAODerby.addTask(task));
         assertEquals(100, task.getId()); // Verify the ID was updated
 
-        verify(mockedStatement).executeUpdate(anyString(), eq(Statement.RETURN_GENERATED_KEYS));
+        verify(mockedStatement).setString(1, "New Task");
+        verify(mockedStatement).executeUpdate();
         verify(mockedResultSet).next();
         verify(mockedResultSet).getInt(1);
     }
@@ -83,18 +104,18 @@ class TasksDAODerbyUnitTest {
     @Test
     void testGetTask_validId_returnsTask() throws SQLException, TasksDAOException {
         // Arrange
-        Connection mockedConnection = mock(Connection.class);
-        Statement mockedStatement = mock(Statement.class);
+        Connection mockedConnection = mockConnection();
+        PreparedStatement mockedStatement = mock(PreparedStatement.class);
         ResultSet mockedResultSet = mock(ResultSet.class);
         int taskId = 1;
 
-        when(mockedConnection.createStatement()).thenReturn(mockedStatement);
-        when(mockedStatement.executeQuery(anyString())).thenReturn(mockedResultSet);
+        when(mockedConnection.prepareStatement(anyString())).thenReturn(mockedStatement);
+        when(mockedStatement.executeQuery()).thenReturn(mockedResultSet);
         when(mockedResultSet.next()).thenReturn(true, false); // Return one result
         when(mockedResultSet.getInt("id")).thenReturn(taskId);
         when(mockedResultSet.getString("title")).thenReturn("Test Task");
         when(mockedResultSet.getString("description")).thenReturn("Test Description");
-        when(mockedResultSet.getString("state")).thenReturn("To Do");
+        when(mockedResultSet.getShort("state")).thenReturn((short) 0); // "To Do"
 
         TasksDAODerby tasksDAODerby = new TasksDAODerby(mockedConnection);
 
@@ -105,6 +126,8 @@ class TasksDAODerbyUnitTest {
         assertNotNull(result);
         assertEquals(taskId, result.getId());
         assertEquals("Test Task", result.getTitle());
+        assertEquals("To Do", result.getState().getDisplayName());
+        verify(mockedStatement).setInt(1, taskId);
     }
 
     /**
@@ -115,18 +138,20 @@ class TasksDAODerbyUnitTest {
     @Test
     void testUpdateTask_successful() throws Exception {
         // Arrange
-        Connection mockedConnection = mock(Connection.class);
-        Statement mockedStatement = mock(Statement.class);
+        Connection mockedConnection = mockConnection();
+        PreparedStatement mockedStatement = mock(PreparedStatement.class);
         ITask taskToUpdate = new Task(1, "Updated Title", "Updated Description", new ToDoState());
 
-        when(mockedConnection.createStatement()).thenReturn(mockedStatement);
-        when(mockedStatement.executeUpdate(anyString())).thenReturn(1);
+        when(mockedConnection.prepareStatement(anyString())).thenReturn(mockedStatement);
+        when(mockedStatement.executeUpdate()).thenReturn(1);
 
         TasksDAODerby tasksDAODerby = new TasksDAODerby(mockedConnection);
 
         // Act & Assert
         assertDoesNotThrow(() -> tasksDAODerby.updateTask(taskToUpdate));
-        verify(mockedStatement).executeUpdate(contains("UPDATE tasks SET"));
+        verify(mockedConnection).prepareStatement(contains("UPDATE tasks SET"));
+        verify(mockedStatement).setInt(4, 1);
+        verify(mockedStatement).executeUpdate();
     }
 
     /**
@@ -136,30 +161,23 @@ class TasksDAODerbyUnitTest {
     @Test
     void testUpdateTask_withInvalidDatabase_throwsException() throws Exception {
         // Arrange
-        Connection mockedConnection = mock(Connection.class);
-        Statement mockedStatementForSetup = mock(Statement.class); // For constructor
-        Statement mockedStatementForTest = mock(Statement.class);  // For test
+        Connection mockedConnection = mockConnection();
+        PreparedStatement mockedStatementForTest = mock(PreparedStatement.class);
 
-        // Mock the behavior of createStatement()
-        when(mockedConnection.createStatement())
-                .thenReturn(mockedStatementForSetup) // The first call returns a statement that doesn't throw
-                .thenReturn(mockedStatementForTest); // Later calls return a statement that throws
+        when(mockedConnection.prepareStatement(anyString())).thenReturn(mockedStatementForTest);
 
-        // Mock the setup statement to succeed
-        when(mockedStatementForSetup.executeUpdate(anyString())).thenReturn(1);
-
-        // Instantiate the DAO, the constructor will use mockedStatementForSetup
+        // Instantiate the DAO, the constructor will use the setup statement
         TasksDAODerby tasksDAODerby = new TasksDAODerby(mockedConnection);
 
         // Now, mock the statement for the actual test method to throw an exception
-        when(mockedStatementForTest.executeUpdate(anyString()))
+        when(mockedStatementForTest.executeUpdate())
                 .thenThrow(new SQLException("Simulated update failure", "42X01"));
 
         ITask taskToUpdate = new Task(1, "Title", "Description", new ToDoState());
 
         // Act & Assert
         assertThrows(TasksDAOException.class, () -> tasksDAODerby.updateTask(taskToUpdate));
-        verify(mockedStatementForTest).executeUpdate(anyString());
+        verify(mockedStatementForTest).executeUpdate();
     }
 
     /**
@@ -170,26 +188,19 @@ class TasksDAODerbyUnitTest {
     @Test
     void testDeleteTask_nonExistentId_throwsException() throws SQLException, TasksDAOException {
         // Arrange
-        Connection mockedConnection = mock(Connection.class);
-        Statement setupStatement = mock(Statement.class);
-        Statement testStatement = mock(Statement.class);
+        Connection mockedConnection = mockConnection();
+        PreparedStatement testStatement = mock(PreparedStatement.class);
 
         // Declare and initialize the missing variable
         int nonExistentId = 999;
 
-        // Mock the behavior of createStatement() for both setup and test
-        when(mockedConnection.createStatement())
-                .thenReturn(setupStatement)
-                .thenReturn(testStatement);
+        when(mockedConnection.prepareStatement(anyString())).thenReturn(testStatement);
 
-        // Mock the setup statement to succeed
-        when(setupStatement.executeUpdate(anyString())).thenReturn(0);
-
-        // Instantiate the DAO, the constructor will use 'setupStatement'
+        // Instantiate the DAO, the constructor will use the setup statement
         TasksDAODerby tasksDAODerby = new TasksDAODerby(mockedConnection);
 
         // Now, set up the behavior for the 'testStatement' specifically for the deleteTask method
-        when(testStatement.executeUpdate(anyString())).thenReturn(0);
+        when(testStatement.executeUpdate()).thenReturn(0);
 
         // Act & Assert
         TasksDAOException exception = assertThrows(TasksDAOException.class, () -> tasksDAODerby.deleteTask(nonExistentId));
@@ -197,6 +208,34 @@ class TasksDAODerbyUnitTest {
         // Verify the exception's message is correct.
         assertTrue(exception.getCause().getMessage().contains("Deleting task failed, no rows affected."));
         // Verify that the executeUpdate was called on the correct statement.
-        verify(testStatement).executeUpdate(anyString());
+        verify(testStatement).executeUpdate();
+    }
+
+    /**
+     * Tests that repeated calls reuse the cached {@link PreparedStatement} instead of
+     * compiling the SQL again, and that the cache counters reflect it.
+     */
+    @Test
+    void testStatementCache_reusesCompiledStatement() throws Exception {
+        // Arrange
+        Connection mockedConnection = mockConnection();
+        PreparedStatement mockedStatement = mock(PreparedStatement.class);
+        ResultSet mockedResultSet = mock(ResultSet.class);
+
+        when(mockedConnection.prepareStatement(anyString())).thenReturn(mockedStatement);
+        when(mockedStatement.executeQuery()).thenReturn(mockedResultSet);
+        when(mockedResultSet.next()).thenReturn(false);
+
+        TasksDAODerby tasksDAODerby = new TasksDAODerby(mockedConnection);
+
+        // Act
+        tasksDAODerby.getTasks();
+        tasksDAODerby.getTasks();
+        tasksDAODerby.getTasks();
+
+        // Assert
+        verify(mockedConnection, times(1)).prepareStatement(anyString());
+        assertEquals(1, tasksDAODerby.getStatementCache().getCompiles());
+        assertEquals(2, tasksDAODerby.getStatementCache().getHits());
     }
-}
\ No newline at end of file
+}
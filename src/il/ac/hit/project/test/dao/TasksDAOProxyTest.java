@@ -0,0 +1,717 @@
+package il.ac.hit.project.test.dao;
+
+import il.ac.hit.project.main.model.dao.ConcurrencyLimitedTasksDAO;
+import il.ac.hit.project.main.model.dao.ITasksDAO;
+import il.ac.hit.project.main.model.dao.TaskChanges;
+import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.dao.TasksDAOProxy;
+import il.ac.hit.project.main.model.dao.TasksDAOProxyMonitor;
+import il.ac.hit.project.main.model.dao.TasksSummary;
+import il.ac.hit.project.main.model.dao.cache.BoundedCache;
+import il.ac.hit.project.main.model.dao.cache.CacheStats;
+import il.ac.hit.project.main.model.dao.cache.SingleFlight;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskState;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the caching behavior of {@link TasksDAOProxy}.
+ * <p>
+ * The proxy wraps a small in-memory DAO that counts its calls, so tests can tell which reads
+ * reached the "database" and can change rows behind the proxy's back, as another process would.
+ * </p>
+ */
+class TasksDAOProxyTest {
+
+    /**
+     * Minimal thread-safe in-memory DAO that counts full-table reads and can hold them
+     * until released. Its change log holds one changed id per write; the version is the log's length.
+     */
+    static class CountingTasksDAO implements ITasksDAO {
+        final Map<Integer, ITask> rows = new TreeMap<>();
+        final AtomicInteger getTasksCalls = new AtomicInteger();
+        final AtomicInteger getTaskCalls = new AtomicInteger();
+        final AtomicInteger writeCalls = new AtomicInteger();
+        final AtomicInteger summaryCalls = new AtomicInteger();
+        final List<Integer> changeLog = new ArrayList<>();
+        volatile CountDownLatch getTasksGate = new CountDownLatch(0);
+        volatile CountDownLatch getTaskGate = new CountDownLatch(0);
+        //When set, findTask() reports missing ids with null like TasksDAODerby; otherwise it throws
+        volatile boolean nullForMissing = false;
+        private int nextId = 1;
+
+        private static void pass(CountDownLatch gate) throws TasksDAOException {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new TasksDAOException("Interrupted", e);
+            }
+        }
+
+        @Override
+        public ITask[] getTasks() throws TasksDAOException {
+            getTasksCalls.incrementAndGet();
+            pass(getTasksGate);
+            synchronized (this) {
+                return rows.values().toArray(ITask[]::new);
+            }
+        }
+
+        @Override
+        public ITask getTask(int id) throws TasksDAOException {
+            getTaskCalls.incrementAndGet();
+            pass(getTaskGate);
+            synchronized (this) {
+                ITask task = rows.get(id);
+                if (task == null) {
+                    throw new TasksDAOException("No task with id " + id);
+                }
+                return task;
+            }
+        }
+
+        @Override
+        public ITask findTask(int id) throws TasksDAOException {
+            if (!nullForMissing) {
+                return getTask(id);
+            }
+            getTaskCalls.incrementAndGet();
+            synchronized (this) {
+                return rows.get(id);
+            }
+        }
+
+        @Override
+        public synchronized TasksSummary getSummary() {
+            summaryCalls.incrementAndGet();
+            return new TasksSummary(rows.size(), rows.isEmpty() ? 0 : ((TreeMap<Integer, ITask>) rows).lastKey());
+        }
+
+        @Override
+        public synchronized TaskChanges getChangesSince(long version) {
+            if (version < 0 || version > changeLog.size()) {
+                return new TaskChanges(changeLog.size(), new int[0], false);
+            }
+            int[] ids = changeLog.subList((int) version, changeLog.size()).stream()
+                    .mapToInt(Integer::intValue).distinct().toArray();
+            return new TaskChanges(changeLog.size(), ids, true);
+        }
+
+        @Override
+        public synchronized void addTask(ITask task) {
+            ((Task) task).setId(nextId++);
+            rows.put(task.getId(), task);
+            changeLog.add(task.getId());
+        }
+
+        @Override
+        public synchronized void updateTask(ITask task) {
+            writeCalls.incrementAndGet();
+            rows.put(task.getId(), task);
+            changeLog.add(task.getId());
+        }
+
+        @Override
+        public synchronized void deleteTasks() {
+            changeLog.addAll(rows.keySet());
+            rows.clear();
+        }
+
+        @Override
+        public synchronized void deleteTask(int id) {
+            writeCalls.incrementAndGet();
+            rows.remove(id);
+            changeLog.add(id);
+        }
+
+        /**
+         * Writes a row as another process would: logged, but not through any proxy.
+         *
+         * @param task the new row, or null to delete the row
+         */
+        synchronized void writeElsewhere(int id, ITask task) {
+            if (task == null) {
+                rows.remove(id);
+            } else {
+                ((Task) task).setId(id);
+                rows.put(id, task);
+                nextId = Math.max(nextId, id + 1);
+            }
+            changeLog.add(id);
+        }
+    }
+
+    private CountingTasksDAO database;
+    private TasksDAOProxy proxy;
+
+    @BeforeEach
+    void setUp() throws TasksDAOException {
+        database = new CountingTasksDAO();
+        proxy = new TasksDAOProxy(database);
+        for (int i = 0; i < 3; i++) {
+            proxy.addTask(newTask("Task " + i));
+        }
+    }
+
+    private static Task newTask(String title) {
+        return new Task(0, title, "Description", TaskStateFactory.toDo());
+    }
+
+    /**
+     * Tests that fetching single tasks on a cold proxy does not make getTasks() serve a partial table.
+     */
+    @Test
+    void testGetTask_doesNotFakeFullSnapshot() throws TasksDAOException {
+        TasksDAOProxy coldProxy = new TasksDAOProxy(database);
+        coldProxy.getTask(1);
+
+        assertEquals(3, coldProxy.getTasks().length);
+        assertEquals(1, database.getTasksCalls.get());
+    }
+
+    /**
+     * Tests that the default deleteTasks(int...) skips ids with no task, even when deleteTask()
+     * reports them as errors the way TasksDAODerby does.
+     */
+    @Test
+    void testDefaultDeleteTasks_skipsMissingIds() throws TasksDAOException {
+        CountingTasksDAO strictDatabase = new CountingTasksDAO();
+        ITasksDAO strict = new ITasksDAO() {
+            //Delegates everything but deleteTasks(int...), which stays the interface default
+            @Override public ITask[] getTasks() throws TasksDAOException { return strictDatabase.getTasks(); }
+            @Override public ITask getTask(int id) throws TasksDAOException { return strictDatabase.getTask(id); }
+            @Override public ITask findTask(int id) throws TasksDAOException { return strictDatabase.findTask(id); }
+            @Override public void addTask(ITask task) { strictDatabase.addTask(task); }
+            @Override public void updateTask(ITask task) { strictDatabase.updateTask(task); }
+            @Override public void deleteTasks() { strictDatabase.deleteTasks(); }
+            @Override public void deleteTask(int id) throws TasksDAOException {
+                if (strictDatabase.findTask(id) == null) {
+                    throw new TasksDAOException("Deleting task failed, no rows affected.");
+                }
+                strictDatabase.deleteTask(id);
+            }
+        };
+        strictDatabase.nullForMissing = true;
+        strict.addTask(newTask("Kept"));
+        strict.addTask(newTask("Deleted"));
+
+        strict.deleteTasks(2, 99);
+
+        assertEquals(1, strict.getTasks().length);
+        assertEquals(1, strict.getTasks()[0].getId());
+    }
+
+    /**
+     * Tests that a concurrency limit placed under the proxy is only paid by calls that reach the
+     * DAO, and that a stream holds its permit until it is closed, still reading lazily.
+     */
+    @Test
+    void testLimitConcurrency_cacheHitsTakeNoPermit() throws TasksDAOException {
+        TasksDAOProxy coldProxy = new TasksDAOProxy(database);
+        ConcurrencyLimitedTasksDAO limited = coldProxy.limitConcurrency(1);
+        assertSame(limited, coldProxy.limitConcurrency(4));
+        assertSame(limited, coldProxy.getDelegate());
+        assertSame(database, limited.getDelegate());
+
+        try (Stream<ITask> stream = coldProxy.streamTasks()) {
+            assertEquals(1, limited.getInFlight());
+            assertEquals(3, stream.count());
+        }
+        assertEquals(0, limited.getInFlight());
+        coldProxy.getTask(1); // would wait forever if the closed stream kept the only permit
+
+        coldProxy.getTasks();
+        int databaseReads = database.getTasksCalls.get();
+        for (int i = 0; i < 10; i++) {
+            coldProxy.getTasks();
+            coldProxy.getTask(2);
+        }
+        assertEquals(databaseReads, database.getTasksCalls.get());
+        assertEquals(0, limited.getWaitCount());
+        assertEquals(1, limited.getPeakInFlight());
+    }
+
+    /**
+     * Tests that a stale snapshot keeps being served without blocking while a single background
+     * reload runs, and that the reload then replaces it.
+     */
+    @Test
+    void testSnapshotRefreshAhead() throws Exception {
+        assertEquals(3, proxy.getTasks().length);
+        // Another process adds a row the proxy does not know about
+        database.addTask(newTask("Written elsewhere"));
+        proxy.setSnapshotExpiry(Duration.ZERO, Duration.ofMinutes(1));
+
+        database.getTasksGate = new CountDownLatch(1);
+        assertEquals(3, proxy.getTasks().length);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (database.getTasksCalls.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // The reload is blocked in the database: readers still get the old snapshot at once
+        for (int i = 0; i < 5; i++) {
+            assertEquals(3, proxy.getTasks().length);
+        }
+        assertEquals(2, database.getTasksCalls.get()); // initial load + one background reload
+        database.getTasksGate.countDown();
+
+        while (proxy.getSnapshotRefreshes() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        proxy.setSnapshotExpiry(Duration.ofMinutes(1), Duration.ofMinutes(1));
+        assertEquals(4, proxy.getTasks().length);
+    }
+
+    /**
+     * Tests that an expired snapshot is not served and is reloaded synchronously.
+     */
+    @Test
+    void testSnapshotExpiry() throws TasksDAOException {
+        assertEquals(3, proxy.getTasks().length);
+        database.addTask(newTask("Written elsewhere"));
+        proxy.setSnapshotExpiry(Duration.ZERO, Duration.ZERO);
+
+        assertEquals(4, proxy.getTasks().length);
+        assertEquals(1, proxy.getSnapshotExpirations());
+        assertThrows(IllegalArgumentException.class,
+                () -> proxy.setSnapshotExpiry(Duration.ofMinutes(2), Duration.ofMinutes(1)));
+    }
+
+    /**
+     * Tests that an Error thrown by a coalesced load reaches the callers that joined it instead
+     * of leaving them waiting forever.
+     */
+    @Test
+    void testSingleFlight_errorReachesFollowers() throws Exception {
+        SingleFlight<Integer, String> loads = new SingleFlight<>();
+        CountDownLatch joined = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> loads.execute(1, () -> {
+                CountingTasksDAO.pass(joined);
+                throw new StackOverflowError("loader failed");
+            }));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (loads.getInFlight() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Future<String> follower = executor.submit(() -> loads.execute(1, () -> "not called"));
+            while (loads.getCoalesced() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            joined.countDown();
+
+            for (Future<String> caller : List.of(leader, follower)) {
+                ExecutionException failure = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(StackOverflowError.class, failure.getCause());
+            }
+            assertEquals(0, loads.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that a task load that read the database before this proxy updated or added the task
+     * does not cache the old row, or the id as missing, over the write.
+     */
+    @Test
+    void testTaskLoad_doesNotOverwriteConcurrentWrite() throws Exception {
+        AtomicReference<CountDownLatch> read = new AtomicReference<>();
+        AtomicReference<CountDownLatch> release = new AtomicReference<>();
+        CountingTasksDAO slowDatabase = new CountingTasksDAO() {
+            @Override
+            public ITask findTask(int id) throws TasksDAOException {
+                ITask task = super.findTask(id);
+                read.get().countDown();
+                CountingTasksDAO.pass(release.get());
+                return task;
+            }
+        };
+        slowDatabase.nullForMissing = true;
+        slowDatabase.addTask(newTask("Original"));
+        TasksDAOProxy coldProxy = new TasksDAOProxy(slowDatabase);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            read.set(new CountDownLatch(1));
+            release.set(new CountDownLatch(1));
+            Future<ITask> staleLoad = executor.submit(() -> coldProxy.findTask(1));
+            assertTrue(read.get().await(5, TimeUnit.SECONDS));
+            coldProxy.updateTask(new Task(1, "Renamed", "Description", TaskStateFactory.toDo()));
+            release.get().countDown();
+            assertEquals("Original", staleLoad.get(5, TimeUnit.SECONDS).getTitle());
+            assertEquals("Renamed", coldProxy.getTask(1).getTitle());
+
+            read.set(new CountDownLatch(1));
+            release.set(new CountDownLatch(1));
+            Future<ITask> missingLoad = executor.submit(() -> coldProxy.findTask(2));
+            assertTrue(read.get().await(5, TimeUnit.SECONDS));
+            coldProxy.addTask(newTask("Added"));
+            release.get().countDown();
+            assertNull(missingLoad.get(5, TimeUnit.SECONDS));
+            assertEquals("Added", coldProxy.getTask(2).getTitle());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that shutdown() waits for a running background reload and that no reload is started
+     * afterwards.
+     */
+    @Test
+    void testShutdown_stopsSnapshotRefresh() throws Exception {
+        assertEquals(3, proxy.getTasks().length);
+        proxy.setSnapshotExpiry(Duration.ZERO, Duration.ofMinutes(1));
+        database.getTasksGate = new CountDownLatch(1);
+        proxy.getTasks();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (database.getTasksCalls.get() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> shutdown = executor.submit(() -> {
+                proxy.shutdown();
+                return null;
+            });
+            Thread.sleep(50);
+            assertFalse(shutdown.isDone()); // waits for the reload blocked in the database
+            database.getTasksGate.countDown();
+            shutdown.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, proxy.getSnapshotRefreshes());
+
+        proxy.getTasks();
+        Thread.sleep(50);
+        assertEquals(2, database.getTasksCalls.get());
+    }
+
+    /**
+     * Tests that concurrent misses for the same task, and concurrent full loads on a cold proxy,
+     * each reach the DAO only once and share the result.
+     */
+    @Test
+    void testConcurrentMisses_areCoalesced() throws Exception {
+        TasksDAOProxy coldProxy = new TasksDAOProxy(database);
+        database.getTaskGate = new CountDownLatch(1);
+        database.getTasksGate = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers * 2);
+        try {
+            List<Future<ITask>> tasks = new ArrayList<>();
+            List<Future<ITask[]>> tables = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                tasks.add(executor.submit(() -> coldProxy.getTask(2)));
+                tables.add(executor.submit(coldProxy::getTasks));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((coldProxy.getTaskLoads().getCoalesced() < callers - 1
+                    || coldProxy.getTableLoads().getCoalesced() < callers - 1) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            database.getTaskGate.countDown();
+            database.getTasksGate.countDown();
+
+            for (Future<ITask> task : tasks) {
+                assertEquals("Task 1", task.get().getTitle());
+            }
+            for (Future<ITask[]> table : tables) {
+                assertEquals(3, table.get().length);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, database.getTaskCalls.get());
+        assertEquals(1, database.getTasksCalls.get());
+    }
+
+    /**
+     * Tests that a failed load is reported to every caller that joined it, and is not remembered.
+     */
+    @Test
+    void testCoalescedFailure_isSharedAndNotCached() {
+        assertThrows(TasksDAOException.class, () -> proxy.getTask(42));
+        assertThrows(TasksDAOException.class, () -> proxy.getTask(42));
+        assertEquals(2, database.getTaskCalls.get());
+        assertEquals(0, proxy.getTaskLoads().getInFlight());
+    }
+
+    /**
+     * Tests that cached reads hand out the same id-ordered snapshot array, and that a write
+     * publishes a new version instead of changing the array earlier readers hold.
+     */
+    @Test
+    void testSnapshot_isSharedOrderedAndVersioned() throws TasksDAOException {
+        ITask[] first = proxy.getTasks();
+        assertSame(first, proxy.getTasks());
+        assertArrayEquals(new int[]{1, 2, 3}, Arrays.stream(first).mapToInt(ITask::getId).toArray());
+        long version = proxy.getSnapshotVersion();
+
+        proxy.deleteTask(2);
+        ITask[] second = proxy.getTasks();
+
+        assertEquals(3, first.length);
+        assertArrayEquals(new int[]{1, 3}, Arrays.stream(second).mapToInt(ITask::getId).toArray());
+        assertTrue(proxy.getSnapshotVersion() > version);
+        assertEquals(1, proxy.getTasksPage(0, 1).length);
+        assertEquals(3, proxy.getTasksPage(1, 10)[0].getId());
+        assertEquals(1, database.getTasksCalls.get());
+    }
+
+    /**
+     * Tests that editing a looked-up task, or a task after writing it, changes neither the cache
+     * nor the snapshot, and that a failed update leaves the cached task as it was.
+     */
+    @Test
+    void testCachedTasks_notChangedThroughCallerReferences() throws TasksDAOException {
+        proxy.getTasks();
+        long version = proxy.getSnapshotVersion();
+
+        ((Task) proxy.getTask(1)).setTitle("Edited, not written");
+        Task written = new Task(2, "Written", "Description", TaskStateFactory.completed());
+        proxy.updateTask(written);
+        written.setTitle("Edited after the write");
+
+        assertEquals("Task 0", proxy.getTask(1).getTitle());
+        assertEquals("Task 0", proxy.getTasks()[0].getTitle());
+        assertEquals("Written", proxy.getTask(2).getTitle());
+        assertEquals("Written", proxy.getTasks()[1].getTitle());
+        assertEquals(version + 1, proxy.getSnapshotVersion());
+
+        ITasksDAO failing = new CountingTasksDAO() {
+            @Override
+            public void updateTask(ITask task) {
+                throw new IllegalStateException("Update failed");
+            }
+        };
+        TasksDAOProxy failingProxy = new TasksDAOProxy(failing);
+        failingProxy.addTask(newTask("Original"));
+        Task edited = (Task) failingProxy.getTask(1);
+        edited.setTitle("Never persisted");
+        assertThrows(IllegalStateException.class, () -> failingProxy.updateTask(edited));
+        assertEquals("Original", failingProxy.getTask(1).getTitle());
+    }
+
+    /**
+     * Tests that written-behind updates of one task collapse into a single database write, that
+     * reads see pending writes at once, and that shutdown() writes everything.
+     */
+    @Test
+    void testWriteBehind_coalescesPerTaskAndFlushesOnShutdown() throws TasksDAOException {
+        proxy.enableWriteBehind(Duration.ofMinutes(1), 100);
+        for (TaskState state : new TaskState[]{TaskStateFactory.inProgress(), TaskStateFactory.completed(),
+                TaskStateFactory.inProgress(), TaskStateFactory.completed()}) {
+            proxy.updateTask(new Task(1, "Task 0", "Description", state));
+        }
+        proxy.deleteTask(3);
+
+        assertEquals(0, database.writeCalls.get());
+        assertEquals(2, proxy.getPendingWrites());
+        assertEquals(3, proxy.getCoalescedWrites());
+        assertSame(TaskStateFactory.completed(), proxy.getTask(1).getState());
+        assertThrows(TasksDAOException.class, () -> proxy.getTask(3));
+
+        proxy.shutdown();
+
+        assertEquals(2, database.writeCalls.get());
+        assertEquals(0, proxy.getPendingWrites());
+        assertSame(TaskStateFactory.completed(), database.rows.get(1).getState());
+        assertFalse(database.rows.containsKey(3));
+        assertFalse(proxy.isWriteBehindEnabled());
+    }
+
+    /**
+     * Tests that reaching the size threshold flushes pending writes without waiting for the timer.
+     */
+    @Test
+    void testWriteBehind_flushesAtThreshold() throws Exception {
+        proxy.enableWriteBehind(Duration.ofMinutes(1), 2);
+        proxy.updateTask(new Task(1, "Renamed 1", "Description", TaskStateFactory.toDo()));
+        proxy.updateTask(new Task(2, "Renamed 2", "Description", TaskStateFactory.toDo()));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (proxy.getPendingWrites() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, proxy.getPendingWrites());
+        assertEquals(1, proxy.getFlushes());
+        assertEquals("Renamed 2", database.rows.get(2).getTitle());
+        proxy.shutdown();
+    }
+
+    /**
+     * Tests that the statistics count hits, misses, loads and snapshot rebuilds, and that the
+     * JMX monitor publishes them.
+     */
+    @Test
+    void testStats_arePublishedOverJmx() throws Exception {
+        TasksDAOProxy coldProxy = new TasksDAOProxy(database);
+        coldProxy.getTask(1);
+        coldProxy.getTask(1);
+        coldProxy.getTasks();
+        coldProxy.getTasks();
+        coldProxy.deleteTask(3);
+
+        CacheStats stats = coldProxy.getStats();
+        assertEquals(1, stats.taskHits());
+        assertEquals(1, stats.taskMisses());
+        assertEquals(1, stats.taskLoads());
+        assertEquals(1, stats.snapshotHits());
+        assertEquals(1, stats.snapshotLoads());
+        assertEquals(2, stats.snapshotRebuilds()); // the load and the delete
+        assertEquals(2, stats.snapshotSize());
+        assertEquals(0.5, stats.taskHitRate());
+
+        ObjectName name = TasksDAOProxyMonitor.register(coldProxy, "il.ac.hit.project.test:type=TasksDAOProxy");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "SnapshotHits"));
+            assertEquals(2, server.getAttribute(name, "SnapshotSize"));
+        } finally {
+            TasksDAOProxyMonitor.unregister(name);
+        }
+    }
+
+    /**
+     * Tests that a saved snapshot warms up a new proxy without a full table read, that a stale
+     * one is replaced in the background, and that a corrupt file is ignored.
+     */
+    @Test
+    void testWarmStart(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tasks.snapshot");
+        proxy.getTasks();
+        assertTrue(proxy.saveSnapshot(file));
+
+        TasksDAOProxy warmProxy = new TasksDAOProxy(database);
+        assertTrue(warmProxy.warmStart(file));
+        assertEquals("Task 2", warmProxy.getTasks()[2].getTitle());
+        assertEquals(1, database.getTasksCalls.get()); // only the first proxy's load
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (database.summaryCalls.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Another process adds a row after the file was saved
+        database.addTask(newTask("Written elsewhere"));
+        TasksDAOProxy staleProxy = new TasksDAOProxy(database);
+        CountDownLatch rejected = new CountDownLatch(1);
+        staleProxy.addWarmStartRejectionListener(rejected::countDown);
+        assertTrue(staleProxy.warmStart(file));
+        assertTrue(rejected.await(5, TimeUnit.SECONDS));
+        assertEquals(4, staleProxy.getTasks().length);
+        assertEquals(1, staleProxy.getWarmStartRejections());
+        assertEquals(0, warmProxy.getWarmStartRejections());
+
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+        assertFalse(new TasksDAOProxy(database).warmStart(file));
+    }
+
+    /**
+     * Tests that lookups of missing ids are answered in memory: by the snapshot, by the ids read
+     * with a table too large to keep, and by remembering the DAO's answer.
+     */
+    @Test
+    void testMissingIds_answeredInMemory() throws TasksDAOException {
+        database.nullForMissing = true;
+        proxy.getTasks();
+        assertNull(proxy.findTask(42));
+        assertThrows(TasksDAOException.class, () -> proxy.getTask(42));
+        assertEquals(0, database.getTaskCalls.get());
+
+        // Without a snapshot, the ids read with the table still rule out ids up to the highest one
+        TasksDAOProxy noSnapshotProxy = new TasksDAOProxy(database, BoundedCache.lru(10), 0);
+        noSnapshotProxy.getTasks();
+        noSnapshotProxy.deleteTask(2);
+        assertNull(noSnapshotProxy.findTask(2));
+        assertNull(noSnapshotProxy.findTask(-1));
+        assertEquals(0, database.getTaskCalls.get());
+
+        // Ids above it are asked once, then remembered as missing
+        assertNull(noSnapshotProxy.findTask(42));
+        assertNull(noSnapshotProxy.findTask(42));
+        assertEquals(1, database.getTaskCalls.get());
+        assertEquals(3, noSnapshotProxy.getStats().missingHits());
+
+        // Unless remembering is turned off
+        noSnapshotProxy.setMissingIdTtl(Duration.ZERO);
+        assertNull(noSnapshotProxy.findTask(42));
+        assertEquals(2, database.getTaskCalls.get());
+    }
+
+    /**
+     * Tests that polling the change log invalidates exactly the tasks another process changed:
+     * the snapshot is patched without reading the whole table again, and the per-task cache of a
+     * proxy without a snapshot re-reads the changed task. An unknown change version drops everything.
+     */
+    @Test
+    void testPollChanges_invalidatesOnlyChangedTasks() throws TasksDAOException {
+        database.nullForMissing = true;
+        assertTrue(proxy.enableChangePolling(Duration.ofHours(1)));
+        assertEquals(3, proxy.getChangeVersion());
+        TasksDAOProxy noSnapshotProxy = new TasksDAOProxy(database, BoundedCache.lru(10), 0);
+        assertTrue(noSnapshotProxy.enableChangePolling(Duration.ofHours(1)));
+        proxy.getTasks();
+        assertEquals("Task 2", noSnapshotProxy.getTask(3).getTitle());
+        assertEquals(1, database.getTaskCalls.get());
+
+        database.writeElsewhere(1, newTask("Renamed elsewhere"));
+        database.writeElsewhere(2, null);
+        database.writeElsewhere(4, newTask("Added elsewhere"));
+        database.writeElsewhere(3, newTask("Also renamed"));
+        assertEquals("Task 0", proxy.getTask(1).getTitle());
+
+        assertEquals(4, proxy.pollChanges());
+        assertEquals(List.of(1, 3, 4), Arrays.stream(proxy.getTasks()).map(ITask::getId).toList());
+        assertEquals("Renamed elsewhere", proxy.getTask(1).getTitle());
+        assertNull(proxy.findTask(2));
+        assertEquals(1, database.getTasksCalls.get());
+        assertEquals(5, database.getTaskCalls.get());
+        assertEquals(0, proxy.pollChanges());
+        assertEquals(4, proxy.getStats().changedTasks());
+
+        assertEquals("Task 2", noSnapshotProxy.getTask(3).getTitle());
+        assertEquals(4, noSnapshotProxy.pollChanges());
+        assertEquals("Also renamed", noSnapshotProxy.getTask(3).getTitle());
+        assertEquals(6, database.getTaskCalls.get());
+
+        TasksDAOProxy unpolledProxy = new TasksDAOProxy(database);
+        unpolledProxy.getTasks();
+        assertEquals(-1, unpolledProxy.pollChanges());
+        assertFalse(unpolledProxy.isSnapshotLoaded());
+        assertEquals(1, unpolledProxy.getStats().fullInvalidations());
+
+        proxy.shutdown();
+        assertFalse(proxy.isChangePollingEnabled());
+    }
+}
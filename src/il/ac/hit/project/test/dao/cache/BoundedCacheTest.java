@@ -0,0 +1,105 @@
+package il.ac.hit.project.test.dao.cache;
+
+import il.ac.hit.project.main.model.dao.cache.BoundedCache;
+import il.ac.hit.project.main.model.dao.cache.LruPolicy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BoundedCache} with the LRU and W-TinyLFU eviction policies.
+ */
+class BoundedCacheTest {
+
+    /**
+     * Tests that the LRU policy evicts the least recently used entry and that the counters
+     * reflect hits, misses and evictions.
+     */
+    @Test
+    void testLru_evictsLeastRecentlyUsed() {
+        BoundedCache<Integer, String> cache = BoundedCache.lru(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1)); // 2 is now the least recently used entry
+        cache.put(3, "three");
+
+        assertNull(cache.get(2));
+        assertEquals("one", cache.get(1));
+        assertEquals("three", cache.get(3));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    /**
+     * Tests that a one-off scan of new keys cannot flush a frequently read entry out of a
+     * W-TinyLFU cache, while the scanned keys are rejected instead.
+     */
+    @Test
+    void testTinyLfu_keepsFrequentEntriesDuringScan() {
+        BoundedCache<Integer, String> cache = BoundedCache.tinyLfu(100);
+        for (int key = 0; key < 100; key++) {
+            cache.put(key, "task " + key);
+        }
+        for (int round = 0; round < 5; round++) {
+            assertNotNull(cache.get(7));
+        }
+
+        // Scan many keys that are each seen only once
+        for (int key = 1000; key < 2000; key++) {
+            cache.get(key);
+            cache.put(key, "task " + key);
+        }
+
+        assertEquals("task 7", cache.get(7));
+        assertEquals(100, cache.size());
+        assertTrue(cache.getRejections() > 0, cache.toString());
+    }
+
+    /**
+     * Tests that put() reports a value as cached when W-TinyLFU refuses an earlier candidate
+     * to make room for it, rather than the value itself.
+     */
+    @Test
+    void testTinyLfu_putReportsOwnAdmission() {
+        BoundedCache<Integer, String> cache = BoundedCache.tinyLfu(100);
+        for (int key = 0; key < 100; key++) {
+            cache.put(key, "task " + key);
+        }
+        for (int key = 0; key < 100; key++) {
+            cache.get(key);
+        }
+
+        for (int key = 1000; key < 1010; key++) {
+            // The new key enters the admission window; the candidate it pushes out loses to main
+            assertTrue(cache.put(key, "task " + key), cache.toString());
+            assertTrue(cache.containsKey(key));
+        }
+        assertTrue(cache.getRejections() > 0, cache.toString());
+        assertTrue(cache.replace(1009, "task 1009 updated"));
+    }
+
+    /**
+     * Tests that a weight-bounded cache evicts by total weight, rejects values heavier than the
+     * whole cache, and that replacing a key never leaves its old value behind.
+     */
+    @Test
+    void testWeightBound() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, String::length, new LruPolicy<>());
+        cache.put(1, "aaaa");
+        cache.put(2, "bbbb");
+        cache.put(3, "cccc"); // 12 > 10: evicts key 1
+
+        assertNull(cache.get(1));
+        assertEquals(8, cache.weight());
+
+        assertFalse(cache.put(2, "this value weighs more than the cache"));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.getRejections());
+
+        assertFalse(cache.replace(1, "a"));
+        assertTrue(cache.replace(3, "c"));
+        assertEquals(1, cache.weight());
+    }
+}
@@ -0,0 +1,50 @@
+package il.ac.hit.project.test.dao.cache;
+
+import il.ac.hit.project.main.model.dao.cache.IntLongMap;
+import il.ac.hit.project.main.model.dao.cache.IntObjectMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the primitive-keyed maps {@link IntLongMap} and {@link IntObjectMap}.
+ */
+class IntMapsTest {
+
+    /**
+     * Tests random puts and removes over a small key range, which makes long probe runs and
+     * backward shifts common, against a {@link HashMap}.
+     */
+    @Test
+    void testRandomOperations_matchHashMap() {
+        IntLongMap longs = new IntLongMap();
+        IntObjectMap<String> objects = new IntObjectMap<>();
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, longs.remove(key, -1));
+                assertEquals(removed == null ? null : removed.toString(), objects.remove(key));
+            } else {
+                long value = random.nextLong(1_000_000);
+                Long previous = expected.put(key, value);
+                assertEquals(previous == null ? -1 : previous, longs.put(key, value, -1));
+                assertEquals(previous == null ? null : previous.toString(), objects.put(key, Long.toString(value)));
+            }
+        }
+        assertEquals(expected.size(), longs.size());
+        assertEquals(expected.size(), objects.size());
+        for (int key = -1000; key < 1000; key++) {
+            Long value = expected.get(key);
+            assertEquals(value == null ? -1 : value, longs.get(key, -1));
+            assertEquals(value == null ? null : value.toString(), objects.get(key));
+        }
+        assertThrows(IllegalArgumentException.class, () -> longs.put(Integer.MIN_VALUE, 1, -1));
+    }
+}
@@ -0,0 +1,78 @@
+package il.ac.hit.project.test.dao.cache;
+
+import il.ac.hit.project.main.model.dao.cache.TaskSnapshot;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the copy-on-write updates of {@link TaskSnapshot}.
+ */
+class TaskSnapshotTest {
+
+    private static Task task(int id, String title) {
+        return new Task(id, title, "Description", TaskStateFactory.toDo());
+    }
+
+    /**
+     * Tests random batches of puts and removes, including duplicate and missing ids, against a
+     * {@link TreeMap}, and that earlier snapshots are never changed.
+     */
+    @Test
+    void testRandomPutsAndRemoves_matchTreeMap() {
+        TaskSnapshot snapshot = TaskSnapshot.of(new ITask[0], 0);
+        TreeMap<Integer, ITask> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int round = 1; round <= 2_000; round++) {
+            TaskSnapshot previous = snapshot;
+            List<ITask> before = List.of(previous.tasks());
+            int batch = 1 + random.nextInt(4);
+            if (random.nextInt(3) == 0) {
+                int[] ids = new int[batch];
+                for (int i = 0; i < batch; i++) {
+                    ids[i] = random.nextInt(300);
+                    expected.remove(ids[i]);
+                }
+                snapshot = snapshot.withRemoved(ids, round);
+            } else {
+                List<ITask> added = new ArrayList<>();
+                for (int i = 0; i < batch; i++) {
+                    ITask task = task(random.nextInt(300), "Round " + round + "." + i);
+                    added.add(task);
+                    expected.put(task.getId(), task);
+                }
+                snapshot = snapshot.withPut(added, round);
+            }
+            assertArrayEquals(expected.values().toArray(), snapshot.tasks());
+            assertEquals(round, snapshot.version());
+            assertEquals(before, List.of(previous.tasks()));
+        }
+    }
+
+    /**
+     * Tests inserting before, between and after existing ids and removing at both ends.
+     */
+    @Test
+    void testSingleTaskWrites() {
+        TaskSnapshot snapshot = TaskSnapshot.of(new ITask[]{task(2, "b"), task(4, "d")}, 1);
+
+        snapshot = snapshot.withPut(List.of(task(1, "a")), 2)
+                .withPut(List.of(task(3, "c")), 3)
+                .withPut(List.of(task(5, "e")), 4)
+                .withPut(List.of(task(3, "c2")), 5);
+        assertEquals(List.of(1, 2, 3, 4, 5), List.of(snapshot.tasks()).stream().map(ITask::getId).toList());
+        assertEquals("c2", snapshot.get(3).getTitle());
+
+        snapshot = snapshot.withRemoved(new int[]{5, 1, 9}, 6);
+        assertEquals(List.of(2, 3, 4), List.of(snapshot.tasks()).stream().map(ITask::getId).toList());
+        assertSame(snapshot.tasks(), snapshot.withRemoved(new int[]{9}, 7).tasks());
+    }
+}
@@ -0,0 +1,82 @@
+package il.ac.hit.project.test.dao.cache;
+
+import il.ac.hit.project.main.model.dao.cache.OffHeapTaskStore;
+import il.ac.hit.project.main.model.dao.cache.TwoTierTaskCache;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TwoTierTaskCache} and its off-heap tier, {@link OffHeapTaskStore}.
+ */
+class TwoTierTaskCacheTest {
+
+    private static ITask task(int id) {
+        return new Task(id, "Task " + id, id % 2 == 0 ? null : "Description " + id, TaskStateFactory.toDo());
+    }
+
+    /**
+     * Tests that tasks evicted from the LRU hot tier are demoted to the cold tier and that a
+     * cold hit promotes the task back, with every field intact, demoting another in its place.
+     */
+    @Test
+    void testEvictedTasks_areDemotedAndPromoted() {
+        TwoTierTaskCache cache = new TwoTierTaskCache(2, 4L * OffHeapTaskStore.DEFAULT_SEGMENT_BYTES);
+        for (int id = 1; id <= 5; id++) {
+            assertTrue(cache.put(id, task(id)));
+        }
+        assertEquals(2, cache.getHotTier().size());
+        assertEquals(3, cache.getColdTier().size());
+
+        ITask promoted = cache.get(1);
+        assertEquals(1, promoted.getId());
+        assertEquals("Task 1", promoted.getTitle());
+        assertEquals("Description 1", promoted.getDescription());
+        assertEquals(0, promoted.getState().getOrdinal());
+        assertTrue(cache.getHotTier().containsKey(1));
+        assertFalse(cache.getColdTier().contains(1));
+        // 4 was the least recently used hot task
+        assertTrue(cache.getColdTier().contains(4));
+        assertNull(cache.get(2).getDescription());
+        assertEquals(5, cache.size());
+        assertEquals(2, cache.getColdHits());
+        assertEquals(2, cache.getPromotions());
+
+        assertEquals("Task 3", cache.remove(3).getTitle());
+        assertNull(cache.get(3));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that a full cold tier reclaims its oldest segment, evicting the tasks stored there,
+     * and that a task larger than a segment is rejected.
+     */
+    @Test
+    void testColdTier_reclaimsOldestSegment() {
+        OffHeapTaskStore store = new OffHeapTaskStore(2 * 256, 256);
+        // Replacing a task keeps one live copy
+        assertTrue(store.put(task(1)));
+        long liveBytes = store.liveBytes();
+        assertTrue(store.put(task(1)));
+        assertEquals(1, store.size());
+        assertEquals(liveBytes, store.liveBytes());
+
+        for (int id = 1; id <= 40; id++) {
+            assertTrue(store.put(task(id)));
+        }
+        assertEquals(40, store.size() + store.getEvictions(), store.toString());
+        assertNull(store.get(1));
+        assertEquals("Description 39", store.get(39).getDescription());
+        assertEquals(2 * 256, store.allocatedBytes());
+
+        assertFalse(store.put(new Task(99, "x".repeat(300), null, TaskStateFactory.toDo())));
+        assertEquals(1, store.getRejections());
+        assertFalse(store.contains(99));
+    }
+}
@@ -0,0 +1,172 @@
+package il.ac.hit.project.test.model.task;
+
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import il.ac.hit.project.main.model.task.TaskTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TaskTable}; every check runs with the strings both on and off the Java heap.
+ */
+class TaskTableTest {
+
+    /**
+     * Tests that stored tasks read back through views, are copied on add, and that views follow
+     * updates of their task.
+     */
+    @Test
+    void testAddAndSet_viewsReadCurrentValues() {
+        checkAddAndSet(false);
+        checkAddAndSet(true);
+    }
+
+    private void checkAddAndSet(boolean offHeap) {
+        TaskTable table = new TaskTable(offHeap);
+        Task task = new Task(1, "Title", null, TaskStateFactory.toDo());
+        table.add(task);
+        table.add(0, new Task(2, "Ünïcode title", "Description", TaskStateFactory.completed()));
+        task.setTitle("Changed after add");
+
+        ITask view = table.get(1);
+        assertEquals(1, view.getId());
+        assertEquals("Title", view.getTitle());
+        assertNull(view.getDescription());
+        assertEquals("Ünïcode title", table.get(0).getTitle());
+        assertEquals("ID: 1 | Title: Title | State: " + TaskStateFactory.toDo(), view.toString());
+
+        ITask previous = table.set(1, new Task(1, "Updated", "Now described", TaskStateFactory.inProgress()));
+        assertEquals("Title", previous.getTitle());
+        assertEquals("Updated", view.getTitle());
+        assertEquals("Now described", view.getDescription());
+        assertEquals(TaskStateFactory.inProgress(), view.getState());
+        assertArrayEquals(new int[] {0, 1, 1}, table.countByState());
+        assertEquals(1, table.indexOfId(1));
+    }
+
+    /**
+     * Tests that a removeIf filter that throws part-way leaves every task and view in place.
+     */
+    @Test
+    void testRemoveIf_throwingFilterLeavesTableUnchanged() {
+        checkRemoveIfThrows(false);
+        checkRemoveIfThrows(true);
+    }
+
+    private void checkRemoveIfThrows(boolean offHeap) {
+        TaskTable table = new TaskTable(offHeap);
+        for (int id = 1; id <= 4; id++) {
+            table.add(new Task(id, "Task " + id, "Description", TaskStateFactory.toDo()));
+        }
+        ITask first = table.get(0);
+
+        assertThrows(IllegalArgumentException.class, () -> table.removeIf(task -> {
+            if (task.getId() == 3) {
+                throw new IllegalArgumentException("filter failed");
+            }
+            return true;
+        }));
+
+        assertEquals(4, table.size());
+        assertEquals("Task 1", first.getTitle());
+        assertEquals(List.of(1, 2, 3, 4), table.stream().map(ITask::getId).toList());
+        assertTrue(table.removeIf(task -> task.getId() % 2 == 0));
+        assertEquals(List.of(1, 3), table.stream().map(ITask::getId).toList());
+    }
+
+    /**
+     * Tests that removal keeps the order of the other tasks, detaches views of removed tasks even
+     * when their slot is reused, and that replaceAll only rewrites replaced tasks.
+     */
+    @Test
+    void testRemove_invalidatesViews() {
+        checkRemove(false);
+        checkRemove(true);
+    }
+
+    private void checkRemove(boolean offHeap) {
+        TaskTable table = new TaskTable(offHeap);
+        for (int id = 1; id <= 5; id++) {
+            table.add(new Task(id, "Task " + id, "Description " + id, TaskStateFactory.toDo()));
+        }
+        ITask removedView = table.get(1);
+        ITask keptView = table.get(4);
+
+        assertEquals("Task 2", table.remove(1).getTitle());
+        assertTrue(table.removeIf(task -> task.getId() % 2 == 1 && task.getId() < 5));
+        table.add(new Task(6, "Task 6", null, TaskStateFactory.toDo()));
+
+        assertEquals(List.of(4, 5, 6), table.stream().map(ITask::getId).toList());
+        assertThrows(IllegalStateException.class, removedView::getTitle);
+        assertEquals("Task 5", keptView.getTitle());
+
+        int bytesBefore = table.getStringBytes();
+        table.replaceAll(task -> task.getId() == 5 ? new Task(5, "Five", null, TaskStateFactory.completed()) : task);
+        assertEquals("Five", keptView.getTitle());
+        assertEquals(bytesBefore - "Task 5Description 5".length() + "Five".length(), table.getStringBytes());
+
+        table.clear();
+        assertTrue(table.isEmpty());
+        assertThrows(IllegalStateException.class, keptView::getId);
+    }
+
+    /**
+     * Tests that the string buffer is compacted once most of it is dead, without changing the
+     * tasks that are left.
+     */
+    @Test
+    void testManyUpdates_compactStrings() {
+        checkManyUpdates(false);
+        checkManyUpdates(true);
+    }
+
+    private void checkManyUpdates(boolean offHeap) {
+        TaskTable table = new TaskTable(offHeap);
+        int count = 1000;
+        for (int id = 1; id <= count; id++) {
+            table.add(new Task(id, "Task " + id, "Description of task " + id, TaskStateFactory.toDo()));
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < count; i++) {
+                int id = i + 1;
+                table.set(i, new Task(id, "Task " + id + " round " + round, "Description of task " + id, TaskStateFactory.toDo()));
+            }
+        }
+        table.removeIf(task -> task.getId() > count / 2);
+
+        assertEquals(count / 2, table.size());
+        assertEquals("Task 500 round 19", table.get(499).getTitle());
+        assertEquals("Description of task 1", table.get(0).getDescription());
+        assertTrue(table.getStringBytes() < 40 * count);
+    }
+
+    /**
+     * Tests that empty titles and descriptions still read back after the strings were compacted
+     * into a smaller buffer.
+     */
+    @Test
+    void testEmptyStrings_surviveCompaction() {
+        checkEmptyStrings(false);
+        checkEmptyStrings(true);
+    }
+
+    private void checkEmptyStrings(boolean offHeap) {
+        TaskTable table = new TaskTable(offHeap);
+        String longTitle = "x".repeat(1000);
+        for (int id = 1; id <= 400; id++) {
+            table.add(new Task(id, longTitle, "Description " + id, TaskStateFactory.toDo()));
+        }
+        // Written last, so its offsets lie far past the end of the compacted buffer
+        table.add(new Task(401, "", "", TaskStateFactory.toDo()));
+        table.removeIf(task -> task.getId() <= 400);
+
+        ITask empty = table.get(0);
+        assertEquals("", empty.getTitle());
+        assertEquals("", empty.getDescription());
+        assertEquals(0, table.getStringBytes());
+    }
+}
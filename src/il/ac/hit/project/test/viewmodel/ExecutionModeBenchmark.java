@@ -0,0 +1,127 @@
+package il.ac.hit.project.test.viewmodel;
+
+import il.ac.hit.project.main.model.dao.ConcurrencyLimitedTasksDAO;
+import il.ac.hit.project.main.model.dao.ITasksDAO;
+import il.ac.hit.project.main.model.dao.TasksDAOException;
+import il.ac.hit.project.main.model.task.ITask;
+import il.ac.hit.project.main.model.task.Task;
+import il.ac.hit.project.main.model.task.TaskStateFactory;
+import il.ac.hit.project.main.viewmodel.ExecutionMode;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares throughput and latency of the {@link ExecutionMode}s under a burst of DAO calls,
+ * submitted the same way {@code TasksViewModel} submits them.
+ * <p>
+ * The store is simulated: every call blocks for a fixed latency, like a JDBC round trip, and
+ * at most {@code storeConcurrency} calls are served at once, like a connection pool. Not a
+ * JUnit test; run {@link #main(String[])} with optional arguments
+ * {@code [operations] [latencyMillis] [storeConcurrency]}.
+ * </p>
+ */
+public class ExecutionModeBenchmark {
+
+    /**
+     * A DAO whose calls block for a fixed time on one of a limited number of "connections".
+     */
+    private static final class SimulatedBlockingDAO implements ITasksDAO {
+        private final long latencyMillis;
+        private final Semaphore connections;
+
+        SimulatedBlockingDAO(long latencyMillis, int connections) {
+            this.latencyMillis = latencyMillis;
+            this.connections = new Semaphore(connections, true);
+        }
+
+        private void roundTrip() throws TasksDAOException {
+            try {
+                connections.acquire();
+                try {
+                    Thread.sleep(latencyMillis);
+                } finally {
+                    connections.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TasksDAOException("Interrupted", e);
+            }
+        }
+
+        @Override public ITask[] getTasks() throws TasksDAOException {roundTrip(); return new ITask[0];}
+        @Override public ITask getTask(int id) throws TasksDAOException {roundTrip(); return null;}
+        @Override public void addTask(ITask task) throws TasksDAOException {roundTrip();}
+        @Override public void updateTask(ITask task) throws TasksDAOException {roundTrip();}
+        @Override public void deleteTasks() throws TasksDAOException {roundTrip();}
+        @Override public void deleteTask(int id) throws TasksDAOException {roundTrip();}
+    }
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        int storeConcurrency = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+        System.out.printf("%d operations, %d ms per call, store serves %d calls at once%n",
+                operations, latencyMillis, storeConcurrency);
+
+        // Warm-up, so JIT compilation does not count against the first mode
+        run("warm-up", ExecutionMode.FIXED_POOL, new SimulatedBlockingDAO(0, storeConcurrency), operations, false);
+
+        ITasksDAO store = new SimulatedBlockingDAO(latencyMillis, storeConcurrency);
+        run("fixed pool (" + ExecutionMode.FIXED_POOL_THREADS + " threads)",
+                ExecutionMode.FIXED_POOL, store, operations, true);
+        run("virtual threads, limit " + ExecutionMode.VIRTUAL_THREADS_DAO_CONCURRENCY,
+                ExecutionMode.VIRTUAL_THREADS, store, operations, true);
+        run("virtual threads, limit " + storeConcurrency, ExecutionMode.VIRTUAL_THREADS,
+                new ConcurrencyLimitedTasksDAO(store, storeConcurrency), operations, true);
+    }
+
+    /**
+     * Submits a burst of updates and reports throughput and submit-to-completion latency.
+     */
+    private static void run(String label, ExecutionMode mode, ITasksDAO store, int operations, boolean print)
+            throws InterruptedException {
+        ITasksDAO dao = mode.limit(store);
+        ExecutorService service = mode.newExecutor();
+        long[] latencies = new long[operations];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(operations);
+        ITask task = new Task(1, "Task", "Description", TaskStateFactory.toDo());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int index = i;
+            long submitted = System.nanoTime();
+            service.submit(() -> {
+                try {
+                    dao.updateTask(task);
+                } catch (TasksDAOException e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latencies[index] = System.nanoTime() - submitted;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        service.shutdown();
+        service.awaitTermination(10, TimeUnit.SECONDS);
+
+        if (!print) {
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-32s %8.0f ops/s   p50 %7.1f ms   p99 %7.1f ms   max %7.1f ms   failures %d%n",
+                label,
+                operations / (elapsed / 1e9),
+                latencies[operations / 2] / 1e6,
+                latencies[(int) (operations * 0.99)] / 1e6,
+                latencies[operations - 1] / 1e6,
+                failures.get());
+    }
+}
@@ -1,6 +1,7 @@
 // TasksViewModelTest.java
 package il.ac.hit.project.test.viewmodel;
 
+import il.ac.hit.project.main.model.dao.ConcurrencyLimitedTasksDAO;
 import il.ac.hit.project.main.model.dao.ITasksDAO;
 import il.ac.hit.project.main.model.dao.TasksDAODerby;
 import il.ac.hit.project.main.model.dao.TasksDAOException;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.*;
 
 import il.ac.hit.project.main.view.IView;
 import il.ac.hit.project.main.view.MessageType;
+import il.ac.hit.project.main.viewmodel.ExecutionMode;
 import il.ac.hit.project.main.viewmodel.TasksViewModel;
 import org.mockito.ArgumentMatchers;
 
@@ -128,6 +130,146 @@ public class TasksViewModelTest {
         verify(mockView, times(1)).setTasks(anyList()); // Use anyList() for flexibility
     }
 
+    /**
+     * Tests that with paging enabled, {@link TasksViewModel#loadTasks()} fetches only the first page
+     * and {@link TasksViewModel#loadNextPage()} appends the following pages until a short page is read.
+     */
+    @Test
+    public void testLoadTasksPaged() throws Exception {
+        // Arrange
+        ITasksDAO mockTasksDAO = mock(ITasksDAO.class);
+        IView mockView = mock(IView.class);
+        ExecutorService mockExecutorService = mock(ExecutorService.class);
+        when(mockTasksDAO.getTasksPage(0, 2)).thenReturn(new ITask[]{
+                new Task(1, "Task 1", "Description 1", new ToDoState()),
+                new Task(2, "Task 2", "Description 2", new ToDoState())});
+        when(mockTasksDAO.getTasksPage(2, 2)).thenReturn(new ITask[]{
+                new Task(3, "Task 3", "Description 3", new ToDoState())});
+
+        // Run submitted work synchronously
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return mock(Future.class);
+        }).when(mockExecutorService).submit(any(Runnable.class));
+
+        TasksViewModel viewModel = new TasksViewModel(mockTasksDAO, mockView, mockExecutorService);
+        viewModel.setPageSize(2);
+
+        // Act & Assert: first page only
+        viewModel.loadTasks();
+        assertEquals(2, viewModel.getAllTasks().size());
+        assertTrue(viewModel.hasMorePages());
+        verify(mockTasksDAO, never()).getTasks();
+
+        // Act & Assert: the short second page is the last one
+        viewModel.loadNextPage();
+        assertEquals(3, viewModel.getAllTasks().size());
+        assertFalse(viewModel.hasMorePages());
+
+        viewModel.loadNextPage();
+        verify(mockTasksDAO, times(2)).getTasksPage(anyInt(), eq(2));
+    }
+
+    /**
+     * Tests that with paging enabled {@link TasksViewModel#generateReport(String)} loads the pages
+     * not scrolled in yet, so the report covers every task.
+     */
+    @Test
+    public void testGenerateReportPaged() throws Exception {
+        // Arrange
+        ITasksDAO mockTasksDAO = mock(ITasksDAO.class);
+        IView mockView = mock(IView.class);
+        ExecutorService mockExecutorService = mock(ExecutorService.class);
+        when(mockTasksDAO.getTasksPage(0, 2)).thenReturn(new ITask[]{
+                new Task(1, "Task 1", "Description 1", new ToDoState()),
+                new Task(2, "Task 2", "Description 2", new ToDoState())});
+        when(mockTasksDAO.getTasksPage(2, 2)).thenReturn(new ITask[]{
+                new Task(3, "Task 3", "Description 3", TaskStateFactory.completed())});
+        IReportExporter mockExporter = mock(IReportExporter.class);
+
+        // Run submitted work synchronously
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return mock(Future.class);
+        }).when(mockExecutorService).submit(any(Runnable.class));
+
+        TasksViewModel viewModel = new TasksViewModel(mockTasksDAO, mockView, mockExecutorService);
+        viewModel.setPageSize(2);
+        viewModel.getExporters().put("CSV", mockExporter);
+
+        // Act: only the first page is loaded before the report
+        viewModel.loadTasks();
+        viewModel.generateReport("CSV");
+
+        // Assert
+        verify(mockExporter).export(argThat(data -> data.todoTasks() == 2 && data.completedTasks() == 1), eq("report.csv"));
+        assertFalse(viewModel.hasMorePages());
+    }
+
+    /**
+     * Tests that with tasks kept in a {@link TaskTable} the UI list holds detached tasks that
+     * survive a delete, and that a report counts every task.
+     */
+    @Test
+    public void testTaskTableStorage() throws Exception {
+        // Arrange
+        ITasksDAO mockTasksDAO = mock(ITasksDAO.class);
+        IView mockView = mock(IView.class);
+        ExecutorService mockExecutorService = mock(ExecutorService.class);
+        when(mockTasksDAO.getTasks()).thenReturn(new ITask[]{
+                new Task(1, "Task 1", "Description 1", new ToDoState()),
+                new Task(2, "Task 2", "Description 2", TaskStateFactory.completed())});
+        IReportExporter mockExporter = mock(IReportExporter.class);
+
+        // Run submitted work synchronously
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return mock(Future.class);
+        }).when(mockExecutorService).submit(any(Runnable.class));
+
+        TasksViewModel viewModel = new TasksViewModel(mockTasksDAO, mockView, mockExecutorService);
+        viewModel.setTaskListFactory(TaskTable::new);
+        viewModel.getExporters().put("CSV", mockExporter);
+
+        // Act
+        viewModel.loadTasks();
+        viewModel.filterTasks("All", "", "", "");
+        List<ITask> shown = List.copyOf(viewModel.getTasksList().get());
+        viewModel.deleteTask(1);
+        viewModel.generateReport("CSV");
+
+        // Assert
+        assertInstanceOf(TaskTable.class, viewModel.getAllTasks());
+        assertEquals(List.of(2), viewModel.getTasksList().get().stream().map(ITask::getId).toList());
+        assertEquals("Task 1", shown.stream().filter(task -> task.getId() == 1).findFirst().orElseThrow().getTitle());
+        verify(mockExporter).export(argThat(data -> data.completedTasks() == 1 && data.todoTasks() == 0), eq("report.csv"));
+    }
+
+    /**
+     * Tests that in {@link ExecutionMode#VIRTUAL_THREADS} mode background work runs on virtual threads
+     * and DAO calls go through a {@link ConcurrencyLimitedTasksDAO}.
+     */
+    @Test
+    public void testVirtualThreadsMode() throws Exception {
+        // Arrange
+        ITasksDAO mockTasksDAO = mock(ITasksDAO.class);
+        IView mockView = mock(IView.class);
+        when(mockTasksDAO.getTasksPage(anyInt(), anyInt())).thenReturn(new ITask[0]);
+
+        // Act
+        TasksViewModel viewModel = new TasksViewModel(mockTasksDAO, mockView, ExecutionMode.VIRTUAL_THREADS);
+        try {
+            // Assert
+            ConcurrencyLimitedTasksDAO limited = assertInstanceOf(ConcurrencyLimitedTasksDAO.class, viewModel.getModel());
+            assertSame(mockTasksDAO, limited.getDelegate());
+            assertEquals(ExecutionMode.VIRTUAL_THREADS_DAO_CONCURRENCY, limited.getMaxConcurrentCalls());
+            assertTrue(viewModel.getService().submit(() -> Thread.currentThread().isVirtual()).get());
+            assertEquals(ExecutionMode.VIRTUAL_THREADS, viewModel.getExecutionMode());
+        } finally {
+            viewModel.shutdown();
+        }
+    }
+
 
     @Nested
     @DisplayName("Add Task tests")